@@ -1,79 +1,202 @@
 package com.example.primaverap6reader.config;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.unit.DataSize;
 
-import java.util.Arrays;
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.util.*;
 
+/**
+ * Caffeine caches with a policy per cache group, overridable per group and per cache:
+ * <pre>
+ * primavera.cache.&lt;group or cache name&gt;.expireAfterWrite=30m
+ * primavera.cache.&lt;group or cache name&gt;.expireAfterAccess=2h
+ * primavera.cache.&lt;group or cache name&gt;.refreshAfterWrite=8m
+ * primavera.cache.&lt;group or cache name&gt;.maxStaleness=1h
+ * primavera.cache.&lt;group or cache name&gt;.maximumSize=500
+ * primavera.cache.&lt;group or cache name&gt;.maximumWeight=2GB
+ * </pre>
+ * A cache name setting wins over its group's. maximumWeight bounds the estimated retained bytes of
+ * the cache's entries (see RetainedSizeWeigher) instead of their number, and wins over maximumSize
+ * set on the same level. Each cache has its own bound; they are not shared across a group.
+ * With refreshAfterWrite, older entries are reloaded in the background on their next read and served
+ * meanwhile, for at most maxStaleness after they were written (see RefreshAheadCacheManager);
+ * maxStaleness then replaces expireAfterWrite.
+ */
 @Configuration
 @EnableCaching
+@Slf4j
 public class CacheConfig {
 
+    private static final String PREFIX = "primavera.cache.";
+
+    @Value("${primavera.cache.refreshThreads:4}")
+    private int refreshThreads;
+
+    /**
+     * Default policies of the cache groups
+     */
+    private static final Map<String, CachePolicy> GROUP_DEFAULTS = Map.of(
+            // Project lists and counts: small and slow-changing
+            "projects", new CachePolicy(Duration.ofMinutes(30), null, Duration.ofMinutes(25), Duration.ofHours(2),
+                    500L, null),
+            // Per-project activity, assignment and relationship lists, weighed by size
+            "data", new CachePolicy(Duration.ofMinutes(10), null, Duration.ofMinutes(8), Duration.ofHours(1),
+                    null, DataSize.ofMegabytes(256)),
+            // Portfolio statistics derived from the data caches (longer duration)
+            "statistics", new CachePolicy(Duration.ofHours(1), null, null, null, 100L, null),
+            "default", new CachePolicy(Duration.ofMinutes(10), null, null, null, 100L, null));
+
+    private static final Map<String, String> CACHE_GROUPS = new LinkedHashMap<>();
+
+    static {
+        for (String name : List.of("allProjects", "projectsPage", "filteredProjects", "projectCount", "project",
+                "activityCount")) {
+            CACHE_GROUPS.put(name, "projects");
+        }
+        for (String name : List.of("projectActivities", "projectActivitiesPage", "filteredActivities", "allResources",
+                "activityResourceAssignments", "projectResourceAssignments", "projectRelationships")) {
+            CACHE_GROUPS.put(name, "data");
+        }
+        for (String name : List.of("projectStatusStats", "activityTypeStats", "activityStatusStats",
+                "overdueProjects", "upcomingProjects", "projectTimelineStats", "topProjectsStats",
+                "projectDurationStats", "projectSummaryStats", "overallocatedResources",
+                "resourceUtilizationByMonth", "resourceCostsByProject")) {
+            CACHE_GROUPS.put(name, "statistics");
+        }
+        CACHE_GROUPS.put("projectSchedules", "default");
+        CACHE_GROUPS.put("projectPaths", "default");
+    }
+
     /**
-     * Configure Caffeine cache manager with different cache specifications
+     * Configure Caffeine cache manager with the configured policy of every cache
      */
     @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
-
-        // Set default cache specification
-        cacheManager.setCaffeine(Caffeine.newBuilder()
-                .expireAfterWrite(10, TimeUnit.MINUTES)
-                .maximumSize(100));
-
-        // Set cache names to be created
-        cacheManager.setCacheNames(Arrays.asList(
-                "allProjects",
-                "projectsPage",
-                "filteredProjects",
-                "projectCount",
-                "project",
-                "projectActivities",
-                "projectActivitiesPage",
-                "filteredActivities",
-                "activityCount",
-                "projectStatusStats",
-                "activityTypeStats",
-                "activityStatusStats",
-                "overdueProjects",
-                "upcomingProjects",
-                "projectTimelineStats",
-                "topProjectsStats",
-                "projectDurationStats",
-                "projectSummaryStats",
-                "allResources",
-                "activityResourceAssignments",
-                "projectResourceAssignments",
-                "overallocatedResources",
-                "resourceUtilizationByMonth",
-                "resourceCostsByProject"
-        ));
+    public CacheManager cacheManager(Environment environment) {
+        Map<String, CachePolicy> policies = new LinkedHashMap<>();
+        Map<String, Duration> refreshIntervals = new HashMap<>();
+        CACHE_GROUPS.forEach((name, group) -> {
+            CachePolicy policy = resolvePolicy(environment, name, group);
+            policies.put(name, policy);
+            if (policy.refreshAfterWrite != null) {
+                refreshIntervals.put(name, policy.refreshAfterWrite);
+            }
+        });
+
+        RefreshAheadCacheManager cacheManager = new RefreshAheadCacheManager(refreshIntervals, refreshThreads);
+        RetainedSizeWeigher weigher = new RetainedSizeWeigher();
+
+        // Only the listed caches exist; each is then replaced by one built with its own policy
+        cacheManager.setCacheNames(CACHE_GROUPS.keySet());
+        policies.forEach((name, policy) -> {
+            log.info("Cache {} ({}): {}", name, CACHE_GROUPS.get(name), policy);
+            cacheManager.registerCustomCache(name, policy.toBuilder(weigher).build());
+        });
 
         return cacheManager;
     }
 
     /**
-     * Configure custom cache specifications for different caches
+     * Runs cache maintenance in the background, such as the startup warm-up and the sync of a restored
+     * snapshot: one task at a time, so they do not compete with each other for P6
      */
     @Bean
-    public Caffeine<Object, Object> projectsCaffeine() {
-        return Caffeine.newBuilder()
-                .expireAfterWrite(30, TimeUnit.MINUTES)
-                .maximumSize(500);
+    public ThreadPoolTaskExecutor cacheMaintenanceExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(4);
+        executor.setThreadNamePrefix("cache-maintenance-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    private static CachePolicy resolvePolicy(Environment environment, String name, String group) {
+        CachePolicy defaults = GROUP_DEFAULTS.get(group);
+        Duration expireAfterWrite = property(environment, name, group, "expireAfterWrite", Duration.class,
+                defaults.expireAfterWrite);
+        Duration expireAfterAccess = property(environment, name, group, "expireAfterAccess", Duration.class,
+                defaults.expireAfterAccess);
+        Duration refreshAfterWrite = property(environment, name, group, "refreshAfterWrite", Duration.class,
+                defaults.refreshAfterWrite);
+        Duration maxStaleness = property(environment, name, group, "maxStaleness", Duration.class,
+                defaults.maxStaleness);
+
+        // The size bound comes from the most specific level that sets one
+        Long maximumSize = defaults.maximumSize;
+        DataSize maximumWeight = defaults.maximumWeight;
+        for (String level : List.of(group, name)) {
+            Long size = environment.getProperty(PREFIX + level + ".maximumSize", Long.class);
+            DataSize weight = environment.getProperty(PREFIX + level + ".maximumWeight", DataSize.class);
+            if (size != null || weight != null) {
+                maximumSize = weight == null ? size : null;
+                maximumWeight = weight;
+            }
+        }
+        return new CachePolicy(expireAfterWrite, expireAfterAccess, refreshAfterWrite, maxStaleness,
+                maximumSize, maximumWeight);
+    }
+
+    private static <T> T property(Environment environment, String name, String group, String key,
+                                  Class<T> type, T defaultValue) {
+        T value = environment.getProperty(PREFIX + name + "." + key, type);
+        return value != null ? value : environment.getProperty(PREFIX + group + "." + key, type, defaultValue);
     }
 
     /**
-     * Configure custom cache specifications for statistics caches (longer duration)
+     * Expiry and size bound of a cache; null settings are not applied
      */
-    @Bean
-    public Caffeine<Object, Object> statisticsCaffeine() {
-        return Caffeine.newBuilder()
-                .expireAfterWrite(1, TimeUnit.HOURS)
-                .maximumSize(100);
+    private static final class CachePolicy {
+        final Duration expireAfterWrite;
+        final Duration expireAfterAccess;
+        final Duration refreshAfterWrite;
+        final Duration maxStaleness;
+        final Long maximumSize;
+        final DataSize maximumWeight;
+
+        CachePolicy(Duration expireAfterWrite, Duration expireAfterAccess, Duration refreshAfterWrite,
+                    Duration maxStaleness, Long maximumSize, DataSize maximumWeight) {
+            this.expireAfterWrite = expireAfterWrite;
+            this.expireAfterAccess = expireAfterAccess;
+            this.refreshAfterWrite = refreshAfterWrite;
+            this.maxStaleness = maxStaleness;
+            this.maximumSize = maximumSize;
+            this.maximumWeight = maximumWeight;
+        }
+
+        Caffeine<Object, Object> toBuilder(RetainedSizeWeigher weigher) {
+            Caffeine<Object, Object> builder = Caffeine.newBuilder();
+            // Refreshed entries live until the staleness limit; refreshing needs a write expiry to age them
+            Duration writeExpiry = refreshAfterWrite != null && maxStaleness != null ? maxStaleness : expireAfterWrite;
+            if (writeExpiry != null) {
+                builder.expireAfterWrite(writeExpiry);
+            }
+            if (expireAfterAccess != null) {
+                builder.expireAfterAccess(expireAfterAccess);
+            }
+            if (maximumWeight != null) {
+                builder.maximumWeight(maximumWeight.toBytes()).weigher(weigher);
+            } else if (maximumSize != null) {
+                builder.maximumSize(maximumSize);
+            }
+            return builder;
+        }
+
+        @Override
+        public String toString() {
+            return "expireAfterWrite=" + expireAfterWrite + ", expireAfterAccess=" + expireAfterAccess
+                    + (refreshAfterWrite != null
+                    ? ", refreshAfterWrite=" + refreshAfterWrite + ", maxStaleness=" + maxStaleness : "")
+                    + (maximumWeight != null ? ", maximumWeight=" + maximumWeight : ", maximumSize=" + maximumSize);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,125 @@
+package com.example.primaverap6reader.config;
+
+import com.example.primaverap6reader.service.P6Recording;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Recording mode of the P6 client: captures the records of every successful P6 response, for replay by
+ * P6ReplayServer. Responses are buffered in full to be recorded, so recording is meant for capture
+ * sessions, not for benchmarks. The recording is written when the application shuts down; an existing
+ * recording in the same directory is extended rather than replaced.
+ */
+@Slf4j
+public class P6RecordingInterceptor implements ClientHttpRequestInterceptor, DisposableBean {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final Path directory;
+    private final P6Recording recording;
+
+    public P6RecordingInterceptor(String directory) {
+        this.directory = Paths.get(directory);
+        P6Recording existing;
+        try {
+            existing = P6Recording.load(this.directory, objectMapper);
+        } catch (IOException e) {
+            log.warn("Could not read existing P6 recording in {}, starting a new one: {}", directory, e.getMessage());
+            existing = new P6Recording();
+        }
+        this.recording = existing;
+        log.info("Recording P6 responses to {} ({} records already recorded)", directory, recording.size());
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        ClientHttpResponse response = execution.execute(request, body);
+        String endpoint = P6Recording.endpointOf(request.getURI().getPath());
+        if (endpoint == null || !response.getStatusCode().is2xxSuccessful()) {
+            return response;
+        }
+
+        byte[] content = StreamUtils.copyToByteArray(response.getBody());
+        try {
+            recording.record(endpoint, objectMapper.readTree(content));
+        } catch (IOException e) {
+            log.warn("Could not record response of {}: {}", request.getURI(), e.getMessage());
+        }
+        return new BufferedResponse(response, content);
+    }
+
+    /**
+     * Write the recording now, e.g. after a capture session
+     */
+    public void save() throws IOException {
+        recording.save(directory, objectMapper);
+        log.info("Saved P6 recording with {} records to {}", recording.size(), directory);
+    }
+
+    @Override
+    public void destroy() {
+        try {
+            save();
+        } catch (IOException e) {
+            log.error("Could not save P6 recording to {}: {}", directory, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The intercepted response with its body read into memory
+     */
+    private static final class BufferedResponse implements ClientHttpResponse {
+        private final ClientHttpResponse response;
+        private final byte[] content;
+
+        BufferedResponse(ClientHttpResponse response, byte[] content) {
+            this.response = response;
+            this.content = content;
+        }
+
+        @Override
+        public HttpStatus getStatusCode() throws IOException {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public int getRawStatusCode() throws IOException {
+            return response.getRawStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return response.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return response.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public void close() {
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.primaverap6reader.config;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class PrimaveraClientConfig {
+
+    /**
+     * Pooled, keep-alive HTTP client shared by all P6 REST calls
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient p6HttpClient(
+            @Value("${primavera.api.http.maxConnections:32}") int maxConnections,
+            @Value("${primavera.api.http.connectTimeoutMs:10000}") int connectTimeoutMs,
+            @Value("${primavera.api.http.readTimeoutMs:120000}") int readTimeoutMs,
+            @Value("${primavera.api.http.keepAliveMs:30000}") long keepAliveMs) {
+
+        // All requests go to the same P6 host, so the per-route limit is the pool limit
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        connectionManager.setValidateAfterInactivity(2000);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setConnectionRequestTimeout(connectTimeoutMs)
+                .setSocketTimeout(readTimeoutMs)
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy((response, context) -> {
+                    // Honour the server's Keep-Alive header, otherwise keep idle connections for keepAliveMs
+                    long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE
+                            .getKeepAliveDuration(response, context);
+                    return serverKeepAlive > 0 ? serverKeepAlive : keepAliveMs;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAliveMs, TimeUnit.MILLISECONDS)
+                // Session cookies are handled explicitly by PrimaveraRestService
+                .disableCookieManagement()
+                .build();
+    }
+
+    /**
+     * Records P6 responses for offline replay, only when primavera.recording.enabled is true
+     */
+    @Bean
+    @ConditionalOnProperty(name = "primavera.recording.enabled", havingValue = "true")
+    public P6RecordingInterceptor p6RecordingInterceptor(
+            @Value("${primavera.recording.dir:p6-recordings}") String directory) {
+        return new P6RecordingInterceptor(directory);
+    }
+
+    /**
+     * RestTemplate backed by the pooled P6 HTTP client, recording its responses in recording mode
+     */
+    @Bean
+    public RestTemplate p6RestTemplate(CloseableHttpClient p6HttpClient,
+                                       ObjectProvider<P6RecordingInterceptor> recordingInterceptor) {
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(p6HttpClient));
+        recordingInterceptor.ifAvailable(restTemplate.getInterceptors()::add);
+        return restTemplate;
+    }
+
+    /**
+     * Bounded executor for P6 requests; its pool size caps the number of in-flight calls
+     */
+    @Bean
+    public ThreadPoolTaskExecutor p6RequestExecutor(
+            @Value("${primavera.api.maxConcurrentRequests:8}") int maxConcurrentRequests) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentRequests);
+        executor.setMaxPoolSize(maxConcurrentRequests);
+        executor.setThreadNamePrefix("p6-request-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
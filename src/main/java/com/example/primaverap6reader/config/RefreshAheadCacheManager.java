@@ -0,0 +1,175 @@
+package com.example.primaverap6reader.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caffeine cache manager whose caches can refresh entries ahead of their expiry.
+ * For a cache with a refresh interval, a read of an entry older than the interval returns the entry
+ * at once and reloads it in the background with the cached method (stale-while-revalidate). The entry
+ * keeps being served while the reload runs, and after a failed reload (P6 unreachable) until it
+ * expires: the cache's expireAfterWrite is the staleness limit.
+ * Reloading needs the method invocation, which Spring only hands to the cache for
+ * {@code @Cacheable(sync = true)} methods; entries of other callers are served until they expire.
+ * A reload that changes an entry is reported to the reload listener, so what was derived from the
+ * entry can be invalidated (see CacheInvalidationService).
+ */
+@Slf4j
+public class RefreshAheadCacheManager extends CaffeineCacheManager implements DisposableBean {
+
+    // Wait this long before retrying an entry whose reload failed
+    private static final long RETRY_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final Map<String, Duration> refreshIntervals;
+    private final ThreadPoolExecutor executor;
+    private volatile ReloadListener reloadListener;
+
+    /**
+     * Told about entries that a background reload replaced with a different value
+     */
+    public interface ReloadListener {
+        void reloaded(String cacheName, Object key);
+    }
+
+    /**
+     * @param refreshIntervals Refresh interval per cache name; caches without one only expire
+     * @param refreshThreads Threads reloading entries in the background
+     */
+    public RefreshAheadCacheManager(Map<String, Duration> refreshIntervals, int refreshThreads) {
+        this.refreshIntervals = refreshIntervals;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(1000), runnable -> {
+                    Thread thread = new Thread(runnable, "cache-refresh-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    protected org.springframework.cache.Cache adaptCaffeineCache(
+            String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+        Duration refreshInterval = refreshIntervals.get(name);
+        if (refreshInterval == null || cache.policy().expireAfterWrite().isEmpty()) {
+            return super.adaptCaffeineCache(name, cache);
+        }
+        return new RefreshAheadCache(name, cache, isAllowNullValues(), refreshInterval.toNanos());
+    }
+
+    public void setReloadListener(ReloadListener reloadListener) {
+        this.reloadListener = reloadListener;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A Caffeine cache that serves entries past their refresh interval while reloading them
+     */
+    private final class RefreshAheadCache extends CaffeineCache {
+        private final long refreshNanos;
+        private final Set<Object> reloading = ConcurrentHashMap.newKeySet();
+        private final Map<Object, Long> failedAt = new ConcurrentHashMap<>();
+        // Bumped by evictions, so a reload started before one does not write back older data
+        private final AtomicLong evictions = new AtomicLong();
+
+        RefreshAheadCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache,
+                          boolean allowNullValues, long refreshNanos) {
+            super(name, cache, allowNullValues);
+            this.refreshNanos = refreshNanos;
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            ValueWrapper cached = get(key);
+            if (cached == null) {
+                return super.get(key, valueLoader);
+            }
+
+            long age = getNativeCache().policy().expireAfterWrite()
+                    .map(expiration -> expiration.ageOf(key, TimeUnit.NANOSECONDS).orElse(0))
+                    .orElse(0L);
+            if (age >= refreshNanos) {
+                reload(key, valueLoader);
+            }
+            @SuppressWarnings("unchecked")
+            T value = (T) cached.get();
+            return value;
+        }
+
+        @Override
+        public void evict(Object key) {
+            evictions.incrementAndGet();
+            super.evict(key);
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            evictions.incrementAndGet();
+            return super.evictIfPresent(key);
+        }
+
+        @Override
+        public void clear() {
+            evictions.incrementAndGet();
+            super.clear();
+        }
+
+        @Override
+        public boolean invalidate() {
+            evictions.incrementAndGet();
+            return super.invalidate();
+        }
+
+        private <T> void reload(Object key, Callable<T> valueLoader) {
+            Long failed = failedAt.get(key);
+            if (failed != null && System.nanoTime() - failed < RETRY_NANOS) {
+                return;
+            }
+            if (!reloading.add(key)) {
+                return;
+            }
+
+            long evictionsAtStart = evictions.get();
+            try {
+                executor.execute(() -> {
+                    try {
+                        T value = valueLoader.call();
+                        boolean changed = false;
+                        if (evictions.get() == evictionsAtStart) {
+                            Object previous = getNativeCache().asMap().put(key, toStoreValue(value));
+                            changed = !Objects.equals(fromStoreValue(previous), value);
+                        }
+                        failedAt.remove(key);
+                        log.debug("Refreshed {} entry {}{}", getName(), key, changed ? " (changed)" : "");
+                        ReloadListener listener = reloadListener;
+                        if (changed && listener != null) {
+                            listener.reloaded(getName(), key);
+                        }
+                    } catch (Exception e) {
+                        failedAt.put(key, System.nanoTime());
+                        log.warn("Background refresh of {} entry {} failed, serving the cached value: {}",
+                                getName(), key, e.getMessage());
+                    } finally {
+                        reloading.remove(key);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                reloading.remove(key);
+            }
+        }
+    }
+}
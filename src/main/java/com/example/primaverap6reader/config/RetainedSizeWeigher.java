@@ -0,0 +1,169 @@
+package com.example.primaverap6reader.config;
+
+import com.example.primaverap6reader.service.ActivityTable;
+import com.github.benmanes.caffeine.cache.Weigher;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Weighs cache entries by an estimate of their retained heap size in bytes, so caches holding
+ * lists of very different lengths can share a memory budget.
+ * The estimate assumes a 64-bit JVM with compressed references. Collections and arrays are weighed
+ * from a sample of their elements; beans by their fields, reflecting only into application classes.
+ * Objects shared between entries are counted in every entry that references them.
+ */
+public final class RetainedSizeWeigher implements Weigher<Object, Object> {
+
+    private static final int OBJECT_HEADER = 12;
+    private static final int REFERENCE = 4;
+    private static final int ARRAY_HEADER = 16;
+    // Elements weighed per collection; the rest are assumed to weigh the same on average
+    private static final int SAMPLE_SIZE = 64;
+    private static final int MAX_DEPTH = 6;
+
+    private final Map<Class<?>, Field[]> fieldsByClass = new ConcurrentHashMap<>();
+
+    @Override
+    public int weigh(Object key, Object value) {
+        long bytes = estimate(key, 0) + estimate(value, 0);
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, bytes));
+    }
+
+    /**
+     * Estimated retained size of an object graph (bytes)
+     */
+    public long estimate(Object value) {
+        return estimate(value, 0);
+    }
+
+    private long estimate(Object value, int depth) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof ActivityTable) {
+            return ((ActivityTable) value).estimatedBytes();
+        }
+        if (value instanceof String) {
+            // String object plus its Latin-1 byte array
+            return 24 + ARRAY_HEADER + align(((String) value).length());
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+            return 16;
+        }
+        if (value instanceof Date) {
+            return 24;
+        }
+        if (value instanceof Enum) {
+            return 0;
+        }
+        if (depth >= MAX_DEPTH) {
+            return OBJECT_HEADER + REFERENCE;
+        }
+        if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            return 40 + align((long) collection.size() * REFERENCE)
+                    + sampled(collection, collection.size(), depth);
+        }
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            // Table slot plus one node per entry
+            return 48 + (long) map.size() * (REFERENCE * 2 + 32)
+                    + sampled(map.keySet(), map.size(), depth)
+                    + sampled(map.values(), map.size(), depth);
+        }
+        Class<?> type = value.getClass();
+        if (type.isArray()) {
+            return arraySize(value, depth);
+        }
+        if (isJdkClass(type)) {
+            return OBJECT_HEADER + REFERENCE;
+        }
+
+        long bytes = OBJECT_HEADER;
+        for (Field field : fieldsOf(type)) {
+            Class<?> fieldType = field.getType();
+            if (fieldType.isPrimitive()) {
+                bytes += primitiveSize(fieldType);
+            } else {
+                bytes += REFERENCE;
+                try {
+                    bytes += estimate(field.get(value), depth + 1);
+                } catch (IllegalAccessException e) {
+                    // Count the reference only
+                }
+            }
+        }
+        return align(bytes);
+    }
+
+    private long sampled(Collection<?> elements, int size, int depth) {
+        if (size == 0) {
+            return 0;
+        }
+        int step = Math.max(1, size / SAMPLE_SIZE);
+        long sampledBytes = 0;
+        int sampled = 0;
+        int index = 0;
+        for (Object element : elements) {
+            if (index++ % step == 0) {
+                sampledBytes += estimate(element, depth + 1);
+                if (++sampled == SAMPLE_SIZE) {
+                    break;
+                }
+            }
+        }
+        return sampledBytes * size / sampled;
+    }
+
+    private long arraySize(Object array, int depth) {
+        Class<?> componentType = array.getClass().getComponentType();
+        int length = java.lang.reflect.Array.getLength(array);
+        if (componentType.isPrimitive()) {
+            return align(ARRAY_HEADER + (long) length * primitiveSize(componentType));
+        }
+        return align(ARRAY_HEADER + (long) length * REFERENCE)
+                + sampled(Arrays.asList((Object[]) array), length, depth);
+    }
+
+    private Field[] fieldsOf(Class<?> type) {
+        return fieldsByClass.computeIfAbsent(type, t -> {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = t; c != null && !isJdkClass(c); c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    // Synthetic fields are outer-instance references of inner classes, not owned data
+                    if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return fields.toArray(new Field[0]);
+        });
+    }
+
+    private static boolean isJdkClass(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.")
+                || name.startsWith("sun.");
+    }
+
+    private static int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.primaverap6reader.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables scheduled jobs such as the nightly portfolio simulation
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,13 +1,11 @@
 package com.example.primaverap6reader.config;
 
-import com.example.primaverap6reader.model.Activity;
+import com.example.primaverap6reader.service.ActivityTable;
 import com.example.primaverap6reader.service.PrimaveraRestService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.List;
-
 @Configuration
 public class ThymeleafConfig {
 
@@ -28,12 +26,14 @@ public class ThymeleafConfig {
 
         public String getActivityName(String activityObjectId, String projectObjectId) {
             try {
-                List<Activity> activities = primaveraService.getActivitiesForProject(projectObjectId);
-                return activities.stream()
-                        .filter(a -> activityObjectId.equals(a.getObjectId()))
-                        .map(Activity::getName)
-                        .findFirst()
-                        .orElse("Unknown Activity");
+                // Called once per row of a page: read the columns instead of materializing every activity
+                ActivityTable activities = ActivityTable.of(primaveraService.getActivitiesForProject(projectObjectId));
+                for (int row = 0; row < activities.size(); row++) {
+                    if (activityObjectId.equals(activities.objectId(row))) {
+                        return activities.name(row);
+                    }
+                }
+                return "Unknown Activity";
             } catch (Exception e) {
                 return "Unknown Activity";
             }
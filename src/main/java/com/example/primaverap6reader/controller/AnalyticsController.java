@@ -1,6 +1,9 @@
 package com.example.primaverap6reader.controller;
 
 import com.example.primaverap6reader.model.Activity;
+import com.example.primaverap6reader.model.ActivityDrag;
+import com.example.primaverap6reader.model.ActivitySchedule;
+import com.example.primaverap6reader.model.PathAnalysis;
 import com.example.primaverap6reader.model.Project;
 import com.example.primaverap6reader.service.*;
 import lombok.RequiredArgsConstructor;
@@ -10,6 +13,8 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 
 import java.util.*;
 
@@ -21,6 +26,7 @@ public class AnalyticsController {
 
     private final PrimaveraRestService primaveraService;
     private final CriticalPathService criticalPathService;
+    private final PathAnalysisService pathAnalysisService;
     private final EarnedValueService earnedValueService;
     private final ResourceAnalyticsService resourceAnalyticsService;
     private final ProjectHealthService projectHealthService;
@@ -77,6 +83,15 @@ public class AnalyticsController {
             Map<String, Double> activityFloat = criticalPathService.calculateActivityFloat(objectId);
             model.addAttribute("activityFloat", activityFloat);
 
+            // Get critical path drag and near-critical paths
+            PathAnalysis pathAnalysis = pathAnalysisService.analyzePaths(objectId, 5, 40);
+            model.addAttribute("pathAnalysis", pathAnalysis);
+            Map<String, Double> activityDrag = new HashMap<>();
+            for (ActivityDrag drag : pathAnalysis.getCriticalActivities()) {
+                activityDrag.put(drag.getActivityId(), drag.getDrag());
+            }
+            model.addAttribute("activityDrag", activityDrag);
+
             // Get EVM metrics
             Map<String, Double> evmMetrics = earnedValueService.calculateEVMMetrics(objectId);
             model.addAttribute("evmMetrics", evmMetrics);
@@ -93,6 +108,29 @@ public class AnalyticsController {
         }
     }
 
+    /**
+     * Critical path method dates and floats of every activity of a project
+     */
+    @GetMapping("/project/{objectId}/schedule")
+    @ResponseBody
+    public List<ActivitySchedule> getProjectSchedule(@PathVariable String objectId) {
+        return criticalPathService.getActivitySchedules(objectId);
+    }
+
+    /**
+     * Critical path drag and near-critical paths of a project
+     * @param limit Maximum number of paths
+     * @param floatThreshold List paths with at most this much total float (hours)
+     */
+    @GetMapping("/project/{objectId}/paths")
+    @ResponseBody
+    public PathAnalysis getProjectPaths(
+            @PathVariable String objectId,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "40") double floatThreshold) {
+        return pathAnalysisService.analyzePaths(objectId, limit, floatThreshold);
+    }
+
     /**
      * Resource analytics dashboard
      */
@@ -1,11 +1,13 @@
 package com.example.primaverap6reader.controller;
 
-import com.example.primaverap6reader.service.PrimaveraRestService;
+import com.example.primaverap6reader.service.CacheInvalidationService;
+import com.example.primaverap6reader.service.DeltaSyncService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
 @Controller
@@ -13,10 +15,13 @@ import org.springframework.web.bind.annotation.ResponseBody;
 @Slf4j
 public class CacheController {
 
-    private final PrimaveraRestService primaveraService;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final DeltaSyncService deltaSyncService;
 
     /**
      * Refresh cache method with multiple mappings to handle different page scenarios
+     * @param projectId Refresh only this project's data and what was derived from it (optional)
+     * @param full Discard the cached data instead of syncing the changes from P6
      * @param referer The page from which the refresh was initiated
      * @return Redirect path
      */
@@ -28,12 +33,21 @@ public class CacheController {
             "/projects/refresh",
             "/dashboard/refresh"
     })
-    public String refreshCache(@RequestHeader(value = "Referer", required = false) String referer) {
+    public String refreshCache(@RequestParam(value = "projectId", required = false) String projectId,
+                               @RequestParam(value = "full", defaultValue = "false") boolean full,
+                               @RequestHeader(value = "Referer", required = false) String referer) {
         try {
-            log.info("Refreshing cache from web UI. Referer: {}", referer);
+            log.info("Refreshing cache from web UI. Project: {}, Referer: {}", projectId, referer);
 
             // Perform cache refresh
-            primaveraService.refreshCache();
+            boolean singleProject = projectId != null && !projectId.isEmpty();
+            if (!full) {
+                deltaSyncService.refresh(singleProject ? projectId : null);
+            } else if (singleProject) {
+                cacheInvalidationService.refreshProject(projectId);
+            } else {
+                cacheInvalidationService.refreshAll();
+            }
 
             // Determine safe redirect path
             String redirectPath = determineRedirectPath(referer);
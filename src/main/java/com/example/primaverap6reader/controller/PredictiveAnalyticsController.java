@@ -1,18 +1,36 @@
 package com.example.primaverap6reader.controller;
 
+import com.example.primaverap6reader.model.PortfolioSimulationResult;
 import com.example.primaverap6reader.model.Project;
+import com.example.primaverap6reader.model.SamplingMode;
+import com.example.primaverap6reader.model.SimulationJobState;
+import com.example.primaverap6reader.model.SimulationJobStatus;
+import com.example.primaverap6reader.model.SimulationOptions;
 import com.example.primaverap6reader.model.SimulationResult;
 import com.example.primaverap6reader.service.MonteCarloSimulationService;
+import com.example.primaverap6reader.service.PortfolioSimulationService;
+import com.example.primaverap6reader.service.PortfolioSimulationStore;
 import com.example.primaverap6reader.service.PrimaveraRestService;
+import com.example.primaverap6reader.service.SimulationJobService;
+import com.example.primaverap6reader.service.SimulationSampleCodec;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletResponse;
 
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Controller for predictive analytics features
@@ -25,6 +43,9 @@ public class PredictiveAnalyticsController {
 
     private final PrimaveraRestService primaveraService;
     private final MonteCarloSimulationService simulationService;
+    private final SimulationJobService simulationJobService;
+    private final PortfolioSimulationService portfolioSimulationService;
+    private final PortfolioSimulationStore portfolioSimulationStore;
 
     /**
      * Display main predictive analytics dashboard
@@ -47,13 +68,20 @@ public class PredictiveAnalyticsController {
     }
 
     /**
-     * Display Schedule Risk Analysis page
+     * Display Schedule Risk Analysis page.
+     * Starts the simulation as a background job and renders at once; while the job runs, the page polls
+     * its progress and reloads itself with the job id to show the result.
+     * @param jobId Job whose result to show, as passed by the page once the job completed
      */
     @GetMapping("/schedule-risk/{projectId}")
     public String showScheduleRiskAnalysis(
             @PathVariable String projectId,
             @RequestParam(required = false, defaultValue = "1000") int iterations,
-            Model model) {
+            @RequestParam(required = false, defaultValue = "false") boolean adaptive,
+            @RequestParam(required = false, defaultValue = "RANDOM") SamplingMode samplingMode,
+            @RequestParam(required = false) String jobId,
+            Model model,
+            HttpServletResponse response) {
 
         try {
             log.info("Performing schedule risk analysis for project: {}", projectId);
@@ -65,15 +93,35 @@ public class PredictiveAnalyticsController {
             // Default confidence levels to calculate
             List<Integer> confidenceLevels = Arrays.asList(50, 80, 90, 95);
 
-            // Run Monte Carlo simulation
-            SimulationResult simulationResult =
-                    simulationService.performScheduleRiskAnalysis(projectId, iterations, confidenceLevels);
+            // Start the Monte Carlo simulation, unless the page already has a job
+            SimulationJobStatus job = jobId != null ? simulationJobService.getStatus(jobId) : null;
+            if (job == null) {
+                SimulationOptions options = new SimulationOptions();
+                options.setIterations(iterations);
+                options.setConfidenceLevels(confidenceLevels);
+                options.setAdaptive(adaptive);
+                options.setSamplingMode(samplingMode);
+                job = simulationJobService.submit(project.getObjectId(), options);
+            }
+            if (job.getState() == SimulationJobState.FAILED || job.getState() == SimulationJobState.CANCELLED) {
+                model.addAttribute("error", "Schedule risk analysis " + job.getState().name().toLowerCase()
+                        + (job.getError() != null ? ": " + job.getError() : ""));
+                return "error";
+            }
 
-            model.addAttribute("simulationResult", simulationResult);
+            // The page draws its charts from the histograms
+            SimulationResult simulationResult = simulationJobService.getResult(job.getJobId());
+            model.addAttribute("job", job);
+            model.addAttribute("simulationResult", simulationResult != null ? simulationResult.withoutSamples() : null);
             model.addAttribute("iterations", iterations);
             model.addAttribute("confidenceLevels", confidenceLevels);
 
             return "schedule-risk-analysis";
+        } catch (RejectedExecutionException e) {
+            log.warn("Simulation job queue is full, schedule risk analysis of project {} rejected", projectId);
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            model.addAttribute("error", "Too many simulations are running. Please try again in a few minutes.");
+            return "error";
         } catch (Exception e) {
             log.error("Error performing schedule risk analysis: {}", e.getMessage(), e);
             model.addAttribute("error", "Failed to perform schedule risk analysis: " + e.getMessage());
@@ -130,24 +178,150 @@ public class PredictiveAnalyticsController {
     }
 
     /**
-     * Run a Monte Carlo simulation and return the results via AJAX for chart updates
+     * Start a Monte Carlo simulation for AJAX callers; the same as POST /simulations/{projectId}.
+     * Poll /simulations/jobs/{jobId} for progress and fetch /simulations/jobs/{jobId}/result when done.
+     * @return 202 with the job status to poll, 200 if the result was already cached, 429 if the job queue is full
      */
     @PostMapping("/simulate/{projectId}")
     @ResponseBody
-    public SimulationResult runSimulation(
+    public ResponseEntity<SimulationJobStatus> runSimulation(
             @PathVariable String projectId,
-            @RequestParam(defaultValue = "1000") int iterations) {
+            SimulationOptions options) {
+        return submitSimulation(projectId, options);
+    }
+
+    /**
+     * Start a Monte Carlo simulation in the background
+     * @return 202 with the job status to poll, 200 if the result was already cached, 429 if the job queue is full
+     */
+    @PostMapping("/simulations/{projectId}")
+    @ResponseBody
+    public ResponseEntity<SimulationJobStatus> submitSimulation(
+            @PathVariable String projectId,
+            SimulationOptions options) {
 
         try {
-            log.info("Running Monte Carlo simulation for project: {} with {} iterations", projectId, iterations);
+            log.info("Submitting Monte Carlo simulation job for project: {} with {} iterations",
+                    projectId, options.getIterations());
 
-            List<Integer> confidenceLevels = Arrays.asList(50, 80, 90, 95);
-            return simulationService.performScheduleRiskAnalysis(projectId, iterations, confidenceLevels);
+            SimulationJobStatus status = simulationJobService.submit(projectId, options);
+            return ResponseEntity
+                    .status(status.getState() == SimulationJobState.COMPLETED ? HttpStatus.OK : HttpStatus.ACCEPTED)
+                    .body(status);
 
-        } catch (Exception e) {
-            log.error("Error running simulation: {}", e.getMessage(), e);
-            throw new RuntimeException("Error running simulation", e);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+    }
+
+    /**
+     * Progress of a simulation job
+     */
+    @GetMapping("/simulations/jobs/{jobId}")
+    @ResponseBody
+    public ResponseEntity<SimulationJobStatus> getSimulationJob(@PathVariable String jobId) {
+        SimulationJobStatus status = simulationJobService.getStatus(jobId);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Result of a completed simulation job
+     * @param includeSamples Include the raw samples instead of histograms only
+     * @return 404 for unknown jobs, 409 while the job has not completed
+     */
+    @GetMapping("/simulations/jobs/{jobId}/result")
+    @ResponseBody
+    public ResponseEntity<SimulationResult> getSimulationJobResult(
+            @PathVariable String jobId,
+            @RequestParam(required = false, defaultValue = "false") boolean includeSamples) {
+        if (simulationJobService.getStatus(jobId) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        SimulationResult result = simulationJobService.getResult(jobId);
+        if (result == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         }
+        return ResponseEntity.ok(includeSamples ? result : result.withoutSamples());
+    }
+
+    /**
+     * Download the raw samples of a completed simulation job as a gzip-compressed binary file
+     * (layout in SimulationSampleCodec)
+     * @return 404 for unknown jobs, 409 while the job has not completed or if it only kept sketches
+     */
+    @GetMapping("/simulations/jobs/{jobId}/samples")
+    public ResponseEntity<StreamingResponseBody> downloadSimulationSamples(@PathVariable String jobId) {
+        if (simulationJobService.getStatus(jobId) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        SimulationResult result = simulationJobService.getResult(jobId);
+        if (result == null || result.getSimulatedCompletionDates() == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/gzip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"simulation-" + result.getProjectId() + "-" + jobId + ".bin.gz\"")
+                .body(out -> SimulationSampleCodec.write(
+                        result.getSimulatedCompletionDates(), result.getSimulatedTotalCosts(), out));
+    }
+
+    /**
+     * Cancel a simulation job
+     */
+    @DeleteMapping("/simulations/jobs/{jobId}")
+    @ResponseBody
+    public ResponseEntity<SimulationJobStatus> cancelSimulationJob(@PathVariable String jobId) {
+        SimulationJobStatus status = simulationJobService.cancel(jobId);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Start a Monte Carlo simulation of all projects in the background; the result is stored for
+     * /portfolio/latest
+     * @param iterations Iterations per project; defaults to primavera.simulation.portfolio.iterations
+     * @return 202 with the run's progress, 409 if a portfolio simulation is already running
+     */
+    @PostMapping("/portfolio/simulate")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> simulatePortfolio(
+            @RequestParam(required = false) Integer iterations,
+            @RequestParam(required = false) Long seed) {
+        log.info("Starting portfolio Monte Carlo simulation");
+        boolean started = portfolioSimulationService.start(iterations, seed);
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT).body(portfolioStatus());
+    }
+
+    /**
+     * Progress of the running or last portfolio simulation
+     */
+    @GetMapping("/portfolio/status")
+    @ResponseBody
+    public Map<String, Object> getPortfolioStatus() {
+        return portfolioStatus();
+    }
+
+    /**
+     * Stored result of the last completed portfolio simulation
+     * @return 404 if no run has completed yet
+     */
+    @GetMapping("/portfolio/latest")
+    @ResponseBody
+    public ResponseEntity<PortfolioSimulationResult> getLatestPortfolioSimulation() {
+        PortfolioSimulationResult result = portfolioSimulationStore.getLatest();
+        return result != null ? ResponseEntity.ok(result) : ResponseEntity.notFound().build();
+    }
+
+    private Map<String, Object> portfolioStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", portfolioSimulationService.isRunning());
+        status.put("completedProjects", portfolioSimulationService.getCompletedProjects());
+        status.put("totalProjects", portfolioSimulationService.getTotalProjects());
+        PortfolioSimulationResult latest = portfolioSimulationStore.getLatest();
+        status.put("latestRunId", latest != null ? latest.getRunId() : null);
+        status.put("latestFinishedAt", latest != null ? latest.getFinishedAt() : null);
+        return status;
     }
 
     /**
@@ -3,6 +3,8 @@ package com.example.primaverap6reader.controller;
 import com.example.primaverap6reader.model.Activity;
 import com.example.primaverap6reader.model.Project;
 import com.example.primaverap6reader.model.ResourceAssignment;
+import com.example.primaverap6reader.service.ActivityTable;
+import com.example.primaverap6reader.service.DeltaSyncService;
 import com.example.primaverap6reader.service.PrimaveraRestService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -24,6 +26,7 @@ import java.util.stream.Collectors;
 public class ProjectController {
 
     private final PrimaveraRestService primaveraService;
+    private final DeltaSyncService deltaSyncService;
 
     /**
      * Project list page with pagination, filtering, and sorting
@@ -177,13 +180,14 @@ public class ProjectController {
     }
 
     /**
-     * Refresh cache and redirect back
+     * Refresh cache and redirect back; with a projectId, only that project's data
      */
     @PostMapping({"/cache/refresh", "/projects/cache/refresh"})
-    public String refreshCache(@RequestHeader(value = "Referer", required = false) String referer) {
+    public String refreshCache(@RequestParam(value = "projectId", required = false) String projectId,
+                               @RequestHeader(value = "Referer", required = false) String referer) {
         try {
-            log.info("Refreshing cache from web UI");
-            primaveraService.refreshCache();
+            log.info("Refreshing cache from web UI. Project: {}", projectId);
+            deltaSyncService.refresh(projectId != null && !projectId.isEmpty() ? projectId : null);
 
             // Redirect back to the previous page or home
             return "redirect:" + (referer != null ? referer : "/projects");
@@ -209,11 +213,16 @@ public class ProjectController {
             Project project = primaveraService.getProjectById(projectId);
 
             // Find the activity
-            List<Activity> activities = primaveraService.getActivitiesForProject(projectId);
-            Activity activity = activities.stream()
-                    .filter(a -> activityId.equals(a.getObjectId()))
-                    .findFirst()
-                    .orElseThrow(() -> new RuntimeException("Activity not found"));
+            ActivityTable activities = ActivityTable.of(primaveraService.getActivitiesForProject(projectId));
+            Activity activity = null;
+            for (int row = 0; row < activities.size() && activity == null; row++) {
+                if (activityId.equals(activities.objectId(row))) {
+                    activity = activities.get(row);
+                }
+            }
+            if (activity == null) {
+                throw new RuntimeException("Activity not found");
+            }
 
             // Get resource assignments for the activity
             List<ResourceAssignment> resourceAssignments = primaveraService.getResourceAssignmentsForActivity(activityId);
@@ -47,6 +47,9 @@ public class Activity {
     @JsonProperty("WBSName")
     private String wbsName;
 
+    @JsonProperty("LastUpdateDate")
+    private Date lastUpdateDate;
+
     /**
      * Calculate duration in hours
      * @return Duration in hours
@@ -0,0 +1,16 @@
+package com.example.primaverap6reader.model;
+
+import lombok.Data;
+
+/**
+ * Critical path drag of one critical activity
+ */
+@Data
+public class ActivityDrag {
+
+    private String activityObjectId;
+    private String activityId;
+    private String activityName;
+    private double duration; // In hours
+    private double drag; // Hours the project would finish earlier if the activity took no time
+}
@@ -0,0 +1,17 @@
+package com.example.primaverap6reader.model;
+
+import lombok.Data;
+
+/**
+ * Risk measures of one activity, collected during a Monte Carlo simulation
+ */
+@Data
+public class ActivityRisk {
+
+    private String activityObjectId;
+    private String activityId;
+    private String activityName;
+    private double criticalityIndex; // Share of iterations with the activity on the critical path (0-1)
+    private double durationCorrelation; // Correlation of its duration with the project duration (-1 to 1)
+    private double scheduleSensitivity; // Criticality index x activity duration std dev / project duration std dev
+}
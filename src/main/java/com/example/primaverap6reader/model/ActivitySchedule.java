@@ -0,0 +1,22 @@
+package com.example.primaverap6reader.model;
+
+import lombok.Data;
+
+/**
+ * Critical path method dates and floats of one activity, in hours from the project start
+ */
+@Data
+public class ActivitySchedule {
+
+    private String activityObjectId;
+    private String activityId;
+    private String activityName;
+    private double duration;
+    private double earlyStart;
+    private double earlyFinish;
+    private double lateStart;
+    private double lateFinish;
+    private double totalFloat; // Slip possible without delaying the project
+    private double freeFloat; // Slip possible without delaying any successor
+    private boolean critical; // No total float
+}
@@ -0,0 +1,18 @@
+package com.example.primaverap6reader.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Critical path drag and near-critical paths of a project
+ */
+@Data
+public class PathAnalysis {
+
+    private String projectId;
+    private double projectDuration; // In hours
+    private double floatThreshold; // Paths with at most this much float are listed
+    private List<ActivityDrag> criticalActivities; // Largest drag first
+    private List<SchedulePath> paths; // Longest first
+}
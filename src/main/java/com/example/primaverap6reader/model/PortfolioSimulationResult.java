@@ -0,0 +1,28 @@
+package com.example.primaverap6reader.model;
+
+import lombok.Data;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a Monte Carlo simulation of every project, with the distribution of the portfolio's total cost
+ */
+@Data
+public class PortfolioSimulationResult {
+
+    private String runId;
+    private Date startedAt;
+    private Date finishedAt;
+    private int iterations;
+    private long seed;
+    private List<Integer> confidenceLevels;
+    private int projectCount;
+    private int failedProjectCount;
+    private List<ProjectSimulationSummary> projects;
+    private double meanPortfolioCost;
+    private double portfolioCostStandardDeviation;
+    private Map<Integer, Double> portfolioCostConfidenceResults;
+    private SimulationHistogram portfolioCostHistogram;
+}
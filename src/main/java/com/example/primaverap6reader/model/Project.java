@@ -33,4 +33,7 @@ public class Project {
 
     @JsonProperty("Description")
     private String description;
+
+    @JsonProperty("LastUpdateDate")
+    private Date lastUpdateDate;
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.example.primaverap6reader.model;
+
+import lombok.Data;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * One project's outcome within a portfolio simulation run
+ */
+@Data
+public class ProjectSimulationSummary {
+
+    private String projectId;
+    private String projectName;
+    private String dataVersion; // Version of the project data the run simulated
+    private long seed;
+    private Date meanCompletionDate;
+    private double dateStandardDeviation; // In days
+    private Map<Integer, Date> dateConfidenceResults;
+    private double meanTotalCost;
+    private double costStandardDeviation;
+    private Map<Integer, Double> costConfidenceResults;
+    private String error; // Why the project could not be simulated; the other fields are then empty
+}
@@ -0,0 +1,34 @@
+package com.example.primaverap6reader.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+/**
+ * Logic link between two activities
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class Relationship {
+
+    @JsonProperty("ObjectId")
+    private String objectId;
+
+    @JsonProperty("PredecessorActivityObjectId")
+    private String predecessorActivityObjectId;
+
+    @JsonProperty("SuccessorActivityObjectId")
+    private String successorActivityObjectId;
+
+    @JsonProperty("PredecessorProjectObjectId")
+    private String predecessorProjectObjectId;
+
+    @JsonProperty("SuccessorProjectObjectId")
+    private String successorProjectObjectId;
+
+    @JsonProperty("Type")
+    private String type; // "Finish to Start", "Start to Start", "Finish to Finish" or "Start to Finish"
+
+    @JsonProperty("Lag")
+    private Double lag; // In hours
+}
@@ -19,6 +19,9 @@ public class ResourceAssignment {
     @JsonProperty("ActivityObjectId")
     private String activityObjectId;
 
+    @JsonProperty("ProjectObjectId")
+    private String projectObjectId;
+
     @JsonProperty("ResourceId")
     private String resourceId;
 
@@ -57,4 +60,7 @@ public class ResourceAssignment {
 
     @JsonProperty("ActualFinishDate")
     private Date actualFinishDate;
+
+    @JsonProperty("LastUpdateDate")
+    private Date lastUpdateDate;
 }
\ No newline at end of file
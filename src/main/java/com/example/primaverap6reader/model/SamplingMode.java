@@ -0,0 +1,13 @@
+package com.example.primaverap6reader.model;
+
+/**
+ * How the Monte Carlo engine draws the uniform numbers behind each sampled duration
+ */
+public enum SamplingMode {
+    /** Independent pseudo-random draws */
+    RANDOM,
+    /** Latin hypercube: every activity's distribution is stratified across the iterations */
+    LATIN_HYPERCUBE,
+    /** Scrambled, randomly shifted Halton low-discrepancy sequence */
+    HALTON
+}
@@ -0,0 +1,17 @@
+package com.example.primaverap6reader.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One path through a project's activity network
+ */
+@Data
+public class SchedulePath {
+
+    private double length; // Finish of the path's last activity, in hours from the project start
+    private double totalFloat; // Project duration minus the path's length; 0 for critical paths
+    private List<String> activityObjectIds; // In schedule order
+    private List<String> activityIds;
+}
@@ -0,0 +1,15 @@
+package com.example.primaverap6reader.model;
+
+import lombok.Data;
+
+/**
+ * Binned distribution of a simulated quantity: equal-width bins between the smallest and
+ * largest outcome. Bin i covers [binEdges[i], binEdges[i + 1]); the last bin also includes its upper edge.
+ */
+@Data
+public class SimulationHistogram {
+
+    private double[] binEdges; // One more edge than bins; completion dates are epoch millis
+    private long[] counts; // Iterations per bin
+    private double[] cumulative; // Share of iterations up to each bin's upper edge (the CDF), ending at 1
+}
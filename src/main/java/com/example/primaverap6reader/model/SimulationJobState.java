@@ -0,0 +1,21 @@
+package com.example.primaverap6reader.model;
+
+/**
+ * Lifecycle of an asynchronous simulation job
+ */
+public enum SimulationJobState {
+    /** Waiting for a free simulation worker */
+    QUEUED,
+    /** Loading project data or simulating */
+    RUNNING,
+    /** Finished; the result is available */
+    COMPLETED,
+    /** Stopped on request before finishing */
+    CANCELLED,
+    /** Stopped by an error */
+    FAILED;
+
+    public boolean isFinished() {
+        return this != QUEUED && this != RUNNING;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.primaverap6reader.model;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * Snapshot of an asynchronous simulation job, polled by the browser
+ */
+@Data
+public class SimulationJobStatus {
+
+    private String jobId;
+    private String projectId;
+    private SimulationJobState state;
+    private int completedIterations;
+    private int totalIterations; // Maximum for adaptive runs, which may finish earlier
+    private boolean cached; // Result was served from the result cache without simulating
+    private Date submittedAt;
+    private Date startedAt;
+    private Date finishedAt;
+    private String error;
+
+    /**
+     * Completed share of the iterations, in percent
+     */
+    public double getProgress() {
+        if (state == SimulationJobState.COMPLETED) {
+            return 100;
+        }
+        return totalIterations > 0 ? 100.0 * completedIterations / totalIterations : 0;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.primaverap6reader.model;
+
+import lombok.Data;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Options of a Monte Carlo simulation run
+ */
+@Data
+public class SimulationOptions {
+
+    private int iterations = 1000; // Maximum number of iterations in adaptive mode
+    private List<Integer> confidenceLevels = Arrays.asList(50, 80, 90, 95);
+    private Long seed; // Same seed reproduces the same result; null picks a random seed
+    private int parallelism; // Number of worker threads; 0 uses all configured workers
+    private boolean keepSamples = true; // Keep every simulated outcome for exact percentiles instead of sketches
+    private boolean includeSamples; // Return the raw outcomes in the JSON response, not just the histograms
+    private int histogramBins = 20;
+    private boolean analyzeActivities = true; // Collect criticality indexes and duration sensitivities
+    private int rankedActivities = 10; // Activities listed in each criticality and sensitivity ranking
+    private boolean adaptive; // Stop early once the confidence percentiles are stable
+    private SamplingMode samplingMode = SamplingMode.RANDOM;
+}
@@ -1,5 +1,6 @@
 package com.example.primaverap6reader.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
 import java.util.Date;
@@ -15,19 +16,54 @@ public class SimulationResult {
     // Basic project info
     private String projectId;
     private String projectName;
-    private int iterations;
+    private int iterations; // Iterations actually run
+    private int requestedIterations;
+    private boolean converged; // Adaptive run stopped early with stable percentiles
+    private long seed; // Root seed; rerunning with it reproduces the result
 
     // Schedule simulation results
     private Date meanCompletionDate;
     private Map<Integer, Date> dateConfidenceResults; // Maps confidence levels to dates
-    private List<Date> simulatedCompletionDates; // All simulated completion dates
+    private SimulationHistogram completionDateHistogram;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private long[] simulatedCompletionDates; // Sorted simulated completion dates (epoch millis), null when sketched
 
     // Cost simulation results
     private double meanTotalCost;
     private Map<Integer, Double> costConfidenceResults; // Maps confidence levels to costs
-    private List<Double> simulatedTotalCosts; // All simulated costs
+    private SimulationHistogram totalCostHistogram;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private double[] simulatedTotalCosts; // Sorted simulated costs, null when sketched
 
     // Distribution properties
-    private double dateStandardDeviation;
+    private double dateStandardDeviation; // In days
     private double costStandardDeviation;
+
+    // Activity risk drivers, null unless activities were analyzed
+    private List<ActivityRisk> criticalActivities; // Highest criticality index first
+    private List<ActivityRisk> sensitiveActivities; // Tornado order: largest absolute duration correlation first
+
+    /**
+     * Copy of this result without the raw samples, for compact responses
+     */
+    public SimulationResult withoutSamples() {
+        SimulationResult copy = new SimulationResult();
+        copy.setProjectId(projectId);
+        copy.setProjectName(projectName);
+        copy.setIterations(iterations);
+        copy.setRequestedIterations(requestedIterations);
+        copy.setConverged(converged);
+        copy.setSeed(seed);
+        copy.setMeanCompletionDate(meanCompletionDate);
+        copy.setDateConfidenceResults(dateConfidenceResults);
+        copy.setCompletionDateHistogram(completionDateHistogram);
+        copy.setMeanTotalCost(meanTotalCost);
+        copy.setCostConfidenceResults(costConfidenceResults);
+        copy.setTotalCostHistogram(totalCostHistogram);
+        copy.setDateStandardDeviation(dateStandardDeviation);
+        copy.setCostStandardDeviation(costStandardDeviation);
+        copy.setCriticalActivities(criticalActivities);
+        copy.setSensitiveActivities(sensitiveActivities);
+        return copy;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+package com.example.primaverap6reader.service;
+
+/**
+ * Per-activity risk statistics accumulated while simulating: how often each network node lies on
+ * the critical path, and the sums needed for the correlation between each stochastic activity's
+ * sampled duration and the project duration.
+ * One instance is filled per chunk by a single worker, so no locking is needed; chunk instances are
+ * merged in chunk order. Sums are kept per network node so that each iteration is one sequential
+ * sweep; durations are centred on their planned values, which keeps the sums small and the variance
+ * formulas free of cancellation.
+ */
+public final class ActivityStatistics {
+
+    private final SimulationModel model;
+    private final double projectCentre;
+    private final double[] plannedDuration;
+    private final long[] criticalCount;
+    private final double[] sumX;
+    private final double[] sumXX;
+    private final double[] sumXY;
+    private long count;
+    private double sumY;
+    private double sumYY;
+
+    /**
+     * @param model Simulation model
+     * @param projectCentre Planned project duration (hours), the centre of the project durations
+     */
+    ActivityStatistics(SimulationModel model, double projectCentre) {
+        this.model = model;
+        this.projectCentre = projectCentre;
+        int nodes = model.network().size();
+        this.plannedDuration = new double[nodes];
+        model.resetDurations(plannedDuration);
+        this.criticalCount = new long[nodes];
+        this.sumX = new double[nodes];
+        this.sumXX = new double[nodes];
+        this.sumXY = new double[nodes];
+    }
+
+    /**
+     * Record one iteration
+     * @param duration Per-node durations of the iteration
+     * @param earlyFinish Early finishes from the iteration's forward pass
+     * @param projectDuration Project duration of the iteration (hours)
+     */
+    void add(double[] duration, double[] earlyFinish, double projectDuration) {
+        model.network().countCriticalPath(duration, earlyFinish, projectDuration, criticalCount);
+
+        double y = projectDuration - projectCentre;
+        count++;
+        sumY += y;
+        sumYY += y * y;
+
+        for (int v = 0; v < sumX.length; v++) {
+            double x = duration[v] - plannedDuration[v];
+            sumX[v] += x;
+            sumXX[v] += x * x;
+            sumXY[v] += x * y;
+        }
+    }
+
+    /**
+     * Fold another chunk's statistics into this one
+     */
+    void merge(ActivityStatistics other) {
+        for (int v = 0; v < criticalCount.length; v++) {
+            criticalCount[v] += other.criticalCount[v];
+            sumX[v] += other.sumX[v];
+            sumXX[v] += other.sumXX[v];
+            sumXY[v] += other.sumXY[v];
+        }
+        count += other.count;
+        sumY += other.sumY;
+        sumYY += other.sumYY;
+    }
+
+    /**
+     * Share of iterations in which a network node was on the critical path
+     */
+    public double criticalityIndex(int node) {
+        return count > 0 ? (double) criticalCount[node] / count : 0;
+    }
+
+    /**
+     * Pearson correlation between a stochastic activity's duration and the project duration
+     * @param i Stochastic activity index
+     */
+    public double durationCorrelation(int i) {
+        int v = model.stochasticNode(i);
+        double varianceX = variance(sumX[v], sumXX[v]);
+        double varianceY = variance(sumY, sumYY);
+        if (varianceX <= 0 || varianceY <= 0) {
+            return 0;
+        }
+        double covariance = (sumXY[v] - sumX[v] * sumY / count) / count;
+        return covariance / Math.sqrt(varianceX * varianceY);
+    }
+
+    /**
+     * Schedule sensitivity index: criticality index times the ratio of the activity's duration
+     * standard deviation to the project's
+     * @param i Stochastic activity index
+     */
+    public double scheduleSensitivity(int i) {
+        double varianceY = variance(sumY, sumYY);
+        if (varianceY <= 0) {
+            return 0;
+        }
+        int v = model.stochasticNode(i);
+        return criticalityIndex(v) * Math.sqrt(variance(sumX[v], sumXX[v]) / varianceY);
+    }
+
+    private double variance(double sum, double sumOfSquares) {
+        if (count == 0) {
+            return 0;
+        }
+        double mean = sum / count;
+        return Math.max(0, sumOfSquares / count - mean * mean);
+    }
+}
@@ -0,0 +1,450 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.Activity;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Columnar, read-only store of a project's activities, cached in place of a list of Activity beans.
+ * Columns with few distinct values (status, type, WBS, project) are dictionary-encoded into int codes,
+ * dates are epoch milliseconds and durations primitive doubles, so a row costs a few dozen bytes
+ * instead of a bean, two Dates and a dozen Strings.
+ * The table is a List&lt;Activity&gt;: get(row) materializes a new bean, so existing callers keep working.
+ * Hot scans should read the columns directly instead (see ActivityTable.of).
+ */
+public final class ActivityTable extends AbstractList<Activity> implements RandomAccess {
+
+    /**
+     * Date column value of a missing date
+     */
+    public static final long NO_DATE = Long.MIN_VALUE;
+
+    private static final ActivityTable EMPTY = new Builder(0).build();
+
+    private final int size;
+    private final String[] objectId;
+    private final String[] id;
+    private final String[] name;
+    private final DictionaryColumn projectId;
+    private final DictionaryColumn projectObjectId;
+    private final DictionaryColumn type;
+    private final DictionaryColumn status;
+    private final DictionaryColumn wbsObjectId;
+    private final DictionaryColumn wbsName;
+    private final long[] startDate;
+    private final long[] finishDate;
+    private final long[] lastUpdateDate;
+    // NaN where the activity has no planned duration
+    private final double[] plannedDuration;
+
+    private ActivityTable(Builder builder) {
+        this.size = builder.size;
+        this.objectId = Arrays.copyOf(builder.objectId, size);
+        this.id = Arrays.copyOf(builder.id, size);
+        this.name = Arrays.copyOf(builder.name, size);
+        this.projectId = builder.projectId.build(size);
+        this.projectObjectId = builder.projectObjectId.build(size);
+        this.type = builder.type.build(size);
+        this.status = builder.status.build(size);
+        this.wbsObjectId = builder.wbsObjectId.build(size);
+        this.wbsName = builder.wbsName.build(size);
+        this.startDate = Arrays.copyOf(builder.startDate, size);
+        this.finishDate = Arrays.copyOf(builder.finishDate, size);
+        this.lastUpdateDate = Arrays.copyOf(builder.lastUpdateDate, size);
+        this.plannedDuration = Arrays.copyOf(builder.plannedDuration, size);
+    }
+
+    /**
+     * The columnar form of an activity list: the list itself if it already is a table
+     * (as the projectActivities cache returns), otherwise a table built from it
+     */
+    public static ActivityTable of(List<Activity> activities) {
+        if (activities instanceof ActivityTable) {
+            return (ActivityTable) activities;
+        }
+        Builder builder = new Builder(activities.size());
+        builder.addAll(activities);
+        return builder.build();
+    }
+
+    public static ActivityTable empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder() {
+        return new Builder(16);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Materialize a row as a new Activity bean
+     */
+    @Override
+    public Activity get(int row) {
+        Objects.checkIndex(row, size);
+        Activity activity = new Activity();
+        activity.setObjectId(objectId[row]);
+        activity.setId(id[row]);
+        activity.setName(name[row]);
+        activity.setProjectId(projectId.get(row));
+        activity.setProjectObjectId(projectObjectId.get(row));
+        activity.setType(type.get(row));
+        activity.setStatus(status.get(row));
+        activity.setWbsObjectId(wbsObjectId.get(row));
+        activity.setWbsName(wbsName.get(row));
+        activity.setStartDate(startDate[row] != NO_DATE ? new Date(startDate[row]) : null);
+        activity.setFinishDate(finishDate[row] != NO_DATE ? new Date(finishDate[row]) : null);
+        activity.setLastUpdateDate(lastUpdateDate[row] != NO_DATE ? new Date(lastUpdateDate[row]) : null);
+        activity.setPlannedDuration(Double.isNaN(plannedDuration[row]) ? null : plannedDuration[row]);
+        return activity;
+    }
+
+    public String objectId(int row) {
+        return objectId[row];
+    }
+
+    public String id(int row) {
+        return id[row];
+    }
+
+    public String name(int row) {
+        return name[row];
+    }
+
+    public DictionaryColumn type() {
+        return type;
+    }
+
+    public DictionaryColumn status() {
+        return status;
+    }
+
+    public DictionaryColumn wbsObjectId() {
+        return wbsObjectId;
+    }
+
+    public DictionaryColumn wbsName() {
+        return wbsName;
+    }
+
+    /**
+     * Start date in epoch milliseconds, or NO_DATE
+     */
+    public long startTime(int row) {
+        return startDate[row];
+    }
+
+    /**
+     * Finish date in epoch milliseconds, or NO_DATE
+     */
+    public long finishTime(int row) {
+        return finishDate[row];
+    }
+
+    /**
+     * When P6 last changed the activity, in epoch milliseconds, or NO_DATE
+     */
+    public long lastUpdateTime(int row) {
+        return lastUpdateDate[row];
+    }
+
+    /**
+     * Latest change of any activity in epoch milliseconds (the table's high-water mark),
+     * or NO_DATE if some activity has no update date
+     */
+    public long maxLastUpdateTime() {
+        long max = NO_DATE;
+        for (long time : lastUpdateDate) {
+            if (time == NO_DATE) {
+                return NO_DATE;
+            }
+            max = Math.max(max, time);
+        }
+        return max;
+    }
+
+    /**
+     * A table with rows changed, added and removed; this table is left as it is
+     * @param upserts Activities replacing the rows with the same ObjectId, or added after the last row
+     * @param retainedObjectIds Drop rows whose ObjectId is not in this set (null keeps all)
+     * @return The new table, or this table if nothing changed
+     */
+    public ActivityTable withChanges(Collection<Activity> upserts, Set<String> retainedObjectIds) {
+        Map<String, Activity> pending = new LinkedHashMap<>();
+        upserts.forEach(activity -> pending.put(activity.getObjectId(), activity));
+
+        Builder builder = new Builder(size + pending.size());
+        boolean changed = false;
+        for (int row = 0; row < size; row++) {
+            Activity upsert = pending.remove(objectId[row]);
+            if (upsert != null) {
+                builder.add(upsert);
+                changed |= !upsert.equals(get(row));
+            } else if (retainedObjectIds == null || retainedObjectIds.contains(objectId[row])) {
+                builder.addRow(this, row);
+            } else {
+                changed = true;
+            }
+        }
+        pending.values().forEach(builder::add);
+        return changed || !pending.isEmpty() ? builder.build() : this;
+    }
+
+    /**
+     * Duration in hours as Activity.getDurationHours computes it, or NaN where it has none
+     */
+    public double durationHours(int row) {
+        if (!Double.isNaN(plannedDuration[row])) {
+            return plannedDuration[row];
+        }
+        if (startDate[row] != NO_DATE && finishDate[row] != NO_DATE) {
+            return TimeUnit.MILLISECONDS.toHours(finishDate[row] - startDate[row]);
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Rough retained size of the table (bytes), counting each distinct String once
+     */
+    public long estimatedBytes() {
+        long bytes = 64 + (long) size * (3 * 4 + 3 * 8 + 8);
+        for (int row = 0; row < size; row++) {
+            bytes += stringBytes(objectId[row]) + stringBytes(id[row]) + stringBytes(name[row]);
+        }
+        for (DictionaryColumn column : List.of(projectId, projectObjectId, type, status, wbsObjectId, wbsName)) {
+            bytes += column.estimatedBytes();
+        }
+        return bytes;
+    }
+
+    private static long stringBytes(String value) {
+        // Header, hash and array reference, plus the Latin-1 byte array
+        return value != null ? 24 + 16 + value.length() : 0;
+    }
+
+    /**
+     * A dictionary-encoded String column: one int code per row and the distinct values by code.
+     * Null is a value like any other.
+     */
+    public static final class DictionaryColumn {
+        private final int[] codes;
+        private final String[] values;
+
+        private DictionaryColumn(int[] codes, String[] values) {
+            this.codes = codes;
+            this.values = values;
+        }
+
+        public String get(int row) {
+            return values[codes[row]];
+        }
+
+        public int code(int row) {
+            return codes[row];
+        }
+
+        /**
+         * Value of a code
+         */
+        public String value(int code) {
+            return values[code];
+        }
+
+        /**
+         * Number of distinct values
+         */
+        public int cardinality() {
+            return values.length;
+        }
+
+        /**
+         * Code of a value, or -1 if no row has it
+         */
+        public int codeOf(String value) {
+            for (int code = 0; code < values.length; code++) {
+                if (Objects.equals(values[code], value)) {
+                    return code;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Number of rows with each code
+         */
+        public int[] countByCode() {
+            int[] counts = new int[values.length];
+            for (int code : codes) {
+                counts[code]++;
+            }
+            return counts;
+        }
+
+        /**
+         * Number of rows with a value
+         */
+        public int count(String value) {
+            int target = codeOf(value);
+            if (target < 0) {
+                return 0;
+            }
+            int count = 0;
+            for (int code : codes) {
+                if (code == target) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        long estimatedBytes() {
+            long bytes = 32 + 16 + 4L * codes.length + 16 + 4L * values.length;
+            for (String value : values) {
+                bytes += stringBytes(value);
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Appends activities row by row, so a table can be built from fetched pages without
+     * keeping the beans of the whole project
+     */
+    public static final class Builder {
+        private int size;
+        private String[] objectId;
+        private String[] id;
+        private String[] name;
+        private final DictionaryBuilder projectId;
+        private final DictionaryBuilder projectObjectId;
+        private final DictionaryBuilder type;
+        private final DictionaryBuilder status;
+        private final DictionaryBuilder wbsObjectId;
+        private final DictionaryBuilder wbsName;
+        private long[] startDate;
+        private long[] finishDate;
+        private long[] lastUpdateDate;
+        private double[] plannedDuration;
+
+        private Builder(int capacity) {
+            objectId = new String[capacity];
+            id = new String[capacity];
+            name = new String[capacity];
+            projectId = new DictionaryBuilder(capacity);
+            projectObjectId = new DictionaryBuilder(capacity);
+            type = new DictionaryBuilder(capacity);
+            status = new DictionaryBuilder(capacity);
+            wbsObjectId = new DictionaryBuilder(capacity);
+            wbsName = new DictionaryBuilder(capacity);
+            startDate = new long[capacity];
+            finishDate = new long[capacity];
+            lastUpdateDate = new long[capacity];
+            plannedDuration = new double[capacity];
+        }
+
+        public Builder add(Activity activity) {
+            if (size == objectId.length) {
+                grow();
+            }
+            int row = size++;
+            objectId[row] = activity.getObjectId();
+            id[row] = activity.getId();
+            name[row] = activity.getName();
+            projectId.add(row, activity.getProjectId());
+            projectObjectId.add(row, activity.getProjectObjectId());
+            type.add(row, activity.getType());
+            status.add(row, activity.getStatus());
+            wbsObjectId.add(row, activity.getWbsObjectId());
+            wbsName.add(row, activity.getWbsName());
+            startDate[row] = activity.getStartDate() != null ? activity.getStartDate().getTime() : NO_DATE;
+            finishDate[row] = activity.getFinishDate() != null ? activity.getFinishDate().getTime() : NO_DATE;
+            lastUpdateDate[row] = activity.getLastUpdateDate() != null ? activity.getLastUpdateDate().getTime() : NO_DATE;
+            plannedDuration[row] = activity.getPlannedDuration() != null ? activity.getPlannedDuration() : Double.NaN;
+            return this;
+        }
+
+        /**
+         * Copy a row of another table without materializing it
+         */
+        public Builder addRow(ActivityTable table, int source) {
+            if (size == objectId.length) {
+                grow();
+            }
+            int row = size++;
+            objectId[row] = table.objectId[source];
+            id[row] = table.id[source];
+            name[row] = table.name[source];
+            projectId.add(row, table.projectId.get(source));
+            projectObjectId.add(row, table.projectObjectId.get(source));
+            type.add(row, table.type.get(source));
+            status.add(row, table.status.get(source));
+            wbsObjectId.add(row, table.wbsObjectId.get(source));
+            wbsName.add(row, table.wbsName.get(source));
+            startDate[row] = table.startDate[source];
+            finishDate[row] = table.finishDate[source];
+            lastUpdateDate[row] = table.lastUpdateDate[source];
+            plannedDuration[row] = table.plannedDuration[source];
+            return this;
+        }
+
+        public Builder addAll(Collection<? extends Activity> activities) {
+            activities.forEach(this::add);
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public ActivityTable build() {
+            return new ActivityTable(this);
+        }
+
+        private void grow() {
+            int capacity = Math.max(16, objectId.length * 2);
+            objectId = Arrays.copyOf(objectId, capacity);
+            id = Arrays.copyOf(id, capacity);
+            name = Arrays.copyOf(name, capacity);
+            for (DictionaryBuilder column : List.of(projectId, projectObjectId, type, status, wbsObjectId, wbsName)) {
+                column.grow(capacity);
+            }
+            startDate = Arrays.copyOf(startDate, capacity);
+            finishDate = Arrays.copyOf(finishDate, capacity);
+            lastUpdateDate = Arrays.copyOf(lastUpdateDate, capacity);
+            plannedDuration = Arrays.copyOf(plannedDuration, capacity);
+        }
+    }
+
+    private static final class DictionaryBuilder {
+        private int[] codes;
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        DictionaryBuilder(int capacity) {
+            codes = new int[capacity];
+        }
+
+        void add(int row, String value) {
+            Integer code = dictionary.get(value);
+            if (code == null) {
+                code = values.size();
+                dictionary.put(value, code);
+                values.add(value);
+            }
+            codes[row] = code;
+        }
+
+        void grow(int capacity) {
+            codes = Arrays.copyOf(codes, capacity);
+        }
+
+        DictionaryColumn build(int size) {
+            return new DictionaryColumn(Arrays.copyOf(codes, size), values.toArray(new String[0]));
+        }
+    }
+}
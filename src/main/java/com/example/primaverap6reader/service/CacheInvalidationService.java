@@ -0,0 +1,285 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.config.RefreshAheadCacheManager;
+import com.example.primaverap6reader.model.Activity;
+import com.example.primaverap6reader.model.Project;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Invalidates cached P6 data along the dependencies between caches.
+ * Invalidating an entry also invalidates what was derived from it: a project's activities the
+ * project's activity counts and pages and the portfolio activity statistics, its assignments the
+ * per-activity assignments and the resource analytics, and so on. Per-project entries are evicted by
+ * key; portfolio aggregates over all projects lose all their entries.
+ * Entries that a background refresh (see RefreshAheadCacheManager) reloads with changed data invalidate
+ * their dependents the same way.
+ * CPM schedules are not invalidated: they bring themselves up to date with reloaded data in place.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CacheInvalidationService {
+
+    /**
+     * Which entries of a dependent cache an invalidated project entry reaches
+     */
+    private enum Scope {
+        // The entry keyed by the project's ObjectId
+        PROJECT,
+        // Entries keyed by a list starting with the project's ObjectId (pages, filters)
+        PROJECT_PREFIX,
+        // Entries keyed by the ObjectIds of the project's activities
+        PROJECT_ACTIVITIES,
+        // Every entry
+        ALL
+    }
+
+    private static final class Dependency {
+        final String cacheName;
+        final Scope scope;
+
+        Dependency(String cacheName, Scope scope) {
+            this.cacheName = cacheName;
+            this.scope = scope;
+        }
+    }
+
+    private static final List<String> PORTFOLIO_PROJECT_STATISTICS = List.of(
+            "projectStatusStats", "overdueProjects", "upcomingProjects", "projectTimelineStats",
+            "projectSummaryStats", "topProjectsStats", "projectDurationStats");
+
+    private static final List<String> RESOURCE_STATISTICS = List.of(
+            "resourceUtilizationByMonth", "overallocatedResources", "resourceCostsByProject");
+
+    // Caches loaded from P6, with their per-project ones first
+    private static final List<String> PROJECT_DATA = List.of(
+            "project", "projectActivities", "projectResourceAssignments", "projectRelationships");
+    private static final List<String> PORTFOLIO_DATA = List.of("allProjects", "allResources");
+
+    private static final Map<String, List<Dependency>> DEPENDENTS = new HashMap<>();
+
+    static {
+        DEPENDENTS.put("projectActivities", List.of(
+                new Dependency("activityCount", Scope.PROJECT),
+                new Dependency("projectActivitiesPage", Scope.PROJECT_PREFIX),
+                new Dependency("filteredActivities", Scope.PROJECT_PREFIX),
+                new Dependency("activityTypeStats", Scope.ALL),
+                new Dependency("activityStatusStats", Scope.ALL),
+                new Dependency("topProjectsStats", Scope.ALL),
+                new Dependency("projectDurationStats", Scope.ALL),
+                new Dependency("projectPaths", Scope.PROJECT_PREFIX)));
+
+        DEPENDENTS.put("projectRelationships", List.of(new Dependency("projectPaths", Scope.PROJECT_PREFIX)));
+
+        List<Dependency> assignmentDependents = new ArrayList<>();
+        assignmentDependents.add(new Dependency("activityResourceAssignments", Scope.PROJECT_ACTIVITIES));
+        RESOURCE_STATISTICS.forEach(name -> assignmentDependents.add(new Dependency(name, Scope.ALL)));
+        DEPENDENTS.put("projectResourceAssignments", assignmentDependents);
+
+        List<Dependency> projectListDependents = new ArrayList<>();
+        for (String name : List.of("projectsPage", "filteredProjects", "projectCount")) {
+            projectListDependents.add(new Dependency(name, Scope.ALL));
+        }
+        PORTFOLIO_PROJECT_STATISTICS.forEach(name -> projectListDependents.add(new Dependency(name, Scope.ALL)));
+        RESOURCE_STATISTICS.forEach(name -> projectListDependents.add(new Dependency(name, Scope.ALL)));
+        DEPENDENTS.put("allProjects", projectListDependents);
+
+        List<Dependency> resourceDependents = new ArrayList<>();
+        RESOURCE_STATISTICS.forEach(name -> resourceDependents.add(new Dependency(name, Scope.ALL)));
+        DEPENDENTS.put("allResources", resourceDependents);
+    }
+
+    private final CacheManager cacheManager;
+
+    // Incremented by every refresh, so results derived from cached P6 data can tell it was reloaded
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<String, AtomicLong> projectGenerations = new ConcurrentHashMap<>();
+
+    /**
+     * Have background reloads of cached P6 data invalidate what was derived from the reloaded entries
+     */
+    @PostConstruct
+    void listenToReloads() {
+        if (cacheManager instanceof RefreshAheadCacheManager) {
+            ((RefreshAheadCacheManager) cacheManager).setReloadListener(this::reloaded);
+        }
+    }
+
+    /**
+     * Invalidate all cached P6 data and everything derived from it
+     */
+    public void refreshAll() {
+        generation.incrementAndGet();
+        Set<String> visited = new LinkedHashSet<>();
+        int evicted = 0;
+        for (String cacheName : PROJECT_DATA) {
+            evicted += invalidate(cacheName, null, Scope.ALL, null, visited);
+        }
+        for (String cacheName : PORTFOLIO_DATA) {
+            evicted += invalidate(cacheName, null, Scope.ALL, null, visited);
+        }
+        log.info("Refreshed all caches: {} entries in {} caches", evicted, visited.size());
+    }
+
+    /**
+     * Invalidate the cached P6 data of one project and what was derived from it
+     * @param projectObjectId Project Object ID
+     */
+    public void refreshProject(String projectObjectId) {
+        projectGenerations.computeIfAbsent(projectObjectId, id -> new AtomicLong()).incrementAndGet();
+        // Needed for the per-activity caches, so read before the activities are evicted
+        List<String> activityObjectIds = activityObjectIds(projectObjectId);
+        Set<String> visited = new LinkedHashSet<>();
+        int evicted = 0;
+        for (String cacheName : PROJECT_DATA) {
+            evicted += invalidate(cacheName, projectObjectId, Scope.PROJECT, activityObjectIds, visited);
+        }
+
+        // The project cache is keyed by whichever ID it was requested with
+        String projectId = findProjectId(projectObjectId);
+        Cache projectCache = cacheManager.getCache("project");
+        if (projectId != null && projectCache != null && projectCache.evictIfPresent(projectId)) {
+            evicted++;
+        }
+        log.info("Refreshed project {}: {} entries in {} caches", projectObjectId, evicted, visited.size());
+    }
+
+    /**
+     * Invalidate what was derived from a cache entry that was updated in place, keeping the entry itself
+     * @param cacheName Cache whose entry changed
+     * @param projectObjectId Project Object ID, or null for a portfolio-wide entry such as allProjects
+     * @return Number of entries evicted
+     */
+    public int invalidateDependents(String cacheName, String projectObjectId) {
+        if (projectObjectId != null) {
+            projectGenerations.computeIfAbsent(projectObjectId, id -> new AtomicLong()).incrementAndGet();
+        }
+        Set<String> visited = new HashSet<>();
+        visited.add(cacheName);
+        return invalidateDependents(cacheName, projectObjectId, activityObjectIds(projectObjectId), visited);
+    }
+
+    /**
+     * Invalidate what was derived from a P6 data entry that a background reload changed.
+     * Reloads of derived caches need nothing further: nothing is derived from them.
+     */
+    void reloaded(String cacheName, Object key) {
+        String projectObjectId;
+        if (PORTFOLIO_DATA.contains(cacheName)) {
+            projectObjectId = null;
+        } else if (PROJECT_DATA.contains(cacheName) && !"project".equals(cacheName) && key instanceof String) {
+            projectObjectId = (String) key;
+        } else {
+            return;
+        }
+        int evicted = invalidateDependents(cacheName, projectObjectId);
+        log.debug("Reloaded {} entry {} changed: {} derived entries evicted", cacheName, key, evicted);
+    }
+
+    /**
+     * Version of a project's cached data: changes whenever the project or all caches are refreshed, and
+     * when the project's data is reloaded or synced with changes
+     */
+    public long getDataGeneration(String projectObjectId) {
+        AtomicLong projectGeneration = projectGenerations.get(projectObjectId);
+        return generation.get() + (projectGeneration != null ? projectGeneration.get() : 0);
+    }
+
+    private int invalidate(String cacheName, String projectObjectId, Scope scope, List<String> activityObjectIds,
+                           Set<String> visited) {
+        if (!visited.add(cacheName)) {
+            return 0;
+        }
+        Cache cache = cacheManager.getCache(cacheName);
+        int evicted = cache != null ? evict(cache, projectObjectId, scope, activityObjectIds) : 0;
+        return evicted + invalidateDependents(cacheName, projectObjectId, activityObjectIds, visited);
+    }
+
+    private int invalidateDependents(String cacheName, String projectObjectId, List<String> activityObjectIds,
+                                     Set<String> visited) {
+        int evicted = 0;
+        for (Dependency dependency : DEPENDENTS.getOrDefault(cacheName, List.of())) {
+            Scope scope = projectObjectId == null ? Scope.ALL : dependency.scope;
+            evicted += invalidate(dependency.cacheName, projectObjectId, scope, activityObjectIds, visited);
+        }
+        return evicted;
+    }
+
+    private static int evict(Cache cache, String projectObjectId, Scope scope, List<String> activityObjectIds) {
+        if (scope == Scope.PROJECT) {
+            return cache.evictIfPresent(projectObjectId) ? 1 : 0;
+        }
+        if (scope == Scope.PROJECT_ACTIVITIES && activityObjectIds != null) {
+            int evicted = 0;
+            for (String activityObjectId : activityObjectIds) {
+                if (cache.evictIfPresent(activityObjectId)) {
+                    evicted++;
+                }
+            }
+            return evicted;
+        }
+        if (scope == Scope.PROJECT_PREFIX && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache) {
+            com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache =
+                    (com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache();
+            int evicted = 0;
+            for (Object key : new ArrayList<>(nativeCache.asMap().keySet())) {
+                if (key instanceof List && !((List<?>) key).isEmpty()
+                        && projectObjectId.equals(((List<?>) key).get(0)) && cache.evictIfPresent(key)) {
+                    evicted++;
+                }
+            }
+            return evicted;
+        }
+
+        // Portfolio aggregates, or keys that cannot be told apart by project
+        int size = cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache
+                ? (int) ((com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache()).estimatedSize() : 0;
+        cache.clear();
+        return size;
+    }
+
+    private List<String> activityObjectIds(String projectObjectId) {
+        if (projectObjectId == null) {
+            return null;
+        }
+        List<Activity> activities = cachedValue("projectActivities", projectObjectId);
+        if (activities == null) {
+            return null;
+        }
+        ActivityTable table = ActivityTable.of(activities);
+        List<String> objectIds = new ArrayList<>(table.size());
+        for (int row = 0; row < table.size(); row++) {
+            objectIds.add(table.objectId(row));
+        }
+        return objectIds;
+    }
+
+    private String findProjectId(String projectObjectId) {
+        List<Project> projects = cachedValue("allProjects", SimpleKey.EMPTY);
+        if (projects == null) {
+            return null;
+        }
+        return projects.stream()
+                .filter(project -> projectObjectId.equals(project.getObjectId()))
+                .map(Project::getId)
+                .findFirst()
+                .orElse(null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cachedValue(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        Cache.ValueWrapper wrapper = cache != null ? cache.get(key) : null;
+        return wrapper != null ? (T) wrapper.get() : null;
+    }
+}
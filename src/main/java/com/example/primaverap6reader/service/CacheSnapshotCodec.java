@@ -0,0 +1,422 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.Activity;
+import com.example.primaverap6reader.model.Project;
+import com.example.primaverap6reader.model.Resource;
+import com.example.primaverap6reader.model.ResourceAssignment;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact binary encoding of cached P6 record lists, for snapshots of the caches on disk.
+ * Records are stored column by column, one column per bean field, and every string (values, cache
+ * names, keys, field names) once in a string table at the end of the file. Snapshots are read
+ * through a memory mapping, copying each column out with a bulk get.
+ * Layout (big-endian):
+ * <pre>
+ * int    magic 0x50364353 ("P6CS")
+ * int    format version (1)
+ * long   creation time (epoch millis)
+ * int    number of entries, then per entry:
+ *   int  cache name, key (-1 for the entry of a method without arguments), record type: string refs
+ *   int  n, number of records
+ *   int  number of fields, then per field:
+ *     int  field name ref
+ *     byte column type, then the column:
+ *          1 String:  n ints, string refs or -1 for null
+ *          2 Date:    n longs, epoch millis or Long.MIN_VALUE for null
+ *          3 Double:  (n + 63) / 64 longs, null bitmap (bit set = null), then n doubles
+ *          4 Boolean: n bytes, 1 true, 0 false, -1 null
+ * int    number of strings, then per string: int length, UTF-8 bytes
+ * long   offset of the string table
+ * </pre>
+ * Entries are only read back if the file has a column of the right type for every field of the record
+ * class; entries written before a field was added are skipped rather than loaded with gaps.
+ */
+public final class CacheSnapshotCodec {
+
+    public static final int MAGIC = 0x50364353;
+    public static final int VERSION = 1;
+
+    private static final byte STRING = 1;
+    private static final byte DATE = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte BOOLEAN = 4;
+
+    // Only these classes are instantiated when reading, whatever the file names
+    private static final Map<String, Class<?>> RECORD_TYPES = new HashMap<>();
+
+    static {
+        for (Class<?> type : List.of(Project.class, Activity.class, ResourceAssignment.class, Resource.class)) {
+            RECORD_TYPES.put(type.getSimpleName(), type);
+        }
+    }
+
+    private static final Map<Class<?>, Map<String, Field>> FIELDS = new ConcurrentHashMap<>();
+
+    private CacheSnapshotCodec() {
+    }
+
+    /**
+     * One cached list of records
+     */
+    public static final class Entry {
+        private final String cacheName;
+        private final String key;
+        private final Class<?> recordType;
+        private final List<?> records;
+
+        /**
+         * @param cacheName Cache the list belongs to
+         * @param key Its String key, or null for the entry of a method without arguments
+         * @param recordType Class of the records, one of the P6 model classes
+         * @param records The records
+         */
+        public Entry(String cacheName, String key, Class<?> recordType, List<?> records) {
+            if (!RECORD_TYPES.containsValue(recordType)) {
+                throw new IllegalArgumentException("Unsupported record type " + recordType.getName());
+            }
+            this.cacheName = cacheName;
+            this.key = key;
+            this.recordType = recordType;
+            this.records = records;
+        }
+
+        public String getCacheName() {
+            return cacheName;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public Class<?> getRecordType() {
+            return recordType;
+        }
+
+        public List<?> getRecords() {
+            return records;
+        }
+    }
+
+    /**
+     * Contents of a snapshot file
+     */
+    public static final class Snapshot {
+        private final long createdAt;
+        private final List<Entry> entries;
+        private final int skippedEntries;
+
+        Snapshot(long createdAt, List<Entry> entries, int skippedEntries) {
+            this.createdAt = createdAt;
+            this.entries = entries;
+            this.skippedEntries = skippedEntries;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        public List<Entry> getEntries() {
+            return entries;
+        }
+
+        /**
+         * Entries left out because their record class changed since the snapshot was written
+         */
+        public int getSkippedEntries() {
+            return skippedEntries;
+        }
+    }
+
+    /**
+     * Write a snapshot; the stream is flushed but not closed
+     * @param createdAt Creation time (epoch millis)
+     * @param entries Cached lists to store
+     * @param out Destination
+     * @throws IOException if writing fails or the snapshot would exceed 2 GB, the most a single mapping can read
+     */
+    public static void write(long createdAt, List<Entry> entries, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        Map<String, Integer> strings = new LinkedHashMap<>();
+
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeLong(createdAt);
+        data.writeInt(entries.size());
+        for (Entry entry : entries) {
+            writeEntry(entry, data, strings);
+        }
+
+        int tableOffset = data.size();
+        data.writeInt(strings.size());
+        for (String string : strings.keySet()) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+        // DataOutputStream.size() stops counting at Integer.MAX_VALUE
+        if (data.size() == Integer.MAX_VALUE) {
+            throw new IOException("Cache snapshot exceeds 2 GB");
+        }
+        data.writeLong(tableOffset);
+        data.flush();
+    }
+
+    /**
+     * Read a snapshot file through a memory mapping
+     * @throws IOException if the file cannot be read, is not a snapshot of this version or is corrupt
+     */
+    public static Snapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Cache snapshot exceeds 2 GB");
+            }
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Read a snapshot from a buffer holding the whole file
+     */
+    public static Snapshot read(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.limit() < 24 || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a cache snapshot");
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported cache snapshot version " + buffer.getInt(4));
+            }
+            String[] strings = readStrings(buffer, (int) buffer.getLong(buffer.limit() - 8));
+
+            buffer.position(8);
+            long createdAt = buffer.getLong();
+            int entryCount = buffer.getInt();
+            List<Entry> entries = new ArrayList<>(entryCount);
+            int skipped = 0;
+            for (int i = 0; i < entryCount; i++) {
+                Entry entry = readEntry(buffer, strings);
+                if (entry != null) {
+                    entries.add(entry);
+                } else {
+                    skipped++;
+                }
+            }
+            return new Snapshot(createdAt, entries, skipped);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt cache snapshot: " + e, e);
+        }
+    }
+
+    private static void writeEntry(Entry entry, DataOutputStream data, Map<String, Integer> strings)
+            throws IOException {
+        // ActivityTable materializes a new bean on every get, so materialize each row once up front
+        List<?> records = entry.records instanceof ActivityTable ? new ArrayList<>(entry.records) : entry.records;
+        int n = records.size();
+
+        data.writeInt(ref(entry.cacheName, strings));
+        data.writeInt(ref(entry.key, strings));
+        data.writeInt(ref(entry.recordType.getSimpleName(), strings));
+        data.writeInt(n);
+
+        Map<String, Field> fields = fieldsOf(entry.recordType);
+        data.writeInt(fields.size());
+        for (Field field : fields.values()) {
+            byte type = columnType(field);
+            data.writeInt(ref(field.getName(), strings));
+            data.writeByte(type);
+
+            if (type == DOUBLE) {
+                long[] nulls = new long[(n + 63) / 64];
+                for (int row = 0; row < n; row++) {
+                    if (value(field, records.get(row)) == null) {
+                        nulls[row >>> 6] |= 1L << row;
+                    }
+                }
+                for (long word : nulls) {
+                    data.writeLong(word);
+                }
+            }
+            for (Object record : records) {
+                Object value = value(field, record);
+                switch (type) {
+                    case STRING:
+                        data.writeInt(ref((String) value, strings));
+                        break;
+                    case DATE:
+                        data.writeLong(value != null ? ((Date) value).getTime() : Long.MIN_VALUE);
+                        break;
+                    case DOUBLE:
+                        data.writeDouble(value != null ? (Double) value : 0);
+                        break;
+                    default:
+                        data.writeByte(value == null ? -1 : (Boolean) value ? 1 : 0);
+                }
+            }
+        }
+    }
+
+    private static Entry readEntry(ByteBuffer buffer, String[] strings) throws IOException {
+        String cacheName = string(buffer.getInt(), strings);
+        String key = string(buffer.getInt(), strings);
+        Class<?> recordType = RECORD_TYPES.get(string(buffer.getInt(), strings));
+        int n = buffer.getInt();
+        int fieldCount = buffer.getInt();
+
+        // Columns are always read, to get past them, but only applied to a known, unchanged record class
+        Map<String, Field> fields = recordType != null ? fieldsOf(recordType) : Map.of();
+        Object[] records = new Object[recordType != null ? n : 0];
+        for (int row = 0; row < records.length; row++) {
+            records[row] = newRecord(recordType);
+        }
+        Set<String> missing = new HashSet<>(fields.keySet());
+
+        for (int i = 0; i < fieldCount; i++) {
+            Field field = fields.get(string(buffer.getInt(), strings));
+            byte type = buffer.get();
+            if (field != null && columnType(field) != type) {
+                field = null;
+            }
+            if (field != null) {
+                missing.remove(field.getName());
+            }
+
+            switch (type) {
+                case STRING: {
+                    int[] refs = new int[n];
+                    buffer.asIntBuffer().get(refs);
+                    buffer.position(buffer.position() + n * 4);
+                    for (int row = 0; field != null && row < n; row++) {
+                        set(field, records[row], string(refs[row], strings));
+                    }
+                    break;
+                }
+                case DATE: {
+                    long[] millis = new long[n];
+                    buffer.asLongBuffer().get(millis);
+                    buffer.position(buffer.position() + n * 8);
+                    for (int row = 0; field != null && row < n; row++) {
+                        set(field, records[row], millis[row] != Long.MIN_VALUE ? new Date(millis[row]) : null);
+                    }
+                    break;
+                }
+                case DOUBLE: {
+                    long[] nulls = new long[(n + 63) / 64];
+                    buffer.asLongBuffer().get(nulls);
+                    buffer.position(buffer.position() + nulls.length * 8);
+                    double[] values = new double[n];
+                    buffer.asDoubleBuffer().get(values);
+                    buffer.position(buffer.position() + n * 8);
+                    for (int row = 0; field != null && row < n; row++) {
+                        boolean isNull = (nulls[row >>> 6] & (1L << row)) != 0;
+                        set(field, records[row], isNull ? null : values[row]);
+                    }
+                    break;
+                }
+                case BOOLEAN: {
+                    byte[] values = new byte[n];
+                    buffer.get(values);
+                    for (int row = 0; field != null && row < n; row++) {
+                        set(field, records[row], values[row] < 0 ? null : values[row] == 1);
+                    }
+                    break;
+                }
+                default:
+                    throw new IOException("Unknown column type " + type);
+            }
+        }
+
+        if (recordType == null || !missing.isEmpty()) {
+            return null;
+        }
+        return new Entry(cacheName, key, recordType, Arrays.asList(records));
+    }
+
+    private static String[] readStrings(ByteBuffer buffer, int tableOffset) {
+        ByteBuffer table = buffer.duplicate();
+        table.position(tableOffset);
+        String[] strings = new String[table.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[table.getInt()];
+            table.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static int ref(String string, Map<String, Integer> strings) {
+        return string != null ? strings.computeIfAbsent(string, s -> strings.size()) : -1;
+    }
+
+    private static String string(int ref, String[] strings) {
+        return ref >= 0 ? strings[ref] : null;
+    }
+
+    /**
+     * Instance fields of a record class by name, in declaration order
+     */
+    private static Map<String, Field> fieldsOf(Class<?> type) {
+        return FIELDS.computeIfAbsent(type, t -> {
+            Map<String, Field> fields = new LinkedHashMap<>();
+            for (Field field : t.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+                    columnType(field);
+                    field.setAccessible(true);
+                    fields.put(field.getName(), field);
+                }
+            }
+            return fields;
+        });
+    }
+
+    private static byte columnType(Field field) {
+        Class<?> type = field.getType();
+        if (type == String.class) {
+            return STRING;
+        } else if (type == Date.class) {
+            return DATE;
+        } else if (type == Double.class) {
+            return DOUBLE;
+        } else if (type == Boolean.class) {
+            return BOOLEAN;
+        }
+        throw new IllegalArgumentException("Unsupported field type " + type.getName() + " of " + field);
+    }
+
+    private static Object newRecord(Class<?> type) throws IOException {
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Cannot create " + type.getName(), e);
+        }
+    }
+
+    private static Object value(Field field, Object record) {
+        try {
+            return field.get(record);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void set(Field field, Object record, Object value) {
+        try {
+            field.set(record, value);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
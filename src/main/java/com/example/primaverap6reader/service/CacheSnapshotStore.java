@@ -0,0 +1,204 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.Activity;
+import com.example.primaverap6reader.model.Project;
+import com.example.primaverap6reader.model.Resource;
+import com.example.primaverap6reader.model.ResourceAssignment;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of the cached P6 data on disk, so a restarted application serves warm data right away.
+ * The project list, the resources and the cached activities and resource assignments of each project
+ * are written at shutdown (and by primavera.snapshot.cron if set) and put back into the caches at
+ * startup. Once the application is ready, a background delta sync brings the restored data up to date
+ * with P6; until it has, pages show the data as of the snapshot.
+ * The file is written to a temporary name and moved into place, so a crash never leaves a partial one.
+ */
+@Service
+@Slf4j
+public class CacheSnapshotStore {
+
+    // Cached lists to snapshot: cache name and record class; the two portfolio lists have no key
+    private static final Map<String, Class<?>> SNAPSHOT_CACHES = Map.of(
+            "allProjects", Project.class,
+            "allResources", Resource.class,
+            "projectActivities", Activity.class,
+            "projectResourceAssignments", ResourceAssignment.class);
+
+    private final CacheManager cacheManager;
+    private final DeltaSyncService deltaSyncService;
+    private final TaskExecutor executor;
+    private final boolean enabled;
+    private final Path file;
+    private final long maxAgeMillis;
+    private volatile boolean restored;
+
+    public CacheSnapshotStore(
+            CacheManager cacheManager,
+            DeltaSyncService deltaSyncService,
+            @Qualifier("cacheMaintenanceExecutor") TaskExecutor executor,
+            @Value("${primavera.snapshot.enabled:true}") boolean enabled,
+            @Value("${primavera.snapshot.file:cache-snapshot/p6-cache.snapshot}") String file,
+            @Value("${primavera.snapshot.maxAgeHours:168}") long maxAgeHours) {
+        this.cacheManager = cacheManager;
+        this.deltaSyncService = deltaSyncService;
+        this.executor = executor;
+        this.enabled = enabled;
+        this.file = Paths.get(file);
+        this.maxAgeMillis = TimeUnit.HOURS.toMillis(maxAgeHours);
+    }
+
+    @PostConstruct
+    void restore() {
+        if (!enabled || !Files.isRegularFile(file)) {
+            return;
+        }
+        long start = System.nanoTime();
+        CacheSnapshotCodec.Snapshot snapshot;
+        try {
+            snapshot = CacheSnapshotCodec.read(file);
+        } catch (IOException e) {
+            log.warn("Could not read cache snapshot {}, starting with empty caches: {}", file, e.getMessage());
+            return;
+        }
+        long age = System.currentTimeMillis() - snapshot.getCreatedAt();
+        if (age > maxAgeMillis) {
+            log.info("Cache snapshot {} is {} hours old, starting with empty caches", file,
+                    TimeUnit.MILLISECONDS.toHours(age));
+            return;
+        }
+
+        int records = 0;
+        for (CacheSnapshotCodec.Entry entry : snapshot.getEntries()) {
+            Cache cache = cacheManager.getCache(entry.getCacheName());
+            if (cache == null || SNAPSHOT_CACHES.get(entry.getCacheName()) != entry.getRecordType()) {
+                continue;
+            }
+            List<?> values = entry.getRecordType() == Activity.class
+                    ? ActivityTable.builder().addAll(asActivities(entry.getRecords())).build()
+                    : new ArrayList<>(entry.getRecords());
+            cache.put(entry.getKey() != null ? entry.getKey() : SimpleKey.EMPTY, values);
+            records += values.size();
+        }
+        restored = true;
+        log.info("Restored {} cached lists ({} records, {} skipped) from snapshot {} taken {} minutes ago in {} ms",
+                snapshot.getEntries().size(), records, snapshot.getSkippedEntries(), file,
+                TimeUnit.MILLISECONDS.toMinutes(age), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Bring restored data up to date with P6 without holding up startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileRestored() {
+        if (!restored) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    deltaSyncService.syncAll();
+                } catch (RuntimeException e) {
+                    log.warn("Could not sync the restored cache snapshot with P6: {}", e.getMessage(), e);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            log.warn("Skipping the sync of the restored cache snapshot: cache maintenance is busy");
+        }
+    }
+
+    /**
+     * Periodic snapshot, scheduled by primavera.snapshot.cron (disabled unless set)
+     */
+    @Scheduled(cron = "${primavera.snapshot.cron:-}")
+    public void runScheduled() {
+        save();
+    }
+
+    @PreDestroy
+    public void saveOnShutdown() {
+        save();
+    }
+
+    /**
+     * Write the cached P6 data to the snapshot file, replacing the previous snapshot
+     * @return Whether a snapshot was written
+     */
+    public synchronized boolean save() {
+        if (!enabled) {
+            return false;
+        }
+        List<CacheSnapshotCodec.Entry> entries = collectEntries();
+        if (entries.isEmpty()) {
+            log.info("No cached P6 data, keeping the previous cache snapshot");
+            return false;
+        }
+
+        long start = System.nanoTime();
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, "p6-cache-", ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(temporary)) {
+                    CacheSnapshotCodec.write(System.currentTimeMillis(), entries, out);
+                }
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+            log.info("Stored {} cached lists in snapshot {} ({} KB) in {} ms", entries.size(), file,
+                    Files.size(file) / 1024, (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not store cache snapshot {}: {}", file, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    private List<CacheSnapshotCodec.Entry> collectEntries() {
+        List<CacheSnapshotCodec.Entry> entries = new ArrayList<>();
+        SNAPSHOT_CACHES.forEach((cacheName, recordType) -> {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache == null || !(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache)) {
+                return;
+            }
+            com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache =
+                    (com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache();
+            nativeCache.asMap().forEach((key, value) -> {
+                // The snapshot caches hold lists keyed by project ObjectId, or a single no-argument entry
+                if (value instanceof List && (key instanceof String || SimpleKey.EMPTY.equals(key))) {
+                    entries.add(new CacheSnapshotCodec.Entry(cacheName, key instanceof String ? (String) key : null,
+                            recordType, (List<?>) value));
+                }
+            });
+        });
+        return entries;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Activity> asActivities(List<?> records) {
+        return (List<Activity>) records;
+    }
+}
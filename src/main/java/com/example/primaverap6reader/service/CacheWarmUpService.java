@@ -0,0 +1,80 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.Project;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Loads the activities and resource assignments of the whole portfolio into the caches with a handful
+ * of bulk requests, so the first views of each project are served from cache.
+ * Runs at startup if primavera.cache.warmUpOnStartup is set, and on primavera.cache.warmUpCron.
+ */
+@Service
+@Slf4j
+public class CacheWarmUpService {
+
+    private final PrimaveraRestService primaveraService;
+    private final TaskExecutor executor;
+    private final boolean warmUpOnStartup;
+
+    public CacheWarmUpService(
+            PrimaveraRestService primaveraService,
+            @Qualifier("cacheMaintenanceExecutor") TaskExecutor executor,
+            @Value("${primavera.cache.warmUpOnStartup:false}") boolean warmUpOnStartup) {
+        this.primaveraService = primaveraService;
+        this.executor = executor;
+        this.warmUpOnStartup = warmUpOnStartup;
+    }
+
+    /**
+     * Warm up the caches in the background once the application is ready, if primavera.cache.warmUpOnStartup is set
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpOnStartup() {
+        if (!warmUpOnStartup) {
+            return;
+        }
+        try {
+            executor.execute(this::runWarmUp);
+        } catch (TaskRejectedException e) {
+            log.warn("Skipping the startup cache warm-up: cache maintenance is busy");
+        }
+    }
+
+    /**
+     * Periodic warm-up, scheduled by primavera.cache.warmUpCron (disabled unless set), e.g. ahead of
+     * office hours after the caches expired overnight
+     */
+    @Scheduled(cron = "${primavera.cache.warmUpCron:-}")
+    public void runWarmUp() {
+        try {
+            warmUpPortfolio();
+        } catch (RuntimeException e) {
+            log.warn("Could not warm up the caches: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Load the project list, then the activities and resource assignments of every project.
+     * Projects whose lists are cached already are skipped.
+     */
+    public void warmUpPortfolio() {
+        List<String> projectObjectIds = primaveraService.getAllProjects().stream()
+                .map(Project::getObjectId)
+                .collect(Collectors.toList());
+
+        log.info("Warming up caches for {} projects", projectObjectIds.size());
+        primaveraService.getActivitiesForProjects(projectObjectIds);
+        primaveraService.getResourceAssignmentsForProjects(projectObjectIds);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.primaverap6reader.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs P6 calls on the bounded request executor and fans portfolio loops out across it
+ */
+@Component
+@Slf4j
+public class ConcurrentFetcher {
+
+    // Marks request-executor threads so nested fan-outs run inline instead of starving the pool
+    private static final ThreadLocal<Boolean> ON_WORKER = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final Executor executor;
+
+    public ConcurrentFetcher(@Qualifier("p6RequestExecutor") Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Submit a single call to the request executor
+     * @param call The P6 call to run
+     * @return Future completing with the call's result
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> call) {
+        if (ON_WORKER.get()) {
+            try {
+                return CompletableFuture.completedFuture(call.get());
+            } catch (RuntimeException e) {
+                CompletableFuture<T> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            ON_WORKER.set(Boolean.TRUE);
+            try {
+                return call.get();
+            } finally {
+                ON_WORKER.set(Boolean.FALSE);
+            }
+        }, executor);
+    }
+
+    /**
+     * Run a call for every key concurrently, bounded by the request executor's pool size
+     * @param keys Keys to fan out over (e.g. projects)
+     * @param call Call to run for each key
+     * @return Map of key to result, in the iteration order of keys
+     */
+    public <K, V> Map<K, V> fanOut(Collection<K> keys, Function<K, V> call) {
+        Map<K, CompletableFuture<V>> futures = new LinkedHashMap<>();
+        for (K key : keys) {
+            futures.put(key, submit(() -> call.apply(key)));
+        }
+
+        Map<K, V> results = new LinkedHashMap<>();
+        for (Map.Entry<K, CompletableFuture<V>> entry : futures.entrySet()) {
+            results.put(entry.getKey(), join(entry.getValue()));
+        }
+
+        return results;
+    }
+
+    /**
+     * Wait for a future, rethrowing the original unchecked exception of a failed call
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.primaverap6reader.service;
+
+import com.tdunning.math.stats.TDigest;
+
+/**
+ * Stopping rule for adaptive Monte Carlo runs.
+ * A run has converged when, for every tracked percentile, the distribution-free 95% confidence
+ * interval of that percentile is narrower than the tolerance for both completion date and cost.
+ */
+public final class ConvergenceCriteria {
+
+    private static final double Z_95 = 1.96;
+
+    private final double[] quantiles;
+    private final double dateToleranceMillis;
+    private final double costRelativeTolerance;
+    private final int batchIterations;
+
+    /**
+     * @param confidenceLevels Percentiles to track (e.g. 50, 80, 90)
+     * @param dateToleranceHours Allowed confidence interval half-width of a completion date percentile
+     * @param costRelativeTolerance Allowed half-width of a cost percentile, relative to its value
+     * @param batchIterations Iterations simulated between two convergence checks
+     */
+    public ConvergenceCriteria(int[] confidenceLevels, double dateToleranceHours,
+                               double costRelativeTolerance, int batchIterations) {
+        this.quantiles = new double[confidenceLevels.length];
+        for (int i = 0; i < confidenceLevels.length; i++) {
+            quantiles[i] = confidenceLevels[i] / 100.0;
+        }
+        this.dateToleranceMillis = dateToleranceHours * 3_600_000.0;
+        this.costRelativeTolerance = costRelativeTolerance;
+        this.batchIterations = batchIterations;
+    }
+
+    public int getBatchIterations() {
+        return batchIterations;
+    }
+
+    /**
+     * Check whether every tracked percentile is stable
+     * @param n Iterations simulated so far
+     * @param durations Sketch of the simulated durations (milliseconds from project start)
+     * @param costs Sketch of the simulated total costs
+     */
+    public boolean isConverged(long n, TDigest durations, TDigest costs) {
+        for (double q : quantiles) {
+            // Ranks bounding the percentile with 95% confidence (normal approximation of the binomial)
+            double spread = Z_95 * Math.sqrt(q * (1 - q) / n);
+            double lower = Math.max(0, q - spread);
+            double upper = Math.min(1, q + spread);
+
+            double dateHalfWidth = (durations.quantile(upper) - durations.quantile(lower)) / 2;
+            if (dateHalfWidth > dateToleranceMillis) {
+                return false;
+            }
+
+            double costHalfWidth = (costs.quantile(upper) - costs.quantile(lower)) / 2;
+            if (costHalfWidth > costRelativeTolerance * Math.abs(costs.quantile(q))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
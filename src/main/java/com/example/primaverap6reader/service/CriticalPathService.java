@@ -1,76 +1,293 @@
 package com.example.primaverap6reader.service;
 
 import com.example.primaverap6reader.model.Activity;
-import com.example.primaverap6reader.model.Project;
+import com.example.primaverap6reader.model.ActivitySchedule;
+import com.example.primaverap6reader.model.Relationship;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.BiFunction;
 
+/**
+ * Critical path method scheduling of a project's activity network.
+ * Schedules are computed in linear time over the compiled network and cached per project in the
+ * "projectSchedules" cache. The cache outlives refreshes of the project data: when the activity or
+ * relationship lists have been reloaded, the schedule is compared with them and changed durations,
+ * lags and link types are propagated in place through the affected part of the network only. Added
+ * or removed activities or links change the network's order, so they rebuild the schedule.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class CriticalPathService {
 
     private final PrimaveraRestService primaveraService;
+    private final CacheManager cacheManager;
+
+    // Check every incremental update against a full recompute (doubles the cost of updates)
+    @Value("${primavera.schedule.verifyIncremental:false}")
+    private boolean verifyIncremental;
 
     /**
      * Identify the critical path activities for a project
      * @param projectObjectId Project Object ID
-     * @return List of activities on the critical path
+     * @return Activities without total float, in schedule order
      */
     public List<Activity> identifyCriticalPath(String projectObjectId) {
-        // Get all activities for the project
-        List<Activity> activities = primaveraService.getActivitiesForProject(projectObjectId);
+        return withSchedule(projectObjectId, (schedule, byNode) -> {
+            List<Activity> criticalPath = new ArrayList<>();
+            for (int node = 0; node < schedule.size(); node++) {
+                if (schedule.isCritical(node)) {
+                    criticalPath.add(byNode[node]);
+                }
+            }
+            return criticalPath;
+        });
+    }
+
+    /**
+     * Calculate float time for each activity
+     * @param projectObjectId Project Object ID
+     * @return Map of activity ID to total float hours
+     */
+    public Map<String, Double> calculateActivityFloat(String projectObjectId) {
+        return withSchedule(projectObjectId, (schedule, byNode) -> {
+            Map<String, Double> floatMap = new HashMap<>(byNode.length * 2);
+            for (int node = 0; node < schedule.size(); node++) {
+                floatMap.put(byNode[node].getId(), schedule.totalFloat(node));
+            }
+            return floatMap;
+        });
+    }
 
-        // In a real implementation, you would analyze activity relationships
-        // For this example, we'll identify activities with zero or minimal float
-        // A more robust implementation would build a network diagram and calculate ES, EF, LS, LF
+    /**
+     * Dates and floats of every activity of a project
+     * @param projectObjectId Project Object ID
+     * @return One entry per activity, in schedule order
+     */
+    public List<ActivitySchedule> getActivitySchedules(String projectObjectId) {
+        return withSchedule(projectObjectId, (schedule, byNode) -> {
+            List<ActivitySchedule> schedules = new ArrayList<>(schedule.size());
+            for (int node = 0; node < schedule.size(); node++) {
+                ActivitySchedule entry = new ActivitySchedule();
+                entry.setActivityObjectId(byNode[node].getObjectId());
+                entry.setActivityId(byNode[node].getId());
+                entry.setActivityName(byNode[node].getName());
+                entry.setDuration(schedule.duration(node));
+                entry.setEarlyStart(schedule.earlyStart(node));
+                entry.setEarlyFinish(schedule.earlyFinish(node));
+                entry.setLateStart(schedule.lateStart(node));
+                entry.setLateFinish(schedule.lateFinish(node));
+                entry.setTotalFloat(schedule.totalFloat(node));
+                entry.setFreeFloat(schedule.freeFloat(node));
+                entry.setCritical(schedule.isCritical(node));
+                schedules.add(entry);
+            }
+            return schedules;
+        });
+    }
+
+    /**
+     * Read a project's CPM schedule, brought up to date with the project data first.
+     * The reader runs while the schedule is locked against updates and must not keep it.
+     * @param projectObjectId Project Object ID
+     * @param reader Gets the schedule and the activity of every network node
+     * @return What the reader returns
+     * @throws IllegalStateException if the project's relationships contain a loop, or activities share an ObjectId
+     */
+    public <T> T withSchedule(String projectObjectId, BiFunction<ProjectSchedule, Activity[], T> reader) {
+        List<Activity> activities = primaveraService.getActivitiesForProject(projectObjectId);
+        List<Relationship> relationships = primaveraService.getRelationshipsForProject(projectObjectId);
 
-        Map<String, Activity> activityMap = activities.stream()
-                .collect(Collectors.toMap(Activity::getObjectId, a -> a));
+        Cache cache = cacheManager.getCache("projectSchedules");
+        if (cache == null) {
+            CachedSchedule built = new CachedSchedule(computeSchedule(projectObjectId, activities, relationships),
+                    activities, relationships);
+            return reader.apply(built.schedule, built.byNode);
+        }
 
-        // Placeholder for predecessor/successor relationships
-        // In a real implementation, this would come from the P6 API
-        Map<String, List<String>> successors = new HashMap<>();
+        while (true) {
+            CachedSchedule cached;
+            try {
+                cached = cache.get(projectObjectId, () -> new CachedSchedule(
+                        computeSchedule(projectObjectId, activities, relationships), activities, relationships));
+            } catch (Cache.ValueRetrievalException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
 
-        // Calculate early start/finish and late start/finish
-        // For demo purposes, activities with durations in the top quartile
-        // are considered critical
+            synchronized (cached) {
+                if (cached.replaced) {
+                    // Rebuilt while this thread waited for the lock: read the cache entry again
+                    continue;
+                }
+                if (!cached.update(projectObjectId, activities, relationships)) {
+                    // Waiting readers must not use this schedule, even if the rebuild below fails
+                    cached.replaced = true;
+                    cache.evict(projectObjectId);
+                    CachedSchedule rebuilt = new CachedSchedule(
+                            computeSchedule(projectObjectId, activities, relationships), activities, relationships);
+                    cache.put(projectObjectId, rebuilt);
+                    return reader.apply(rebuilt.schedule, rebuilt.byNode);
+                }
+                return reader.apply(cached.schedule, cached.byNode);
+            }
+        }
+    }
 
-        List<Activity> sortedByDuration = activities.stream()
-                .filter(a -> a.getDurationHours() != null)
-                .sorted(Comparator.comparing(Activity::getDurationHours).reversed())
-                .collect(Collectors.toList());
+    private ProjectSchedule computeSchedule(String projectObjectId, List<Activity> activities,
+                                            List<Relationship> relationships) {
+        long start = System.nanoTime();
+        ProjectSchedule schedule = ProjectSchedule.build(activities, relationships);
+        log.info("Scheduled project {}: {} activities, {} relationships, {} hours, in {} ms",
+                projectObjectId, schedule.size(), schedule.network().relationshipCount(),
+                schedule.getProjectFinish(), (System.nanoTime() - start) / 1_000_000);
+        return schedule;
+    }
 
-        if (sortedByDuration.isEmpty()) {
-            return Collections.emptyList();
+    private static boolean sameLinksInOrder(List<Relationship> previous, List<Relationship> current) {
+        for (int i = 0; i < current.size(); i++) {
+            Relationship before = previous.get(i);
+            Relationship after = current.get(i);
+            if (!Objects.equals(before.getPredecessorActivityObjectId(), after.getPredecessorActivityObjectId())
+                    || !Objects.equals(before.getSuccessorActivityObjectId(), after.getSuccessorActivityObjectId())) {
+                return false;
+            }
         }
+        return true;
+    }
 
-        // Consider top 25% by duration as critical
-        int criticalCount = Math.max(1, sortedByDuration.size() / 4);
-        return sortedByDuration.subList(0, criticalCount);
+    private static String linkKey(Relationship relationship) {
+        return relationship.getPredecessorActivityObjectId() + '>' + relationship.getSuccessorActivityObjectId();
+    }
+
+    private static double lagOf(Relationship relationship) {
+        return relationship.getLag() != null ? relationship.getLag() : 0;
     }
 
     /**
-     * Calculate float time for each activity
-     * @param projectObjectId Project Object ID
-     * @return Map of activity ID to float hours
+     * A cached schedule with the activity and relationship lists it was last brought up to date with.
+     * The lists are compared by identity first: the data caches return the same list until they reload.
+     * Guarded by its own monitor.
      */
-    public Map<String, Double> calculateActivityFloat(String projectObjectId) {
-        List<Activity> activities = primaveraService.getActivitiesForProject(projectObjectId);
-        Map<String, Double> floatMap = new HashMap<>();
-
-        // Simplified float calculation
-        // In a real implementation, this would involve ES, EF, LS, LF calculations
-        activities.forEach(activity -> {
-            // Placeholder calculation - would use actual schedule data in production
-            double floatTime = Math.random() * 40; // Random float for demonstration
-            floatMap.put(activity.getId(), floatTime);
-        });
+    private final class CachedSchedule {
+        final ProjectSchedule schedule;
+        final Activity[] byNode;
+        List<Activity> activities;
+        List<Relationship> relationships;
+        // Set when a rebuilt schedule replaced this one in the cache; it must no longer be read
+        boolean replaced;
+
+        CachedSchedule(ProjectSchedule schedule, List<Activity> activities, List<Relationship> relationships) {
+            this.schedule = schedule;
+            this.byNode = new Activity[schedule.size()];
+            this.activities = activities;
+            this.relationships = relationships;
+            for (Activity activity : activities) {
+                byNode[schedule.network().indexOf(activity.getObjectId())] = activity;
+            }
+        }
+
+        /**
+         * Apply the changes between the lists the schedule was computed from and the current ones.
+         * Every change is checked before any is applied, so a false return leaves the schedule as it was.
+         * @return false if activities or links were added or removed, so the schedule must be rebuilt
+         */
+        boolean update(String projectObjectId, List<Activity> currentActivities, List<Relationship> currentRelationships) {
+            if (currentActivities == activities && currentRelationships == relationships) {
+                return true;
+            }
+            long start = System.nanoTime();
+            ScheduleNetwork network = schedule.network();
+
+            if (currentActivities.size() != byNode.length) {
+                return false;
+            }
+
+            List<Integer> changedLinks = new ArrayList<>();
+            List<Relationship> changedLinkValues = new ArrayList<>();
+            if (currentRelationships != relationships) {
+                if (currentRelationships.size() != relationships.size()) {
+                    return false;
+                }
+                // P6 usually returns the links in the same order, so match by position and hash only if not
+                Map<String, Relationship> previous = null;
+                if (!sameLinksInOrder(relationships, currentRelationships)) {
+                    previous = new HashMap<>(relationships.size() * 2);
+                    for (Relationship relationship : relationships) {
+                        previous.put(linkKey(relationship), relationship);
+                    }
+                    if (previous.size() != currentRelationships.size()) {
+                        return false;
+                    }
+                }
 
-        return floatMap;
+                for (int i = 0; i < currentRelationships.size(); i++) {
+                    Relationship relationship = currentRelationships.get(i);
+                    Relationship before = previous != null ? previous.get(linkKey(relationship)) : relationships.get(i);
+                    if (before == null) {
+                        return false;
+                    }
+                    if (Objects.equals(before.getType(), relationship.getType())
+                            && lagOf(before) == lagOf(relationship)) {
+                        continue;
+                    }
+                    int predecessor = network.indexOf(relationship.getPredecessorActivityObjectId());
+                    int successor = network.indexOf(relationship.getSuccessorActivityObjectId());
+                    if (predecessor < 0 || successor < 0) {
+                        continue; // Links to other projects are not part of the network
+                    }
+                    int link = network.linkIndex(predecessor, successor);
+                    if (link < 0) {
+                        return false;
+                    }
+                    changedLinks.add(link);
+                    changedLinkValues.add(relationship);
+                }
+            }
+
+            int[] nodes = new int[currentActivities.size()];
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = network.indexOf(currentActivities.get(i).getObjectId());
+                if (nodes[i] < 0) {
+                    return false;
+                }
+            }
+
+            // Every change is known to apply: update the schedule
+            for (int i = 0; i < changedLinks.size(); i++) {
+                Relationship relationship = changedLinkValues.get(i);
+                schedule.changeLink(changedLinks.get(i), relationship.getType(), lagOf(relationship));
+            }
+            int changedActivities = 0;
+            for (int i = 0; i < nodes.length; i++) {
+                Activity activity = currentActivities.get(i);
+                Double hours = activity.getDurationHours();
+                double duration = hours != null && hours > 0 ? hours : 0;
+                if (duration != schedule.duration(nodes[i])) {
+                    schedule.changeDuration(nodes[i], duration);
+                    changedActivities++;
+                }
+                byNode[nodes[i]] = activity;
+            }
+
+            int recomputed = schedule.propagate();
+            activities = currentActivities;
+            relationships = currentRelationships;
+            log.info("Updated schedule of project {} in place: {} changed activities, {} changed links, "
+                            + "{} node recomputations for {} nodes, in {} ms",
+                    projectObjectId, changedActivities, changedLinks.size(), recomputed, byNode.length,
+                    (System.nanoTime() - start) / 1_000_000);
+
+            if (verifyIncremental && !schedule.matches(schedule.recompute(), 1e-6)) {
+                log.warn("Incremental schedule update of project {} differs from a full recompute", projectObjectId);
+                return false;
+            }
+            return true;
+        }
     }
-}
\ No newline at end of file
+}
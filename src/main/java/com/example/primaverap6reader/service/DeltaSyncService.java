@@ -0,0 +1,299 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.Activity;
+import com.example.primaverap6reader.model.Project;
+import com.example.primaverap6reader.model.ResourceAssignment;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Incremental synchronization of the cached P6 data.
+ * Instead of reloading whole projects, a sync asks P6 only for the projects, activities and resource
+ * assignments whose LastUpdateDate is later than the newest one already cached (the cached data's
+ * high-water mark), merges them into the cached lists by ObjectId and invalidates just what was
+ * derived from the changed entries. Deletions leave no LastUpdateDate behind, so every
+ * primavera.sync.reconcileMinutes a sync also fetches the ObjectIds P6 still has and drops the rest.
+ * Data that is not cached is left alone, it is loaded fresh on its next use. Projects whose data
+ * cannot be synced incrementally fall back to a regular cache refresh.
+ */
+@Service
+@Slf4j
+public class DeltaSyncService {
+
+    private final PrimaveraRestService primaveraService;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final CacheManager cacheManager;
+    private final ConcurrentFetcher concurrentFetcher;
+    private final boolean enabled;
+    private final long overlapMillis;
+    private final long reconcileMillis;
+
+    // When each project's data, and the project list, was last reconciled with P6's ObjectIds
+    private final Map<String, Long> reconciledAt = new ConcurrentHashMap<>();
+    private volatile long projectsReconciledAt;
+    private final Map<String, Object> projectLocks = new ConcurrentHashMap<>();
+
+    public DeltaSyncService(
+            PrimaveraRestService primaveraService,
+            CacheInvalidationService cacheInvalidationService,
+            CacheManager cacheManager,
+            ConcurrentFetcher concurrentFetcher,
+            @Value("${primavera.sync.enabled:true}") boolean enabled,
+            @Value("${primavera.sync.overlapSeconds:60}") long overlapSeconds,
+            @Value("${primavera.sync.reconcileMinutes:60}") long reconcileMinutes) {
+        this.primaveraService = primaveraService;
+        this.cacheInvalidationService = cacheInvalidationService;
+        this.cacheManager = cacheManager;
+        this.concurrentFetcher = concurrentFetcher;
+        this.enabled = enabled;
+        this.overlapMillis = TimeUnit.SECONDS.toMillis(overlapSeconds);
+        this.reconcileMillis = TimeUnit.MINUTES.toMillis(reconcileMinutes);
+    }
+
+    /**
+     * Bring the cached data up to date with P6: incrementally if enabled, otherwise by a cache refresh
+     * @param projectObjectId Only this project, or null for the whole portfolio
+     */
+    public void refresh(String projectObjectId) {
+        if (!enabled) {
+            if (projectObjectId != null) {
+                cacheInvalidationService.refreshProject(projectObjectId);
+            } else {
+                cacheInvalidationService.refreshAll();
+            }
+        } else if (projectObjectId != null) {
+            syncProject(projectObjectId);
+        } else {
+            syncAll();
+        }
+    }
+
+    /**
+     * Periodic sync, scheduled by primavera.sync.cron (disabled unless set)
+     */
+    @Scheduled(cron = "${primavera.sync.cron:-}")
+    public void runScheduled() {
+        if (enabled) {
+            syncAll();
+        }
+    }
+
+    /**
+     * Sync the project list and every project with cached activities or resource assignments
+     */
+    public void syncAll() {
+        long start = System.nanoTime();
+        syncProjects();
+
+        Set<String> cachedProjects = new LinkedHashSet<>();
+        cachedProjects.addAll(cachedKeys("projectActivities"));
+        cachedProjects.addAll(cachedKeys("projectResourceAssignments"));
+        concurrentFetcher.fanOut(cachedProjects, projectObjectId -> {
+            syncProject(projectObjectId);
+            return Boolean.TRUE;
+        });
+        log.info("Synced {} cached projects with P6 in {} ms", cachedProjects.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Sync one project's cached activities and resource assignments
+     * @param projectObjectId Project Object ID
+     */
+    public void syncProject(String projectObjectId) {
+        synchronized (projectLocks.computeIfAbsent(projectObjectId, id -> new Object())) {
+            try {
+                long now = System.currentTimeMillis();
+                boolean reconcile = now - reconciledAt.getOrDefault(projectObjectId, 0L) >= reconcileMillis;
+                boolean activitiesChanged = syncActivities(projectObjectId, reconcile);
+                boolean assignmentsChanged = syncAssignments(projectObjectId, reconcile);
+                if (reconcile) {
+                    reconciledAt.put(projectObjectId, now);
+                }
+                if (activitiesChanged) {
+                    // Links may have changed with the activities; the schedule catches up on reload
+                    Cache relationships = cacheManager.getCache("projectRelationships");
+                    if (relationships != null) {
+                        relationships.evictIfPresent(projectObjectId);
+                    }
+                }
+                log.info("Synced project {}: activities {}, resource assignments {}{}", projectObjectId,
+                        activitiesChanged ? "changed" : "unchanged", assignmentsChanged ? "changed" : "unchanged",
+                        reconcile ? " (reconciled)" : "");
+            } catch (RuntimeException e) {
+                log.warn("Incremental sync of project {} failed, refreshing it instead: {}",
+                        projectObjectId, e.getMessage());
+                reconciledAt.remove(projectObjectId);
+                cacheInvalidationService.refreshProject(projectObjectId);
+            }
+        }
+    }
+
+    private void syncProjects() {
+        Cache cache = cacheManager.getCache("allProjects");
+        List<Project> projects = cachedValue(cache, SimpleKey.EMPTY);
+        if (projects == null) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            boolean reconcile = now - projectsReconciledAt >= reconcileMillis;
+            Date mark = highWaterMark(projects, Project::getLastUpdateDate);
+            if (mark == null) {
+                throw new IllegalStateException("cached projects have no LastUpdateDate");
+            }
+            List<Project> changed = primaveraService.getProjectsUpdatedSince(
+                    new Date(mark.getTime() - overlapMillis));
+            Set<String> retained = reconcile ? primaveraService.getProjectObjectIdsInP6() : null;
+            List<Project> merged = merge(projects, changed, retained, Project::getObjectId);
+            if (reconcile) {
+                projectsReconciledAt = now;
+            }
+            if (merged == projects) {
+                return;
+            }
+
+            cache.put(SimpleKey.EMPTY, merged);
+            cacheInvalidationService.invalidateDependents("allProjects", null);
+            Cache projectCache = cacheManager.getCache("project");
+            if (projectCache != null) {
+                for (Project project : changed) {
+                    projectCache.evictIfPresent(project.getObjectId());
+                    projectCache.evictIfPresent(project.getId());
+                }
+            }
+            log.info("Synced project list: {} changed, {} after merge", changed.size(), merged.size());
+        } catch (RuntimeException e) {
+            log.warn("Incremental sync of the project list failed, refreshing it instead: {}", e.getMessage());
+            projectsReconciledAt = 0;
+            if (cache != null) {
+                cache.evict(SimpleKey.EMPTY);
+            }
+            cacheInvalidationService.invalidateDependents("allProjects", null);
+        }
+    }
+
+    private boolean syncActivities(String projectObjectId, boolean reconcile) {
+        Cache cache = cacheManager.getCache("projectActivities");
+        List<Activity> cached = cachedValue(cache, projectObjectId);
+        if (cached == null) {
+            return false;
+        }
+        ActivityTable table = ActivityTable.of(cached);
+        long mark = table.maxLastUpdateTime();
+        if (mark == ActivityTable.NO_DATE && !table.isEmpty()) {
+            throw new IllegalStateException("cached activities have no LastUpdateDate");
+        }
+
+        List<Activity> changed = mark == ActivityTable.NO_DATE
+                ? primaveraService.getActivitiesUpdatedSince(projectObjectId, new Date(0))
+                : primaveraService.getActivitiesUpdatedSince(projectObjectId, new Date(mark - overlapMillis));
+        Set<String> retained = reconcile ? primaveraService.getActivityObjectIdsInP6(projectObjectId) : null;
+        ActivityTable merged = table.withChanges(changed, retained);
+        if (merged == table) {
+            return false;
+        }
+
+        cache.put(projectObjectId, merged);
+        cacheInvalidationService.invalidateDependents("projectActivities", projectObjectId);
+        return true;
+    }
+
+    private boolean syncAssignments(String projectObjectId, boolean reconcile) {
+        Cache cache = cacheManager.getCache("projectResourceAssignments");
+        List<ResourceAssignment> cached = cachedValue(cache, projectObjectId);
+        if (cached == null) {
+            return false;
+        }
+        Date mark = highWaterMark(cached, ResourceAssignment::getLastUpdateDate);
+        if (mark == null && !cached.isEmpty()) {
+            throw new IllegalStateException("cached resource assignments have no LastUpdateDate");
+        }
+
+        List<ResourceAssignment> changed = primaveraService.getResourceAssignmentsUpdatedSince(projectObjectId,
+                mark != null ? new Date(mark.getTime() - overlapMillis) : new Date(0));
+        Set<String> retained = reconcile ? primaveraService.getResourceAssignmentObjectIdsInP6(projectObjectId) : null;
+        List<ResourceAssignment> merged = merge(cached, changed, retained, ResourceAssignment::getObjectId);
+        if (merged == cached) {
+            return false;
+        }
+
+        cache.put(projectObjectId, merged);
+        cacheInvalidationService.invalidateDependents("projectResourceAssignments", projectObjectId);
+        return true;
+    }
+
+    /**
+     * Replace records by ObjectId, append new ones and drop those not retained.
+     * Records fetched again unchanged (the overlap before the high-water mark) are no change.
+     * @return The merged list, or the cached list itself if nothing changed
+     */
+    private static <T> List<T> merge(List<T> cached, List<T> changed, Set<String> retained,
+                                     Function<T, String> objectId) {
+        Map<String, T> pending = new LinkedHashMap<>();
+        changed.forEach(record -> pending.put(objectId.apply(record), record));
+
+        List<T> merged = new ArrayList<>(cached.size() + pending.size());
+        boolean modified = false;
+        for (T record : cached) {
+            T upsert = pending.remove(objectId.apply(record));
+            if (upsert != null) {
+                merged.add(upsert);
+                modified |= !upsert.equals(record);
+            } else if (retained == null || retained.contains(objectId.apply(record))) {
+                merged.add(record);
+            } else {
+                modified = true;
+            }
+        }
+        merged.addAll(pending.values());
+        return modified || !pending.isEmpty() ? merged : cached;
+    }
+
+    /**
+     * Latest update date of the records, or null if some record has none
+     */
+    private static <T> Date highWaterMark(List<T> records, Function<T, Date> lastUpdate) {
+        Date mark = null;
+        for (T record : records) {
+            Date date = lastUpdate.apply(record);
+            if (date == null) {
+                return null;
+            }
+            if (mark == null || date.after(mark)) {
+                mark = date;
+            }
+        }
+        return mark;
+    }
+
+    private Set<String> cachedKeys(String cacheName) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null || !(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache)) {
+            return Collections.emptySet();
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        for (Object key : ((com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache()).asMap().keySet()) {
+            if (key instanceof String) {
+                keys.add((String) key);
+            }
+        }
+        return keys;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cachedValue(Cache cache, Object key) {
+        Cache.ValueWrapper wrapper = cache != null ? cache.get(key) : null;
+        return wrapper != null ? (T) wrapper.get() : null;
+    }
+}
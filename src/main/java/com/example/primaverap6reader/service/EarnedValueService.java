@@ -103,15 +103,13 @@ public class EarnedValueService {
     }
 
     private double calculateEarnedValue(List<Activity> activities, double bac) {
-        // Count completed activities
-        long completedActivities = activities.stream()
-                .filter(a -> "Completed".equals(a.getStatus()))
-                .count();
-
         if (activities.isEmpty()) {
             return 0;
         }
 
+        // Count completed activities on the status column
+        long completedActivities = ActivityTable.of(activities).status().count("Completed");
+
         // Calculate EV based on percentage of completed activities
         double percentageComplete = (double) completedActivities / activities.size();
         return bac * percentageComplete;
@@ -0,0 +1,155 @@
+package com.example.primaverap6reader.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Splits P6 queries that filter on many ObjectIds ("Field IN (...)") into size-bounded chunks,
+ * runs the chunks concurrently and merges the results
+ */
+@Component
+@Slf4j
+public class InFilterBatcher {
+
+    /**
+     * Streams the records matching one chunk's filter expression to a consumer
+     */
+    @FunctionalInterface
+    public interface ChunkStreamer<T> {
+        long stream(String filter, Consumer<? super T> consumer);
+    }
+
+    private final ConcurrentFetcher concurrentFetcher;
+    private final int maxValuesPerChunk;
+    private final int maxFilterLength;
+
+    public InFilterBatcher(
+            ConcurrentFetcher concurrentFetcher,
+            @Value("${primavera.api.inFilter.maxValues:500}") int maxValuesPerChunk,
+            @Value("${primavera.api.inFilter.maxLength:4000}") int maxFilterLength) {
+
+        this.concurrentFetcher = concurrentFetcher;
+        this.maxValuesPerChunk = maxValuesPerChunk;
+        this.maxFilterLength = maxFilterLength;
+    }
+
+    /**
+     * Build the IN filter expressions covering all values, each within the value-count and length limits
+     * @param field Filter field, e.g. ActivityObjectId
+     * @param values Values to match; duplicates and nulls are dropped
+     * @return Filter expressions such as "ActivityObjectId IN (1, 2, 3)"
+     */
+    public List<String> partition(String field, Collection<String> values) {
+        List<String> filters = new ArrayList<>();
+        String prefix = field + " IN (";
+        StringBuilder filter = new StringBuilder(prefix);
+        int count = 0;
+
+        for (String value : new LinkedHashSet<>(values)) {
+            if (value == null) {
+                continue;
+            }
+
+            boolean full = count >= maxValuesPerChunk
+                    || filter.length() + value.length() + 3 > maxFilterLength;
+            if (count > 0 && full) {
+                filters.add(filter.append(")").toString());
+                filter = new StringBuilder(prefix);
+                count = 0;
+            }
+
+            if (count > 0) {
+                filter.append(", ");
+            }
+            filter.append(value);
+            count++;
+        }
+
+        if (count > 0) {
+            filters.add(filter.append(")").toString());
+        }
+
+        return filters;
+    }
+
+    /**
+     * Run a query for every chunk concurrently and merge the results, de-duplicated by key
+     * @param field Filter field, e.g. ActivityObjectId
+     * @param values Values to match
+     * @param query Fetches the records matching one filter expression
+     * @param keyFn Identity of a record (typically its ObjectId); records with a null key are all kept
+     * @return Merged records, in chunk order
+     */
+    public <T> List<T> fetchAll(String field, Collection<String> values,
+                                Function<String, List<T>> query, Function<? super T, ?> keyFn) {
+        List<String> filters = partition(field, values);
+        if (filters.size() > 1) {
+            log.info("Splitting {} filter over {} values into {} chunks", field, values.size(), filters.size());
+        }
+
+        Map<String, List<T>> chunks = concurrentFetcher.fanOut(filters, query);
+
+        Set<Object> seen = new HashSet<>();
+        List<T> merged = new ArrayList<>();
+        for (List<T> chunk : chunks.values()) {
+            for (T record : chunk) {
+                Object key = keyFn.apply(record);
+                if (key == null || seen.add(key)) {
+                    merged.add(record);
+                }
+            }
+        }
+
+        return merged;
+    }
+
+    /**
+     * Stream every chunk concurrently into one consumer, de-duplicated by key.
+     * The consumer is called by one thread at a time, but records of different chunks may interleave.
+     * @param field Filter field, e.g. ActivityObjectId
+     * @param values Values to match
+     * @param streamer Streams the records matching one filter expression
+     * @param keyFn Identity of a record, or null to skip de-duplication when each record can match
+     *              only one value of the filter field (chunks then cannot overlap)
+     * @param consumer Receives each record once
+     * @return Number of records delivered
+     */
+    public <T> long streamAll(String field, Collection<String> values, ChunkStreamer<T> streamer,
+                              Function<? super T, ?> keyFn, Consumer<? super T> consumer) {
+        Set<Object> seen = new HashSet<>();
+        long[] delivered = {0};
+
+        Consumer<T> deduplicating = record -> {
+            Object key = keyFn != null ? keyFn.apply(record) : null;
+            synchronized (seen) {
+                if (key == null || seen.add(key)) {
+                    consumer.accept(record);
+                    delivered[0]++;
+                }
+            }
+        };
+
+        List<String> filters = partition(field, values);
+        if (filters.size() == 1) {
+            // A single chunk runs on the caller so its own paging can still fan out over the executor
+            streamer.stream(filters.get(0), deduplicating);
+            return delivered[0];
+        }
+
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for (String filter : filters) {
+            futures.add(concurrentFetcher.submit(() -> streamer.stream(filter, deduplicating)));
+        }
+        futures.forEach(ConcurrentFetcher::join);
+
+        synchronized (seen) {
+            return delivered[0];
+        }
+    }
+}
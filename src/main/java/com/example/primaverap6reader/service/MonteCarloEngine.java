@@ -0,0 +1,307 @@
+package com.example.primaverap6reader.service;
+
+import com.tdunning.math.stats.MergingDigest;
+import com.tdunning.math.stats.TDigest;
+import com.example.primaverap6reader.model.SamplingMode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs Monte Carlo iterations of a SimulationModel on a fork-join pool.
+ * Iterations are cut into fixed-size chunks, and every chunk draws from its own SplittableRandom
+ * stream split off a root seed in chunk order. The samples therefore depend only on the seed,
+ * never on the parallelism or on how the pool schedules the chunks.
+ * Per-chunk statistics are likewise merged in chunk order.
+ */
+@Component
+@Slf4j
+public class MonteCarloEngine {
+
+    static final int CHUNK_SIZE = 1024;
+    static final double DIGEST_COMPRESSION = 100;
+
+    private final ForkJoinPool pool;
+
+    public MonteCarloEngine(@Value("${primavera.simulation.parallelism:0}") int parallelism) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Default number of worker threads
+     */
+    public int getMaxParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Run a fixed number of iterations
+     * @param model Simulation model
+     * @param iterations Number of iterations
+     * @param seed Root seed of the random streams
+     * @param parallelism Number of worker threads; 0 or less uses the engine's pool
+     * @param keepSamples Keep every iteration's outcome for exact percentiles; otherwise
+     *                    only t-digest sketches are built and memory stays constant
+     * @return Aggregated outcome
+     */
+    public SimulationOutcome run(SimulationModel model, int iterations, long seed, int parallelism,
+                                 boolean keepSamples) {
+        return run(model, iterations, seed, parallelism, keepSamples, SamplingMode.RANDOM, null);
+    }
+
+    /**
+     * Run the simulation, optionally stopping early once the tracked percentiles have converged.
+     * Adaptive runs simulate whole batches of chunks and check convergence after each batch.
+     * Because chunk streams are split off the root seed in the same order either way, an adaptive run
+     * that stops after N iterations produces exactly the samples of a fixed run of N iterations
+     * (for Latin hypercube sampling, whose strata span a batch, of a run with the same batches).
+     * @param model Simulation model
+     * @param iterations Number of iterations (the maximum for adaptive runs)
+     * @param seed Root seed of the random streams
+     * @param parallelism Number of worker threads; 0 or less uses the engine's pool
+     * @param keepSamples Keep every iteration's outcome for exact percentiles
+     * @param samplingMode How the uniform numbers behind the sampled durations are drawn
+     * @param criteria Stopping rule, or null to run all iterations
+     * @return Aggregated outcome
+     */
+    public SimulationOutcome run(SimulationModel model, int iterations, long seed, int parallelism,
+                                 boolean keepSamples, SamplingMode samplingMode, ConvergenceCriteria criteria) {
+        return run(model, iterations, seed, parallelism, keepSamples, samplingMode, criteria, false,
+                SimulationMonitor.NONE);
+    }
+
+    /**
+     * Run the simulation, reporting progress per chunk and stopping when the monitor cancels it
+     * @param analyzeActivities Also collect each activity's criticality index and duration correlation
+     *                          (see ActivityStatistics); traces the critical path in every iteration
+     * @param monitor Progress and cancellation hooks
+     * @return Aggregated outcome
+     * @throws CancellationException if the monitor cancelled the run
+     * @see #run(SimulationModel, int, long, int, boolean, SamplingMode, ConvergenceCriteria)
+     */
+    public SimulationOutcome run(SimulationModel model, int iterations, long seed, int parallelism,
+                                 boolean keepSamples, SamplingMode samplingMode, ConvergenceCriteria criteria,
+                                 boolean analyzeActivities, SimulationMonitor monitor) {
+        int chunks = (iterations + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int batchChunks = criteria != null
+                ? Math.max(1, criteria.getBatchIterations() / CHUNK_SIZE)
+                : chunks;
+
+        RunContext run = new RunContext(model, iterations, keepSamples, criteria != null,
+                UniformSampler.create(samplingMode, model.size(), iterations, batchChunks * CHUNK_SIZE, seed),
+                chunks, analyzeActivities, monitor);
+        SplittableRandom root = new SplittableRandom(seed);
+
+        // Merged in chunk order so the statistics do not depend on scheduling
+        RunningMoments durationMoments = new RunningMoments();
+        RunningMoments costMoments = new RunningMoments();
+        TDigest durationDigest = run.sketch ? new MergingDigest(DIGEST_COMPRESSION) : null;
+        TDigest costDigest = run.sketch ? new MergingDigest(DIGEST_COMPRESSION) : null;
+        ActivityStatistics activityStatistics = run.newActivityStatistics();
+
+        boolean dedicated = parallelism > 0 && parallelism < pool.getParallelism();
+        ForkJoinPool runPool = dedicated ? new ForkJoinPool(parallelism) : pool;
+        long start = System.nanoTime();
+        int done = 0;
+        boolean converged = false;
+
+        try {
+            while (done < chunks && !converged) {
+                int batchEnd = Math.min(chunks, done + batchChunks);
+                for (int c = done; c < batchEnd; c++) {
+                    run.streams[c] = root.split();
+                }
+
+                runPool.invoke(new ChunkTask(run, done, batchEnd));
+
+                for (int c = done; c < batchEnd; c++) {
+                    ChunkResult result = run.results[c];
+                    durationMoments.merge(result.durationMoments);
+                    costMoments.merge(result.costMoments);
+                    if (run.sketch) {
+                        durationDigest.add(result.durationDigest);
+                        costDigest.add(result.costDigest);
+                    }
+                    if (activityStatistics != null) {
+                        activityStatistics.merge(result.activityStatistics);
+                    }
+                    run.results[c] = null;
+                }
+                done = batchEnd;
+
+                converged = criteria != null
+                        && criteria.isConverged(durationMoments.getCount(), durationDigest, costDigest);
+            }
+        } finally {
+            if (dedicated) {
+                runPool.shutdown();
+            }
+        }
+
+        int iterationsRun = (int) durationMoments.getCount();
+        long[] completionMillis = run.completionMillis;
+        double[] totalCosts = run.totalCosts;
+
+        if (keepSamples) {
+            if (iterationsRun < iterations) {
+                completionMillis = Arrays.copyOf(completionMillis, iterationsRun);
+                totalCosts = Arrays.copyOf(totalCosts, iterationsRun);
+            }
+            Arrays.parallelSort(completionMillis);
+            Arrays.parallelSort(totalCosts);
+        }
+
+        log.info("Simulated {} of {} iterations ({} sampling) in {} chunks in {} ms{}", iterationsRun, iterations,
+                samplingMode, done, (System.nanoTime() - start) / 1_000_000, converged ? " (converged)" : "");
+
+        return new SimulationOutcome(model.startMillis(), iterationsRun, converged, completionMillis, totalCosts,
+                durationMoments, costMoments, durationDigest, costDigest, activityStatistics);
+    }
+
+    /**
+     * Run the iterations of one chunk
+     */
+    private static ChunkResult runChunk(RunContext run, int chunk) {
+        if (run.monitor.isCancelled()) {
+            throw new CancellationException("Simulation cancelled");
+        }
+
+        SimulationModel model = run.model;
+        SplittableRandom random = run.streams[chunk];
+        ChunkResult result = new ChunkResult(run.sketch, run.newActivityStatistics());
+        ActivityStatistics activityStatistics = result.activityStatistics;
+        int from = chunk * CHUNK_SIZE;
+        int to = Math.min(from + CHUNK_SIZE, run.iterations);
+        int n = model.size();
+        ScheduleNetwork network = model.network();
+
+        // Scratch arrays are reused by every iteration of the chunk
+        double[] u = new double[n];
+        double[] duration = new double[network.size()];
+        double[] earlyFinish = new double[network.size()];
+        // Only the stochastic nodes change between iterations
+        model.resetDurations(duration);
+
+        for (int it = from; it < to; it++) {
+            run.sampler.fill(it, random, u);
+
+            double totalCost = model.sampleIteration(u, duration);
+            double projectDuration = network.forwardPass(duration, earlyFinish);
+            if (activityStatistics != null) {
+                activityStatistics.add(duration, earlyFinish, projectDuration);
+            }
+            long completion = model.completionMillis(projectDuration);
+            result.add(completion - model.startMillis(), totalCost);
+            run.monitor.iterationSimulated(it, completion, totalCost);
+            if (run.completionMillis != null) {
+                run.completionMillis[it] = completion;
+                run.totalCosts[it] = totalCost;
+            }
+        }
+
+        run.monitor.iterationsCompleted(to - from);
+        return result;
+    }
+
+    /**
+     * Shared state of one run, read by all chunk tasks
+     */
+    private static final class RunContext {
+        final SimulationModel model;
+        final int iterations;
+        final boolean sketch;
+        final UniformSampler sampler;
+        final SplittableRandom[] streams;
+        final ChunkResult[] results;
+        final long[] completionMillis;
+        final double[] totalCosts;
+        final SimulationMonitor monitor;
+        final boolean analyzeActivities;
+        final double plannedProjectDuration;
+
+        RunContext(SimulationModel model, int iterations, boolean keepSamples, boolean adaptive,
+                   UniformSampler sampler, int chunks, boolean analyzeActivities, SimulationMonitor monitor) {
+            this.model = model;
+            this.iterations = iterations;
+            this.sketch = !keepSamples || adaptive;
+            this.sampler = sampler;
+            this.streams = new SplittableRandom[chunks];
+            this.results = new ChunkResult[chunks];
+            this.completionMillis = keepSamples ? new long[iterations] : null;
+            this.totalCosts = keepSamples ? new double[iterations] : null;
+            this.monitor = monitor;
+            this.analyzeActivities = analyzeActivities;
+            this.plannedProjectDuration = analyzeActivities ? model.plannedProjectDuration() : 0;
+        }
+
+        ActivityStatistics newActivityStatistics() {
+            return analyzeActivities ? new ActivityStatistics(model, plannedProjectDuration) : null;
+        }
+    }
+
+    /**
+     * Statistics of one chunk's iterations
+     */
+    private static class ChunkResult {
+        final RunningMoments durationMoments = new RunningMoments();
+        final RunningMoments costMoments = new RunningMoments();
+        final TDigest durationDigest;
+        final TDigest costDigest;
+        final ActivityStatistics activityStatistics;
+
+        ChunkResult(boolean sketch, ActivityStatistics activityStatistics) {
+            this.durationDigest = sketch ? new MergingDigest(DIGEST_COMPRESSION) : null;
+            this.costDigest = sketch ? new MergingDigest(DIGEST_COMPRESSION) : null;
+            this.activityStatistics = activityStatistics;
+        }
+
+        void add(long durationMillis, double cost) {
+            durationMoments.add(durationMillis);
+            costMoments.add(cost);
+            if (durationDigest != null) {
+                durationDigest.add(durationMillis);
+                costDigest.add(cost);
+            }
+        }
+    }
+
+    /**
+     * Splits the chunk range in halves until single chunks remain
+     */
+    private static class ChunkTask extends RecursiveAction {
+        private final RunContext run;
+        private final int fromChunk;
+        private final int toChunk;
+
+        ChunkTask(RunContext run, int fromChunk, int toChunk) {
+            this.run = run;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk <= 1) {
+                if (toChunk > fromChunk) {
+                    run.results[fromChunk] = runChunk(run, fromChunk);
+                }
+                return;
+            }
+
+            int mid = (fromChunk + toChunk) >>> 1;
+            invokeAll(new ChunkTask(run, fromChunk, mid), new ChunkTask(run, mid, toChunk));
+        }
+    }
+}
@@ -1,17 +1,25 @@
 package com.example.primaverap6reader.service;
 
 import com.example.primaverap6reader.model.Activity;
+import com.example.primaverap6reader.model.ActivityRisk;
 import com.example.primaverap6reader.model.Project;
+import com.example.primaverap6reader.model.Relationship;
 import com.example.primaverap6reader.model.ResourceAssignment;
+import com.example.primaverap6reader.model.SimulationOptions;
 import com.example.primaverap6reader.model.SimulationResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /**
  * Service for performing Monte Carlo simulations on project schedule and budget data
@@ -21,7 +29,39 @@ import java.util.stream.IntStream;
 @Slf4j
 public class MonteCarloSimulationService {
 
+    private static final int MAX_HISTOGRAM_BINS = 1000;
+
     private final PrimaveraRestService primaveraService;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final MonteCarloEngine monteCarloEngine;
+
+    // Above this many iterations only quantile sketches are kept
+    @Value("${primavera.simulation.maxRawSamples:1000000}")
+    private int maxRawSamples;
+
+    // Adaptive runs stop once every confidence percentile's 95% interval is this narrow
+    @Value("${primavera.simulation.convergence.dateToleranceHours:8}")
+    private double dateToleranceHours;
+
+    @Value("${primavera.simulation.convergence.costTolerance:0.005}")
+    private double costTolerance;
+
+    @Value("${primavera.simulation.convergence.batchIterations:4096}")
+    private int convergenceBatchIterations;
+
+    @Value("${primavera.simulation.modelCacheMaxActivities:2000000}")
+    private long modelCacheMaxActivities;
+
+    private Cache<String, SimulationModel> models;
+
+    @PostConstruct
+    void createModelCache() {
+        // Weighed by network size, which dominates a compiled model's footprint
+        models = Caffeine.newBuilder()
+                .maximumWeight(modelCacheMaxActivities)
+                .weigher((String key, SimulationModel model) -> Math.max(1, model.network().size()))
+                .build();
+    }
 
     /**
      * Perform schedule risk analysis using Monte Carlo simulation
@@ -36,8 +76,49 @@ public class MonteCarloSimulationService {
             int iterations,
             List<Integer> confidenceLevels) {
 
-        log.info("Starting Monte Carlo simulation for project: {} with {} iterations",
-                projectObjectId, iterations);
+        SimulationOptions options = new SimulationOptions();
+        options.setIterations(iterations);
+        options.setConfidenceLevels(confidenceLevels);
+        return performScheduleRiskAnalysis(projectObjectId, options);
+    }
+
+    /**
+     * Perform schedule risk analysis using Monte Carlo simulation
+     *
+     * @param projectObjectId The project's object ID
+     * @param options Iterations, confidence levels, seed, parallelism and sampling options.
+     *                Runs above the configured raw-sample limit always use quantile sketches.
+     * @return SimulationResult containing the simulation outcomes
+     */
+    public SimulationResult performScheduleRiskAnalysis(String projectObjectId, SimulationOptions options) {
+        return performScheduleRiskAnalysis(projectObjectId, options, SimulationMonitor.NONE);
+    }
+
+    /**
+     * Perform schedule risk analysis using Monte Carlo simulation, reporting progress to a monitor
+     *
+     * @param projectObjectId The project's object ID
+     * @param options Iterations, confidence levels, seed, parallelism and sampling options
+     * @param monitor Progress and cancellation hooks of the run
+     * @return SimulationResult containing the simulation outcomes
+     * @throws CancellationException if the monitor cancelled the run
+     */
+    public SimulationResult performScheduleRiskAnalysis(String projectObjectId, SimulationOptions options,
+                                                        SimulationMonitor monitor) {
+        int iterations = options.getIterations();
+        List<Integer> confidenceLevels = options.getConfidenceLevels();
+
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("Number of iterations must be positive");
+        }
+
+        int histogramBins = Math.max(1, Math.min(options.getHistogramBins(), MAX_HISTOGRAM_BINS));
+        long rootSeed = options.getSeed() != null ? options.getSeed() : ThreadLocalRandom.current().nextLong();
+        int parallelism = options.getParallelism();
+
+        log.info("Starting Monte Carlo simulation for project: {} with {} iterations (seed {}, parallelism {}, adaptive {})",
+                projectObjectId, iterations, rootSeed,
+                parallelism > 0 ? parallelism : monteCarloEngine.getMaxParallelism(), options.isAdaptive());
 
         try {
             // Get project data
@@ -51,58 +132,66 @@ public class MonteCarloSimulationService {
             log.info("Retrieved {} activities for project", activities.size());
 
             // Create simulation model
-            Map<String, ActivityDurationModel> durationModels = createDurationModels(activities);
+            SimulationModel model = getSimulationModel(project, activities,
+                    () -> primaveraService.getResourceAssignmentsForProject(projectObjectId),
+                    () -> primaveraService.getRelationshipsForProject(projectObjectId));
 
             // Run simulation
-            List<Date> simulatedCompletionDates = new ArrayList<>(iterations);
-            List<Double> simulatedTotalCosts = new ArrayList<>(iterations);
+            ConvergenceCriteria criteria = options.isAdaptive()
+                    ? new ConvergenceCriteria(confidenceLevels.stream().mapToInt(Integer::intValue).toArray(),
+                            dateToleranceHours, costTolerance, convergenceBatchIterations)
+                    : null;
 
-            for (int i = 0; i < iterations; i++) {
-                SimulationIteration result = runSimulationIteration(project, activities, durationModels);
-                simulatedCompletionDates.add(result.completionDate);
-                simulatedTotalCosts.add(result.totalCost);
-            }
-
-            // Sort results for percentile calculations
-            Collections.sort(simulatedCompletionDates);
-            Collections.sort(simulatedTotalCosts);
+            SimulationOutcome outcome = monteCarloEngine.run(model, iterations, rootSeed, parallelism,
+                    options.isKeepSamples() && iterations <= maxRawSamples, options.getSamplingMode(), criteria,
+                    options.isAnalyzeActivities(), monitor);
 
             // Calculate confidence levels
             Map<Integer, Date> dateConfidenceResults = new HashMap<>();
             Map<Integer, Double> costConfidenceResults = new HashMap<>();
 
             for (int confidence : confidenceLevels) {
-                int index = (int) Math.ceil(iterations * confidence / 100.0) - 1;
-                index = Math.min(index, iterations - 1);
-
-                dateConfidenceResults.put(confidence, simulatedCompletionDates.get(index));
-                costConfidenceResults.put(confidence, simulatedTotalCosts.get(index));
+                dateConfidenceResults.put(confidence, new Date(outcome.completionPercentile(confidence)));
+                costConfidenceResults.put(confidence, outcome.costPercentile(confidence));
             }
 
-            // Calculate mean and standard deviation
-            Date meanCompletionDate = calculateMeanDate(simulatedCompletionDates);
-            double meanTotalCost = simulatedTotalCosts.stream()
-                    .mapToDouble(Double::doubleValue)
-                    .average()
-                    .orElse(0.0);
+            // Mean and standard deviation were accumulated while simulating
+            Date meanCompletionDate = new Date(outcome.getMeanCompletionMillis());
+            double meanTotalCost = outcome.getMeanTotalCost();
 
             // Build and return result
             SimulationResult result = new SimulationResult();
             result.setProjectId(projectObjectId);
             result.setProjectName(project.getName());
-            result.setIterations(iterations);
+            result.setIterations(outcome.getIterations());
+            result.setRequestedIterations(iterations);
+            result.setConverged(outcome.isConverged());
+            result.setSeed(rootSeed);
             result.setMeanCompletionDate(meanCompletionDate);
             result.setMeanTotalCost(meanTotalCost);
             result.setDateConfidenceResults(dateConfidenceResults);
             result.setCostConfidenceResults(costConfidenceResults);
-            result.setSimulatedCompletionDates(simulatedCompletionDates);
-            result.setSimulatedTotalCosts(simulatedTotalCosts);
+            result.setSimulatedCompletionDates(outcome.getCompletionMillis());
+            result.setSimulatedTotalCosts(outcome.getTotalCosts());
+            result.setCompletionDateHistogram(outcome.completionHistogram(histogramBins));
+            result.setTotalCostHistogram(outcome.costHistogram(histogramBins));
+            result.setDateStandardDeviation(outcome.getDateStandardDeviationDays());
+            result.setCostStandardDeviation(outcome.getCostStandardDeviation());
+
+            if (outcome.getActivityStatistics() != null) {
+                rankActivities(result, model, outcome.getActivityStatistics(), activities,
+                        Math.max(0, options.getRankedActivities()));
+            }
 
-            log.info("Completed Monte Carlo simulation for project: {}", projectObjectId);
+            log.info("Completed Monte Carlo simulation for project: {} after {} iterations",
+                    projectObjectId, outcome.getIterations());
             log.info("Mean completion date: {}, Mean cost: ${}", meanCompletionDate, String.format("%.2f", meanTotalCost));
 
             return result;
 
+        } catch (CancellationException e) {
+            log.info("Monte Carlo simulation for project {} was cancelled", projectObjectId);
+            throw e;
         } catch (Exception e) {
             log.error("Error performing Monte Carlo simulation: {}", e.getMessage(), e);
             throw new RuntimeException("Error performing Monte Carlo simulation", e);
@@ -182,10 +271,14 @@ public class MonteCarloSimulationService {
             Project project = findProject(projectObjectId);
             List<Activity> activities = primaveraService.getActivitiesForProject(projectObjectId);
 
-            // Get resource assignments to calculate costs
+            // Get the resource assignments of the project's activities to calculate costs, in one batched request
+            Map<String, List<ResourceAssignment>> assignmentsByActivity =
+                    primaveraService.getResourceAssignmentsForProject(projectObjectId).stream()
+                            .filter(assignment -> assignment.getActivityObjectId() != null)
+                            .collect(Collectors.groupingBy(ResourceAssignment::getActivityObjectId));
             List<ResourceAssignment> assignments = new ArrayList<>();
             for (Activity activity : activities) {
-                assignments.addAll(primaveraService.getResourceAssignmentsForActivity(activity.getObjectId()));
+                assignments.addAll(assignmentsByActivity.getOrDefault(activity.getObjectId(), List.of()));
             }
 
             // Calculate Cost Performance Index (CPI)
@@ -249,150 +342,101 @@ public class MonteCarloSimulationService {
     }
 
     /**
-     * Create duration distribution models for activities
+     * Rank the activities by criticality index and by duration correlation
      */
-    private Map<String, ActivityDurationModel> createDurationModels(List<Activity> activities) {
-        Map<String, ActivityDurationModel> models = new HashMap<>();
-
+    private void rankActivities(SimulationResult result, SimulationModel model, ActivityStatistics statistics,
+                                List<Activity> activities, int limit) {
+        Map<String, Activity> activitiesById = new HashMap<>(activities.size() * 2);
         for (Activity activity : activities) {
-            Double durationHours = activity.getDurationHours();
-
-            if (durationHours != null && durationHours > 0) {
-                ActivityDurationModel model = new ActivityDurationModel();
-
-                // Define triangular distribution parameters
-                model.mostLikely = durationHours;
-                model.optimistic = durationHours * 0.8; // 20% shorter
-                model.pessimistic = durationHours * 1.3; // 30% longer
+            activitiesById.put(activity.getObjectId(), activity);
+        }
 
-                models.put(activity.getObjectId(), model);
-            }
+        List<ActivityRisk> risks = new ArrayList<>(model.size());
+        for (int i = 0; i < model.size(); i++) {
+            Activity activity = activitiesById.get(model.activityObjectId(i));
+            ActivityRisk risk = new ActivityRisk();
+            risk.setActivityObjectId(activity.getObjectId());
+            risk.setActivityId(activity.getId());
+            risk.setActivityName(activity.getName());
+            risk.setCriticalityIndex(statistics.criticalityIndex(model.stochasticNode(i)));
+            risk.setDurationCorrelation(statistics.durationCorrelation(i));
+            risk.setScheduleSensitivity(statistics.scheduleSensitivity(i));
+            risks.add(risk);
         }
 
-        return models;
+        result.setCriticalActivities(risks.stream()
+                .sorted(Comparator.comparingDouble(ActivityRisk::getCriticalityIndex).reversed())
+                .limit(limit)
+                .collect(Collectors.toList()));
+        result.setSensitiveActivities(risks.stream()
+                .sorted(Comparator.comparingDouble((ActivityRisk risk) -> Math.abs(risk.getDurationCorrelation())).reversed())
+                .limit(limit)
+                .collect(Collectors.toList()));
     }
 
     /**
-     * Run a single simulation iteration
+     * Compiled simulation model of a project. Models are shared by single-project and portfolio runs
+     * until the project's data version changes.
+     * @param project The project
+     * @param activities Its activities
+     * @param assignments Loads its resource assignments, called only when the model is not cached
+     * @param relationships Loads its relationships, called only when the model is not cached
+     * @return Simulation model
      */
-    private SimulationIteration runSimulationIteration(
-            Project project,
-            List<Activity> activities,
-            Map<String, ActivityDurationModel> durationModels) {
-
-        // Clone activities for this simulation iteration
-        List<SimulatedActivity> simulatedActivities = activities.stream()
-                .map(this::createSimulatedActivity)
-                .collect(Collectors.toList());
-
-        // Apply duration variations
-        for (SimulatedActivity activity : simulatedActivities) {
-            ActivityDurationModel model = durationModels.get(activity.objectId);
-
-            if (model != null) {
-                // Sample from triangular distribution
-                double randomDuration = sampleTriangularDistribution(
-                        model.optimistic, model.mostLikely, model.pessimistic);
-                activity.duration = randomDuration;
-            }
+    public SimulationModel getSimulationModel(Project project, List<Activity> activities,
+                                              Supplier<List<ResourceAssignment>> assignments,
+                                              Supplier<List<Relationship>> relationships) {
+        String key = project.getObjectId() + '|' + dataVersion(project);
+        SimulationModel cached = models.getIfPresent(key);
+        if (cached != null) {
+            return cached;
         }
 
-        // Calculate simulated completion date
-        Date startDate = project.getStartDate();
-        double totalDuration = simulatedActivities.stream()
-                .mapToDouble(a -> a.duration)
-                .sum();
-
-        // Convert duration from hours to days and add to start date
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(startDate);
-        calendar.add(Calendar.HOUR, (int) Math.ceil(totalDuration));
-
-        Date completionDate = calendar.getTime();
-
-        // Calculate simulated cost
-        double totalCost = calculateSimulatedCost(simulatedActivities, activities);
-
-        return new SimulationIteration(completionDate, totalCost);
-    }
+        if (project.getStartDate() == null) {
+            throw new IllegalStateException("Project has no start date");
+        }
 
-    /**
-     * Sample from a triangular distribution
-     */
-    private double sampleTriangularDistribution(double min, double mode, double max) {
-        double random = ThreadLocalRandom.current().nextDouble();
-        double f = (mode - min) / (max - min);
+        // Models built around a failed read are used once but not cached
+        boolean complete = true;
 
-        if (random < f) {
-            return min + Math.sqrt(random * (max - min) * (mode - min));
-        } else {
-            return max - Math.sqrt((1 - random) * (max - min) * (max - mode));
+        List<ResourceAssignment> projectAssignments;
+        try {
+            projectAssignments = assignments.get();
+        } catch (Exception e) {
+            log.warn("Error getting resource assignments for project {}, simulating without costs: {}",
+                    project.getObjectId(), e.getMessage());
+            projectAssignments = Collections.emptyList();
+            complete = false;
         }
-    }
 
-    /**
-     * Calculate mean date from a list of dates
-     */
-    private Date calculateMeanDate(List<Date> dates) {
-        long sum = 0;
-        for (Date date : dates) {
-            sum += date.getTime();
+        List<Relationship> projectRelationships;
+        try {
+            projectRelationships = relationships.get();
+        } catch (Exception e) {
+            log.warn("Error getting relationships for project {}, simulating activities as one serial chain: {}",
+                    project.getObjectId(), e.getMessage());
+            projectRelationships = null;
+            complete = false;
         }
 
-        long mean = sum / dates.size();
-        return new Date(mean);
-    }
+        SimulationModel model = SimulationModel.build(
+                project.getStartDate().getTime(), activities, projectAssignments, projectRelationships);
+        log.info("Built simulation model for project {} with {} stochastic activities and {} relationships",
+                project.getObjectId(), model.size(), model.network().relationshipCount());
 
-    /**
-     * Create a simulated activity from a regular activity
-     */
-    private SimulatedActivity createSimulatedActivity(Activity activity) {
-        SimulatedActivity simulated = new SimulatedActivity();
-        simulated.objectId = activity.getObjectId();
-        simulated.name = activity.getName();
-        simulated.duration = activity.getDurationHours() != null ? activity.getDurationHours() : 0;
-        return simulated;
+        if (complete) {
+            models.put(key, model);
+        }
+        return model;
     }
 
     /**
-     * Calculate simulated cost based on duration variations
+     * Version of a project's data: its P6 update date plus the number of local refreshes of its caches.
+     * Anything computed from the project's data stays valid while the version is unchanged.
      */
-    private double calculateSimulatedCost(List<SimulatedActivity> simulatedActivities, List<Activity> originalActivities) {
-        double totalCost = 0;
-
-        // Create mapping from activity ID to original and simulated activities
-        Map<String, Activity> originalMap = originalActivities.stream()
-                .collect(Collectors.toMap(Activity::getObjectId, a -> a));
-
-        Map<String, SimulatedActivity> simulatedMap = simulatedActivities.stream()
-                .collect(Collectors.toMap(a -> a.objectId, a -> a));
-
-        // Calculate cost impact based on duration changes
-        for (String activityId : originalMap.keySet()) {
-            Activity original = originalMap.get(activityId);
-            SimulatedActivity simulated = simulatedMap.get(activityId);
-
-            if (original != null && simulated != null && original.getDurationHours() != null && original.getDurationHours() > 0) {
-                double durationRatio = simulated.duration / original.getDurationHours();
-
-                // Get resource assignments for this activity
-                try {
-                    List<ResourceAssignment> assignments = primaveraService.getResourceAssignmentsForActivity(activityId);
-
-                    // Calculate cost based on duration ratio
-                    for (ResourceAssignment assignment : assignments) {
-                        if (assignment.getPlannedCost() != null) {
-                            double simulatedCost = assignment.getPlannedCost() * durationRatio;
-                            totalCost += simulatedCost;
-                        }
-                    }
-                } catch (Exception e) {
-                    log.warn("Error getting resource assignments for activity {}: {}", activityId, e.getMessage());
-                }
-            }
-        }
-
-        return totalCost;
+    public String dataVersion(Project project) {
+        long lastUpdate = project.getLastUpdateDate() != null ? project.getLastUpdateDate().getTime() : 0;
+        return cacheInvalidationService.getDataGeneration(project.getObjectId()) + ":" + lastUpdate;
     }
 
     /**
@@ -477,35 +521,4 @@ public class MonteCarloSimulationService {
                 })
                 .sum();
     }
-
-    /**
-     * Inner class for triangular distribution parameters
-     */
-    private static class ActivityDurationModel {
-        double optimistic;
-        double mostLikely;
-        double pessimistic;
-    }
-
-    /**
-     * Inner class for simulated activities
-     */
-    private static class SimulatedActivity {
-        String objectId;
-        String name;
-        double duration;
-    }
-
-    /**
-     * Inner class for simulation iteration results
-     */
-    private static class SimulationIteration {
-        Date completionDate;
-        double totalCost;
-
-        SimulationIteration(Date completionDate, double totalCost) {
-            this.completionDate = completionDate;
-            this.totalCost = totalCost;
-        }
-    }
-}
\ No newline at end of file
+}
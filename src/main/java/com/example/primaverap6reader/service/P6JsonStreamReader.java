@@ -0,0 +1,59 @@
+package com.example.primaverap6reader.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Decodes P6 JSON array responses record by record, without materializing the whole array
+ */
+@Component
+public class P6JsonStreamReader {
+
+    // Same configuration as the RestTemplate's default Jackson converter, so both decode paths agree
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    /**
+     * Read a JSON array of records and hand each one to the consumer as soon as it is decoded
+     * @param in Response body
+     * @param type Record type
+     * @param consumer Receives each decoded record
+     * @return Number of records read
+     */
+    public <T> long readArray(InputStream in, Class<T> type, Consumer<? super T> consumer) throws IOException {
+        ObjectReader reader = objectMapper.readerFor(type);
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            JsonToken token = parser.nextToken();
+
+            if (token == null) {
+                return 0;
+            }
+
+            // Some P6 endpoints return a bare object when exactly one record matches
+            if (token == JsonToken.START_OBJECT) {
+                consumer.accept(reader.readValue(parser));
+                return 1;
+            }
+
+            if (token != JsonToken.START_ARRAY) {
+                throw new IOException("Expected JSON array but found " + token);
+            }
+
+            long count = 0;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                consumer.accept(reader.readValue(parser));
+                count++;
+            }
+
+            return count;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.primaverap6reader.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * P6 records captured from real responses, per endpoint and keyed by ObjectId.
+ * Responses to different queries on the same endpoint are merged: a record fetched once with some
+ * Fields and later with others keeps the union of its fields. Each endpoint is stored as a JSON array
+ * file, e.g. activity.json, sorted by ObjectId so recordings diff cleanly.
+ */
+public final class P6Recording {
+
+    /**
+     * Endpoints recorded and replayed, lower case as P6 matches them case-insensitively
+     */
+    public static final Set<String> ENDPOINTS = Set.of(
+            "project", "activity", "resourceassignment", "resource", "relationship");
+
+    /**
+     * Orders ObjectIds numerically when both are numbers, as P6 does
+     */
+    public static final Comparator<String> OBJECT_ID_ORDER = (a, b) -> {
+        if (isNumber(a) && isNumber(b)) {
+            return Long.compare(Long.parseLong(a), Long.parseLong(b));
+        }
+        return a.compareTo(b);
+    };
+
+    private final Map<String, Map<String, ObjectNode>> records = new ConcurrentHashMap<>();
+
+    /**
+     * The endpoint a P6 REST path addresses, for both /{endpoint} and /{endpoint}/{id}
+     * @return Lower-case endpoint name, or null for other paths such as /login
+     */
+    public static String endpointOf(String path) {
+        String[] segments = path.split("/");
+        for (int i = segments.length - 1; i >= 0 && i >= segments.length - 2; i--) {
+            String segment = segments[i].toLowerCase(Locale.ROOT);
+            if (ENDPOINTS.contains(segment)) {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Merge the records of a response body (an array of records or a single record)
+     */
+    public void record(String endpoint, JsonNode body) {
+        Map<String, ObjectNode> endpointRecords = records.computeIfAbsent(endpoint, e -> new ConcurrentHashMap<>());
+        Iterable<JsonNode> nodes = body.isArray() ? body : List.of(body);
+        for (JsonNode node : nodes) {
+            JsonNode objectId = node.get("ObjectId");
+            if (!node.isObject() || objectId == null || objectId.isNull()) {
+                continue;
+            }
+            endpointRecords.merge(objectId.asText(), ((ObjectNode) node).deepCopy(), (existing, update) -> {
+                ObjectNode merged = existing.deepCopy();
+                merged.setAll(update);
+                return merged;
+            });
+        }
+    }
+
+    /**
+     * Recorded records of an endpoint, sorted by ObjectId
+     */
+    public List<ObjectNode> records(String endpoint) {
+        Map<String, ObjectNode> endpointRecords = records.getOrDefault(endpoint, Map.of());
+        List<String> objectIds = new ArrayList<>(endpointRecords.keySet());
+        objectIds.sort(OBJECT_ID_ORDER);
+        List<ObjectNode> sorted = new ArrayList<>(objectIds.size());
+        objectIds.forEach(objectId -> sorted.add(endpointRecords.get(objectId)));
+        return sorted;
+    }
+
+    /**
+     * Total number of records over all endpoints
+     */
+    public int size() {
+        return records.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * Read the recording in a directory; endpoints without a file are empty
+     */
+    public static P6Recording load(Path directory, ObjectMapper objectMapper) throws IOException {
+        P6Recording recording = new P6Recording();
+        for (String endpoint : ENDPOINTS) {
+            Path file = directory.resolve(endpoint + ".json");
+            if (Files.isRegularFile(file)) {
+                recording.record(endpoint, objectMapper.readTree(file.toFile()));
+            }
+        }
+        return recording;
+    }
+
+    /**
+     * Write one file per recorded endpoint, each to a temporary name first and then moved into place
+     */
+    public void save(Path directory, ObjectMapper objectMapper) throws IOException {
+        Files.createDirectories(directory);
+        for (String endpoint : records.keySet()) {
+            Path temporary = Files.createTempFile(directory, endpoint, ".tmp");
+            try {
+                objectMapper.writerWithDefaultPrettyPrinter().writeValue(temporary.toFile(), records(endpoint));
+                Files.move(temporary, directory.resolve(endpoint + ".json"),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    private static boolean isNumber(String value) {
+        if (value.isEmpty() || value.length() > 18) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,571 @@
+package com.example.primaverap6reader.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stub P6 REST server answering from a recording made with primavera.recording.enabled, for benchmarks
+ * and load tests without a P6 instance. Started when primavera.replay.enabled is true; point
+ * primavera.api.baseUrl at it (any path prefix works, e.g. http://localhost:8099/p6ws/restapi).
+ * Serves /login and GET /{endpoint} and /{endpoint}/{id} for the recorded endpoints, evaluating the
+ * parts of the P6 query syntax this application uses: Fields, Filter (conditions joined by AND: IN,
+ * =, <>, <, <=, >, >=, IS [NOT] NULL), Sort (or OrderBy), Offset and Limit.
+ * Each response is delayed by primavera.replay.latencyMs, up to latencyJitterMs more and
+ * latencyPerRecordMicros per record returned. With primavera.replay.scale n > 1 the portfolio is served
+ * n times: every project with its activities, assignments and relationships is repeated with remapped
+ * ObjectIds (copy k adds k times a power of ten above the largest recorded ObjectId; non-numeric ones
+ * get a "~k" suffix, as do project Ids and names). Copies are generated per request, not stored.
+ * Resources are shared by all copies.
+ */
+@Component
+@Slf4j
+public class P6ReplayServer {
+
+    private static final Pattern IN_CONDITION =
+            Pattern.compile("^(\\w+)\\s+IN\\s*\\((.*)\\)$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern NULL_CONDITION =
+            Pattern.compile("^(\\w+)\\s+IS\\s+(NOT\\s+)?NULL$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern COMPARISON =
+            Pattern.compile("^(\\w+)\\s*(<>|!=|>=|<=|=|>|<)\\s*(.+)$", Pattern.DOTALL);
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final boolean enabled;
+    private final String bindAddress;
+    private final int port;
+    private final String directory;
+    private final int threads;
+    private final long latencyMs;
+    private final long latencyJitterMs;
+    private final long latencyPerRecordMicros;
+    private final int copies;
+
+    private final Map<String, Table> tables = new HashMap<>();
+    private final AtomicInteger sessions = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private long stride = 1;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public P6ReplayServer(
+            @Value("${primavera.replay.enabled:false}") boolean enabled,
+            @Value("${primavera.replay.bindAddress:127.0.0.1}") String bindAddress,
+            @Value("${primavera.replay.port:8099}") int port,
+            @Value("${primavera.replay.dir:${primavera.recording.dir:p6-recordings}}") String directory,
+            @Value("${primavera.replay.threads:16}") int threads,
+            @Value("${primavera.replay.latencyMs:0}") long latencyMs,
+            @Value("${primavera.replay.latencyJitterMs:0}") long latencyJitterMs,
+            @Value("${primavera.replay.latencyPerRecordMicros:0}") long latencyPerRecordMicros,
+            @Value("${primavera.replay.scale:1}") int scale) {
+        this.enabled = enabled;
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.directory = directory;
+        this.threads = Math.max(1, threads);
+        this.latencyMs = latencyMs;
+        this.latencyJitterMs = latencyJitterMs;
+        this.latencyPerRecordMicros = latencyPerRecordMicros;
+        this.copies = Math.max(1, scale);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        P6Recording recording = P6Recording.load(Paths.get(directory), objectMapper);
+        long maxObjectId = 0;
+        for (String endpoint : P6Recording.ENDPOINTS) {
+            Table table = new Table(endpoint, recording.records(endpoint));
+            tables.put(endpoint, table);
+            for (ObjectNode record : table.records) {
+                Iterator<Map.Entry<String, JsonNode>> fields = record.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    if (isRemappedId(field.getKey()) && isNumber(field.getValue().asText())) {
+                        maxObjectId = Math.max(maxObjectId, Long.parseLong(field.getValue().asText()));
+                    }
+                }
+            }
+        }
+        while (stride <= maxObjectId) {
+            stride *= 10;
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "p6-replay-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        log.info("P6 replay server listening on {}:{} with {} recorded records from {} (scale {}, latency {} ms)",
+                bindAddress, port, recording.size(), directory, copies, latencyMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            log.info("P6 replay server stopped after {} requests", requests.get());
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try {
+            exchange.getRequestBody().readAllBytes();
+            String path = exchange.getRequestURI().getRawPath();
+            if (path.toLowerCase(Locale.ROOT).endsWith("/login")) {
+                exchange.getResponseHeaders().add("Set-Cookie",
+                        "JSESSIONID=replay-" + sessions.incrementAndGet() + "; Path=/; HttpOnly");
+                respond(exchange, 200, objectMapper.createObjectNode(), 0);
+                return;
+            }
+
+            String endpoint = P6Recording.endpointOf(path);
+            if (endpoint == null || !"GET".equals(exchange.getRequestMethod())) {
+                respond(exchange, 404, error("No replayed endpoint for " + exchange.getRequestMethod() + " " + path), 0);
+                return;
+            }
+
+            Table table = tables.get(endpoint);
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String lastSegment = path.substring(path.lastIndexOf('/') + 1);
+            if (!lastSegment.equalsIgnoreCase(endpoint)) {
+                ObjectNode record = findById(table, UriUtils.decode(lastSegment, StandardCharsets.UTF_8));
+                if (record == null) {
+                    respond(exchange, 404, error("No " + endpoint + " " + lastSegment), 0);
+                } else {
+                    respond(exchange, 200, record, 1);
+                }
+                return;
+            }
+
+            ArrayNode body = query(table, query);
+            respond(exchange, 200, body, body.size());
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, error(e.getMessage()), 0);
+        } catch (RuntimeException e) {
+            log.warn("P6 replay request {} failed: {}", exchange.getRequestURI(), e.getMessage(), e);
+            respond(exchange, 500, error(e.getMessage()), 0);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private ArrayNode query(Table table, Map<String, String> query) {
+        List<Condition> conditions = parseFilter(query.get("filter"));
+        List<Row> rows = new ArrayList<>();
+        for (Row row : candidates(table, conditions)) {
+            if (conditions.stream().allMatch(condition -> condition.matches(value(table, row, condition.field)))) {
+                rows.add(row);
+            }
+        }
+
+        String sort = query.containsKey("sort") ? query.get("sort") : query.get("orderby");
+        if (sort != null && !sort.isBlank()) {
+            rows.sort(sortOrder(table, sort));
+        }
+
+        int offset = Math.max(0, parseInt(query.get("offset"), 0));
+        int limit = Math.max(0, parseInt(query.get("limit"), Integer.MAX_VALUE));
+        List<String> fields = query.containsKey("fields") ? Arrays.asList(query.get("fields").split("\\s*,\\s*")) : null;
+
+        ArrayNode body = objectMapper.createArrayNode();
+        for (int i = offset; i < rows.size() && body.size() < limit; i++) {
+            body.add(materialize(table, rows.get(i), fields));
+        }
+        return body;
+    }
+
+    /**
+     * Rows to test against the filter: through an index when it has an IN or = condition, otherwise all
+     */
+    private Collection<Row> candidates(Table table, List<Condition> conditions) {
+        Condition indexed = conditions.stream()
+                .filter(condition -> condition.operator.equals("IN") || condition.operator.equals("="))
+                .findFirst()
+                .orElse(null);
+        if (indexed == null) {
+            List<Row> all = new ArrayList<>(table.records.size() * copiesOf(table));
+            for (int copy = 0; copy < copiesOf(table); copy++) {
+                for (int index = 0; index < table.records.size(); index++) {
+                    all.add(new Row(copy, index));
+                }
+            }
+            return all;
+        }
+
+        Set<Row> rows = new TreeSet<>();
+        for (String value : indexed.values) {
+            for (Map.Entry<Integer, String> original : originals(table, indexed.field, value).entrySet()) {
+                for (int index : table.rowsWith(indexed.field, original.getValue())) {
+                    if (original.getKey() >= 0) {
+                        rows.add(new Row(original.getKey(), index));
+                    } else {
+                        for (int copy = 0; copy < copiesOf(table); copy++) {
+                            rows.add(new Row(copy, index));
+                        }
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    private ObjectNode findById(Table table, String id) {
+        for (String field : List.of("ObjectId", "Id")) {
+            for (Row row : candidates(table, List.of(new Condition(field, "=", List.of(id))))) {
+                JsonNode value = value(table, row, field);
+                if (value != null && id.equals(value.asText())) {
+                    return materialize(table, row, null);
+                }
+            }
+        }
+        return null;
+    }
+
+    private ObjectNode materialize(Table table, Row row, List<String> fields) {
+        ObjectNode record = table.records.get(row.index);
+        ObjectNode node = objectMapper.createObjectNode();
+        Iterable<String> names = fields != null ? fields : (Iterable<String>) record::fieldNames;
+        for (String field : names) {
+            JsonNode value = value(table, row, field);
+            if (value != null) {
+                node.set(field, value);
+            }
+        }
+        return node;
+    }
+
+    private Comparator<Row> sortOrder(Table table, String sort) {
+        Comparator<Row> order = null;
+        for (String key : sort.split("\\s*,\\s*")) {
+            String[] parts = key.trim().split("\\s+");
+            String field = parts[0];
+            Comparator<Row> byField = (a, b) -> compareValues(value(table, a, field), value(table, b, field));
+            if (parts.length > 1 && parts[1].equalsIgnoreCase("DESC")) {
+                byField = byField.reversed();
+            }
+            order = order == null ? byField : order.thenComparing(byField);
+        }
+        return order;
+    }
+
+    /**
+     * A field of a record as served in a copy of the portfolio
+     */
+    private JsonNode value(Table table, Row row, String field) {
+        JsonNode value = table.records.get(row.index).get(field);
+        if (row.copy == 0 || value == null || value.isNull()) {
+            return value;
+        }
+        if (isRemappedId(field)) {
+            String text = value.asText();
+            if (isNumber(text)) {
+                long remapped = Long.parseLong(text) + row.copy * stride;
+                return value.isNumber() ? LongNode.valueOf(remapped) : TextNode.valueOf(Long.toString(remapped));
+            }
+            return TextNode.valueOf(text + "~" + row.copy);
+        }
+        if (isCopyLabel(table.endpoint, field)) {
+            return TextNode.valueOf(value.asText() + "~" + row.copy);
+        }
+        return value;
+    }
+
+    /**
+     * Which copies a served value can come from, with the recorded value behind it; copy -1 means any copy
+     */
+    private Map<Integer, String> originals(Table table, String field, String value) {
+        if (copiesOf(table) == 1 || !(isRemappedId(field) || isCopyLabel(table.endpoint, field))) {
+            return Map.of(-1, value);
+        }
+        if (isRemappedId(field) && isNumber(value)) {
+            long id = Long.parseLong(value);
+            long copy = id / stride;
+            return copy < copies ? Map.of((int) copy, Long.toString(id % stride)) : Map.of();
+        }
+        int separator = value.lastIndexOf('~');
+        if (separator > 0 && isNumber(value.substring(separator + 1))) {
+            long copy = Long.parseLong(value.substring(separator + 1));
+            return copy > 0 && copy < copies ? Map.of((int) copy, value.substring(0, separator)) : Map.of();
+        }
+        return Map.of(0, value);
+    }
+
+    private int copiesOf(Table table) {
+        return table.endpoint.equals("resource") ? 1 : copies;
+    }
+
+    private static boolean isRemappedId(String field) {
+        return field.endsWith("ObjectId") && !field.equals("ResourceObjectId");
+    }
+
+    private static boolean isCopyLabel(String endpoint, String field) {
+        return field.equals("ProjectId") || endpoint.equals("project") && (field.equals("Id") || field.equals("Name"));
+    }
+
+    private static List<Condition> parseFilter(String filter) {
+        List<Condition> conditions = new ArrayList<>();
+        if (filter == null || filter.isBlank()) {
+            return conditions;
+        }
+        for (String part : splitOnAnd(filter)) {
+            Matcher matcher;
+            if ((matcher = IN_CONDITION.matcher(part)).matches()) {
+                List<String> values = new ArrayList<>();
+                for (String value : matcher.group(2).split(",")) {
+                    if (!value.isBlank()) {
+                        values.add(unquote(value));
+                    }
+                }
+                conditions.add(new Condition(matcher.group(1), "IN", values));
+            } else if ((matcher = NULL_CONDITION.matcher(part)).matches()) {
+                conditions.add(new Condition(matcher.group(1), matcher.group(2) != null ? "NOT NULL" : "NULL", List.of()));
+            } else if ((matcher = COMPARISON.matcher(part)).matches()) {
+                conditions.add(new Condition(matcher.group(1), matcher.group(2), List.of(unquote(matcher.group(3)))));
+            } else {
+                throw new IllegalArgumentException("Unsupported filter condition: " + part);
+            }
+        }
+        return conditions;
+    }
+
+    /**
+     * Split a filter on AND outside quotes and parentheses
+     */
+    private static List<String> splitOnAnd(String filter) {
+        List<String> parts = new ArrayList<>();
+        int depth = 0;
+        boolean quoted = false;
+        int start = 0;
+        for (int i = 0; i < filter.length(); i++) {
+            char c = filter.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && c == '(') {
+                depth++;
+            } else if (!quoted && c == ')') {
+                depth--;
+            } else if (!quoted && depth == 0 && filter.regionMatches(true, i, " AND ", 0, 5)) {
+                parts.add(filter.substring(start, i).trim());
+                start = i + 5;
+                i += 4;
+            }
+        }
+        parts.add(filter.substring(start).trim());
+        return parts;
+    }
+
+    private static String unquote(String value) {
+        String trimmed = value.trim();
+        if (trimmed.length() >= 2 && trimmed.startsWith("'") && trimmed.endsWith("'")) {
+            return trimmed.substring(1, trimmed.length() - 1);
+        }
+        return trimmed;
+    }
+
+    /**
+     * Compare values numerically when both are numbers, otherwise as text; ISO dates sort correctly as text
+     */
+    private static int compareValues(JsonNode a, JsonNode b) {
+        boolean aNull = a == null || a.isNull();
+        boolean bNull = b == null || b.isNull();
+        if (aNull || bNull) {
+            return Boolean.compare(!aNull, !bNull);
+        }
+        return compareText(a.asText(), b.asText());
+    }
+
+    private static int compareText(String a, String b) {
+        try {
+            return Double.compare(Double.parseDouble(a), Double.parseDouble(b));
+        } catch (NumberFormatException e) {
+            return a.compareTo(b);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0) {
+                // Keys lower case, as P6 accepts e.g. Filter and filter alike
+                query.put(UriUtils.decode(parameter.substring(0, separator), StandardCharsets.UTF_8).toLowerCase(Locale.ROOT),
+                        UriUtils.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + value);
+        }
+    }
+
+    private static boolean isNumber(String value) {
+        if (value.isEmpty() || value.length() > 18) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ObjectNode error(String message) {
+        return objectMapper.createObjectNode().put("message", message);
+    }
+
+    private void respond(HttpExchange exchange, int status, JsonNode body, int records) throws IOException {
+        long delayMicros = TimeUnit.MILLISECONDS.toMicros(latencyMs) + records * latencyPerRecordMicros;
+        if (latencyJitterMs > 0) {
+            delayMicros += ThreadLocalRandom.current().nextLong(TimeUnit.MILLISECONDS.toMicros(latencyJitterMs) + 1);
+        }
+        if (delayMicros > 0) {
+            try {
+                TimeUnit.MICROSECONDS.sleep(delayMicros);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Recorded records of one endpoint, with per-field value indexes built on first use
+     */
+    private static final class Table {
+        final String endpoint;
+        final List<ObjectNode> records;
+        final Map<String, Map<String, List<Integer>>> indexes = new ConcurrentHashMap<>();
+
+        Table(String endpoint, List<ObjectNode> records) {
+            this.endpoint = endpoint;
+            this.records = records;
+        }
+
+        List<Integer> rowsWith(String field, String value) {
+            return indexes.computeIfAbsent(field, f -> {
+                Map<String, List<Integer>> index = new HashMap<>();
+                for (int row = 0; row < records.size(); row++) {
+                    JsonNode node = records.get(row).get(f);
+                    if (node != null && !node.isNull()) {
+                        index.computeIfAbsent(node.asText(), v -> new ArrayList<>()).add(row);
+                    }
+                }
+                return index;
+            }).getOrDefault(value, List.of());
+        }
+    }
+
+    /**
+     * A recorded record in one copy of the portfolio; ordered by copy, then recorded (ObjectId) order
+     */
+    private static final class Row implements Comparable<Row> {
+        final int copy;
+        final int index;
+
+        Row(int copy, int index) {
+            this.copy = copy;
+            this.index = index;
+        }
+
+        @Override
+        public int compareTo(Row other) {
+            return copy != other.copy ? Integer.compare(copy, other.copy) : Integer.compare(index, other.index);
+        }
+    }
+
+    private static final class Condition {
+        final String field;
+        final String operator;
+        final List<String> values;
+
+        Condition(String field, String operator, List<String> values) {
+            this.field = field;
+            this.operator = operator;
+            this.values = values;
+        }
+
+        boolean matches(JsonNode value) {
+            boolean isNull = value == null || value.isNull();
+            switch (operator) {
+                case "NULL":
+                    return isNull;
+                case "NOT NULL":
+                    return !isNull;
+                case "IN":
+                    return !isNull && values.contains(value.asText());
+                default:
+                    if (isNull) {
+                        return false;
+                    }
+                    int comparison = compareText(value.asText(), values.get(0));
+                    switch (operator) {
+                        case "=":
+                            return comparison == 0;
+                        case "<>":
+                        case "!=":
+                            return comparison != 0;
+                        case "<":
+                            return comparison < 0;
+                        case "<=":
+                            return comparison <= 0;
+                        case ">":
+                            return comparison > 0;
+                        default:
+                            return comparison >= 0;
+                    }
+            }
+        }
+    }
+}
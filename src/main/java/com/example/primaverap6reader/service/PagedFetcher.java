@@ -0,0 +1,265 @@
+package com.example.primaverap6reader.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Splits an unbounded P6 read into concurrent Offset/Limit windows and merges them back in order.
+ * The window size adapts to the observed per-window latency and is remembered between fetches of the
+ * same endpoint, since endpoints and field lists differ widely in cost per record.
+ * A server may return fewer records than the Limit asked for (a configured maximum page size), so a
+ * short window only ends the data if the endpoint has answered that Limit in full before; otherwise one
+ * more window after it confirms the end. A confirmed cap also caps the window size of the endpoint.
+ */
+@Component
+@Slf4j
+public class PagedFetcher {
+
+    /**
+     * Loads one Offset/Limit window
+     */
+    @FunctionalInterface
+    public interface PageLoader<T> {
+        List<T> load(int offset, int limit);
+    }
+
+    private final ConcurrentFetcher concurrentFetcher;
+    private final int minWindow;
+    private final int maxWindow;
+    private final int maxWindowsInFlight;
+    private final long targetLatencyMs;
+    private final int initialWindow;
+    private final Map<String, EndpointState> endpoints = new ConcurrentHashMap<>();
+
+    public PagedFetcher(
+            ConcurrentFetcher concurrentFetcher,
+            @Value("${primavera.api.paging.initialWindow:2000}") int initialWindow,
+            @Value("${primavera.api.paging.minWindow:250}") int minWindow,
+            @Value("${primavera.api.paging.maxWindow:10000}") int maxWindow,
+            @Value("${primavera.api.paging.maxWindowsInFlight:4}") int maxWindowsInFlight,
+            @Value("${primavera.api.paging.targetLatencyMs:3000}") long targetLatencyMs) {
+
+        this.concurrentFetcher = concurrentFetcher;
+        this.minWindow = minWindow;
+        this.maxWindow = maxWindow;
+        this.maxWindowsInFlight = maxWindowsInFlight;
+        this.targetLatencyMs = targetLatencyMs;
+        this.initialWindow = Math.max(minWindow, Math.min(maxWindow, initialWindow));
+    }
+
+    /**
+     * Fetch every record by reading consecutive windows concurrently until a short window marks the end
+     * @param endpoint Endpoint and field list, e.g. "activity"; fetches of the same one share window sizes
+     * @param label Description used in log messages
+     * @param loader Loads one window
+     * @param pageConsumer Receives each non-empty window in offset order, as soon as all earlier windows have arrived
+     * @return Total number of records fetched
+     */
+    public <T> long fetchAll(String endpoint, String label, PageLoader<T> loader, Consumer<List<T>> pageConsumer) {
+        EndpointState state = endpoints.computeIfAbsent(endpoint, e -> new EndpointState(initialWindow));
+        BlockingQueue<Window<T>> finished = new LinkedBlockingQueue<>();
+        NavigableMap<Integer, Window<T>> arrived = new TreeMap<>();
+        Set<Integer> inFlight = new HashSet<>();
+
+        int windowSize = state.windowLimit(state.preferredWindow);
+        int nextOffset = 0;
+        int emitOffset = 0;
+        int endOffset = Integer.MAX_VALUE;
+        boolean endEmitted = false;
+        // Probe with a single window first so small projects cost one request
+        int windowsInFlightLimit = 1;
+        long total = 0;
+        int windows = 0;
+
+        while (true) {
+            // Keep the pipeline full until the end of the data has been seen
+            while (endOffset == Integer.MAX_VALUE && inFlight.size() < windowsInFlightLimit) {
+                launch(loader, nextOffset, windowSize, 0, finished);
+                inFlight.add(nextOffset);
+                nextOffset += windowSize;
+            }
+
+            if (inFlight.isEmpty()) {
+                break;
+            }
+
+            Window<T> window = take(finished);
+            inFlight.remove(window.offset);
+
+            if (window.error != null) {
+                // Windows past the end of the data carry nothing, so their failures do not matter
+                if (endEmitted || window.offset >= endOffset) {
+                    continue;
+                }
+                if (window.limit <= minWindow) {
+                    throw window.error;
+                }
+
+                // Retry a failed (typically timed-out) window as two smaller windows
+                int half = window.limit / 2;
+                log.warn("Window {}+{} failed for {} ({}), retrying as two windows",
+                        window.offset, window.limit, label, window.error.getMessage());
+                launch(loader, window.offset, half, 0, finished);
+                launch(loader, window.offset + half, window.limit - half, 0, finished);
+                inFlight.add(window.offset);
+                inFlight.add(window.offset + half);
+                windowSize = Math.max(minWindow, half);
+                continue;
+            }
+
+            windows++;
+            int count = window.records.size();
+            if (window.cappedAt > 0 && count > 0) {
+                // The window before this one was cut short by the server, not by the end of the data
+                if (state.serverCap != window.cappedAt) {
+                    log.warn("P6 returns at most {} records per request for {}, limiting its windows to that",
+                            window.cappedAt, endpoint);
+                }
+                state.capAt(window.cappedAt);
+            }
+            windowSize = state.windowLimit(adjustWindow(windowSize, window.latencyMs));
+
+            if (count == window.limit) {
+                state.answeredInFull(window.limit);
+                windowsInFlightLimit = maxWindowsInFlight;
+                window.span = window.limit;
+            } else if (count == 0 || window.limit <= state.confirmedLimit) {
+                window.end = true;
+                endOffset = Math.min(endOffset, window.offset + count);
+            } else if (window.offset + count < endOffset) {
+                // Short, but maybe only capped: the window after its records confirms the end or continues
+                window.span = count;
+                launch(loader, window.offset + count, window.limit - count, count, finished);
+                inFlight.add(window.offset + count);
+            }
+
+            if (endEmitted) {
+                continue;
+            }
+
+            arrived.put(window.offset, window);
+
+            // Emit every window that is now contiguous with what has already been emitted
+            Window<T> next;
+            while (!endEmitted && (next = arrived.remove(emitOffset)) != null) {
+                if (!next.records.isEmpty()) {
+                    pageConsumer.accept(next.records);
+                    total += next.records.size();
+                }
+                emitOffset += next.span;
+                endEmitted = next.end;
+            }
+        }
+
+        state.preferredWindow = windowSize;
+        log.info("Fetched {} records for {} in {} windows (next window size {})", total, label, windows, windowSize);
+        return total;
+    }
+
+    /**
+     * @param cappedAt Record count of the short window this one continues, or 0
+     */
+    private <T> void launch(PageLoader<T> loader, int offset, int limit, int cappedAt,
+                            BlockingQueue<Window<T>> finished) {
+        CompletableFuture<Window<T>> future = concurrentFetcher.submit(() -> {
+            long start = System.nanoTime();
+            List<T> records = loader.load(offset, limit);
+            long latencyMs = (System.nanoTime() - start) / 1_000_000;
+            return new Window<>(offset, limit, cappedAt, records, latencyMs, null);
+        });
+
+        future.whenComplete((window, error) -> {
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                RuntimeException failure = cause instanceof RuntimeException
+                        ? (RuntimeException) cause
+                        : new RuntimeException(cause);
+                finished.add(new Window<>(offset, limit, cappedAt, Collections.emptyList(), 0, failure));
+            } else {
+                finished.add(window);
+            }
+        });
+    }
+
+    /**
+     * Grow the window while responses are fast, shrink it when they approach the server timeout
+     */
+    private int adjustWindow(int windowSize, long latencyMs) {
+        if (latencyMs > targetLatencyMs) {
+            return Math.max(minWindow, windowSize / 2);
+        }
+        if (latencyMs < targetLatencyMs / 2) {
+            return Math.min(maxWindow, windowSize * 2);
+        }
+        return windowSize;
+    }
+
+    private static <T> Window<T> take(BlockingQueue<Window<T>> queue) {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for P6 page", e);
+        }
+    }
+
+    /**
+     * What has been learned about paging one endpoint; updated without locking, as a lost update only
+     * costs a window size adjustment or one more confirming request
+     */
+    private final class EndpointState {
+        volatile int preferredWindow;
+        // Largest Limit answered in full: a shorter window with at most this Limit is the end of the data
+        volatile int confirmedLimit;
+        // Most records the server returns per request, or 0 while no capped response has been seen
+        volatile int serverCap;
+
+        EndpointState(int preferredWindow) {
+            this.preferredWindow = preferredWindow;
+        }
+
+        int windowLimit(int windowSize) {
+            return serverCap > 0 ? Math.min(windowSize, serverCap) : windowSize;
+        }
+
+        void answeredInFull(int limit) {
+            if (limit > confirmedLimit) {
+                confirmedLimit = limit;
+            }
+        }
+
+        void capAt(int cap) {
+            serverCap = cap;
+            confirmedLimit = Math.min(confirmedLimit, cap);
+        }
+    }
+
+    private static class Window<T> {
+        final int offset;
+        final int limit;
+        final int cappedAt;
+        final List<T> records;
+        final long latencyMs;
+        final RuntimeException error;
+        // Set on arrival: offsets covered by the window, and whether it ends the data
+        int span;
+        boolean end;
+
+        Window(int offset, int limit, int cappedAt, List<T> records, long latencyMs, RuntimeException error) {
+            this.offset = offset;
+            this.limit = limit;
+            this.cappedAt = cappedAt;
+            this.records = records;
+            this.latencyMs = latencyMs;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.Activity;
+import com.example.primaverap6reader.model.ActivityDrag;
+import com.example.primaverap6reader.model.PathAnalysis;
+import com.example.primaverap6reader.model.SchedulePath;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Critical path drag and near-critical path analysis on the cached CPM schedules of CriticalPathService.
+ * Analyses are cached (projectPaths) until the project's activities or relationships change, as the
+ * project analytics page shows one on every load.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PathAnalysisService {
+
+    private static final int MAX_PATHS = 100;
+
+    private final CriticalPathService criticalPathService;
+
+    /**
+     * Analyze the paths of a project
+     * @param projectObjectId Project Object ID
+     * @param limit Maximum number of paths to list
+     * @param floatThreshold List paths with at most this much total float (hours)
+     * @return Drag of every critical activity and the longest paths
+     */
+    @Cacheable(value = "projectPaths", key = "{#projectObjectId, #limit, #floatThreshold}", sync = true)
+    public PathAnalysis analyzePaths(String projectObjectId, int limit, double floatThreshold) {
+        if (floatThreshold < 0) {
+            throw new IllegalArgumentException("Float threshold must not be negative");
+        }
+        int pathLimit = Math.max(0, Math.min(limit, MAX_PATHS));
+
+        return criticalPathService.withSchedule(projectObjectId, (schedule, byNode) -> {
+            long start = System.nanoTime();
+            double[] drag = SchedulePaths.drag(schedule);
+            List<SchedulePaths.Path> longest = SchedulePaths.longestPaths(schedule, pathLimit, floatThreshold);
+
+            PathAnalysis analysis = new PathAnalysis();
+            analysis.setProjectId(projectObjectId);
+            analysis.setProjectDuration(schedule.getProjectFinish());
+            analysis.setFloatThreshold(floatThreshold);
+
+            List<ActivityDrag> criticalActivities = new ArrayList<>();
+            for (int node = 0; node < schedule.size(); node++) {
+                if (schedule.isCritical(node)) {
+                    ActivityDrag entry = new ActivityDrag();
+                    entry.setActivityObjectId(byNode[node].getObjectId());
+                    entry.setActivityId(byNode[node].getId());
+                    entry.setActivityName(byNode[node].getName());
+                    entry.setDuration(schedule.duration(node));
+                    entry.setDrag(drag[node]);
+                    criticalActivities.add(entry);
+                }
+            }
+            criticalActivities.sort(Comparator.comparingDouble(ActivityDrag::getDrag).reversed());
+            analysis.setCriticalActivities(criticalActivities);
+
+            analysis.setPaths(longest.stream()
+                    .map(path -> toSchedulePath(path, byNode, schedule.getProjectFinish()))
+                    .collect(Collectors.toList()));
+
+            log.info("Analyzed paths of project {}: {} critical activities, {} paths, in {} ms",
+                    projectObjectId, criticalActivities.size(), longest.size(), (System.nanoTime() - start) / 1_000_000);
+            return analysis;
+        });
+    }
+
+    private static SchedulePath toSchedulePath(SchedulePaths.Path path, Activity[] byNode, double projectFinish) {
+        List<String> objectIds = new ArrayList<>(path.nodes().length);
+        List<String> ids = new ArrayList<>(path.nodes().length);
+        for (int node : path.nodes()) {
+            objectIds.add(byNode[node].getObjectId());
+            ids.add(byNode[node].getId());
+        }
+
+        SchedulePath schedulePath = new SchedulePath();
+        schedulePath.setLength(path.length());
+        schedulePath.setTotalFloat(Math.max(0, projectFinish - path.length()));
+        schedulePath.setActivityObjectIds(objectIds);
+        schedulePath.setActivityIds(ids);
+        return schedulePath;
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.Activity;
+import com.example.primaverap6reader.model.PortfolioSimulationResult;
+import com.example.primaverap6reader.model.Project;
+import com.example.primaverap6reader.model.ProjectSimulationSummary;
+import com.example.primaverap6reader.model.Relationship;
+import com.example.primaverap6reader.model.ResourceAssignment;
+import com.example.primaverap6reader.model.SamplingMode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Monte Carlo simulation of every project in one run, e.g. overnight, with results written to the
+ * PortfolioSimulationStore for the dashboards.
+ * Projects reuse the compiled simulation models of single-project runs and are simulated a few at a
+ * time, each on the engine's fork-join pool, so small projects keep the cores busy while large ones run.
+ * Per-project percentiles come from the engine's mergeable t-digest sketches, so memory per project
+ * stays constant. The portfolio's total cost is the sum of the project costs of the same iteration
+ * (projects are simulated as independent); it is accumulated in one array of iteration totals,
+ * because merging the project sketches would give the mixture of the project costs, not their sum.
+ * Per-project seeds are split off the run's seed in project order and the totals are summed in project
+ * order, so a seeded run is reproducible however the projects are scheduled.
+ */
+@Service
+@Slf4j
+public class PortfolioSimulationService {
+
+    private final MonteCarloSimulationService simulationService;
+    private final PrimaveraRestService primaveraService;
+    private final MonteCarloEngine monteCarloEngine;
+    private final PortfolioSimulationStore store;
+    private final ThreadPoolTaskExecutor coordinator;
+    private final ThreadPoolTaskExecutor projectExecutor;
+    private final int concurrentProjects;
+    private final int defaultIterations;
+    private final List<Integer> confidenceLevels;
+    private final int histogramBins;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicInteger completedProjects = new AtomicInteger();
+    private volatile int totalProjects;
+    private volatile boolean shuttingDown;
+
+    public PortfolioSimulationService(
+            MonteCarloSimulationService simulationService,
+            PrimaveraRestService primaveraService,
+            MonteCarloEngine monteCarloEngine,
+            PortfolioSimulationStore store,
+            @Value("${primavera.simulation.portfolio.concurrentProjects:4}") int concurrentProjects,
+            @Value("${primavera.simulation.portfolio.iterations:10000}") int defaultIterations,
+            @Value("${primavera.simulation.portfolio.confidenceLevels:50,80,90,95}") int[] confidenceLevels,
+            @Value("${primavera.simulation.portfolio.histogramBins:20}") int histogramBins) {
+
+        this.simulationService = simulationService;
+        this.primaveraService = primaveraService;
+        this.monteCarloEngine = monteCarloEngine;
+        this.store = store;
+        this.concurrentProjects = Math.max(1, concurrentProjects);
+        this.defaultIterations = defaultIterations;
+        this.confidenceLevels = Arrays.stream(confidenceLevels).boxed().collect(Collectors.toList());
+        this.histogramBins = Math.max(1, histogramBins);
+
+        this.coordinator = new ThreadPoolTaskExecutor();
+        coordinator.setCorePoolSize(1);
+        coordinator.setMaxPoolSize(1);
+        coordinator.setThreadNamePrefix("portfolio-simulation-");
+        coordinator.setWaitForTasksToCompleteOnShutdown(false);
+        coordinator.initialize();
+
+        // The coordinator never has more than concurrentProjects runs in flight, so the queue stays short
+        this.projectExecutor = new ThreadPoolTaskExecutor();
+        projectExecutor.setCorePoolSize(this.concurrentProjects);
+        projectExecutor.setMaxPoolSize(this.concurrentProjects);
+        projectExecutor.setThreadNamePrefix("portfolio-project-");
+        projectExecutor.setWaitForTasksToCompleteOnShutdown(false);
+        projectExecutor.initialize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        coordinator.shutdown();
+        projectExecutor.shutdown();
+    }
+
+    /**
+     * Nightly run, scheduled by primavera.simulation.portfolio.cron (disabled unless set)
+     */
+    @Scheduled(cron = "${primavera.simulation.portfolio.cron:-}")
+    public void runScheduled() {
+        if (!start(null, null)) {
+            log.warn("Skipping scheduled portfolio simulation: the previous run is still in progress");
+        }
+    }
+
+    /**
+     * Start a portfolio simulation in the background; the result goes to the store
+     * @param iterations Iterations per project, or null for the configured default
+     * @param seed Root seed, or null for a random one
+     * @return false if a portfolio simulation is already running
+     */
+    public boolean start(Integer iterations, Long seed) {
+        int runIterations = iterations != null ? iterations : defaultIterations;
+        if (runIterations <= 0) {
+            throw new IllegalArgumentException("Number of iterations must be positive");
+        }
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+
+        long runSeed = seed != null ? seed : ThreadLocalRandom.current().nextLong();
+        completedProjects.set(0);
+        totalProjects = 0;
+        try {
+            coordinator.execute(() -> {
+                try {
+                    store.save(simulatePortfolio(runIterations, runSeed));
+                } catch (CancellationException e) {
+                    log.info("Portfolio simulation was cancelled");
+                } catch (Exception e) {
+                    log.error("Error performing portfolio simulation: {}", e.getMessage(), e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Number of projects simulated so far by the current or last run
+     */
+    public int getCompletedProjects() {
+        return completedProjects.get();
+    }
+
+    /**
+     * Number of projects in the current or last run, 0 until its data is loaded
+     */
+    public int getTotalProjects() {
+        return totalProjects;
+    }
+
+    /**
+     * Simulate every project and aggregate the portfolio cost
+     * @param iterations Iterations per project, the same for all so that iteration totals line up
+     * @param seed Root seed
+     * @return Portfolio result
+     */
+    public PortfolioSimulationResult simulatePortfolio(int iterations, long seed) {
+        Date startedAt = new Date();
+        log.info("Starting portfolio simulation with {} iterations per project (seed {}, {} projects at a time)",
+                iterations, seed, concurrentProjects);
+
+        // Bulk loads fill the per-project caches the single-project simulations use as well
+        List<Project> projects = primaveraService.getAllProjects();
+        List<String> projectIds = projects.stream().map(Project::getObjectId).collect(Collectors.toList());
+        totalProjects = projects.size();
+
+        Map<String, List<Activity>> activities = primaveraService.getActivitiesForProjects(projectIds);
+        Map<String, List<ResourceAssignment>> assignments = loadAll("resource assignments",
+                () -> primaveraService.getResourceAssignmentsForProjects(projectIds));
+        Map<String, List<Relationship>> relationships = loadAll("relationships",
+                () -> primaveraService.getRelationshipsForProjects(projectIds));
+
+        SplittableRandom seeds = new SplittableRandom(seed);
+        double[] portfolioCosts = new double[iterations];
+        List<ProjectSimulationSummary> summaries = new ArrayList<>(projects.size());
+        int failed = 0;
+
+        // Sliding window of project runs, reduced in project order
+        Deque<CompletableFuture<ProjectRun>> inFlight = new ArrayDeque<>();
+        for (Project project : projects) {
+            if (inFlight.size() >= concurrentProjects) {
+                failed += reduce(ConcurrentFetcher.join(inFlight.poll()), summaries, portfolioCosts);
+            }
+
+            long projectSeed = seeds.nextLong();
+            String projectId = project.getObjectId();
+            inFlight.add(CompletableFuture.supplyAsync(() -> simulateProject(project,
+                    activities.getOrDefault(projectId, Collections.emptyList()),
+                    () -> projectData(assignments, projectId, "resource assignments"),
+                    () -> projectData(relationships, projectId, "relationships"),
+                    iterations, projectSeed), projectExecutor));
+        }
+        while (!inFlight.isEmpty()) {
+            failed += reduce(ConcurrentFetcher.join(inFlight.poll()), summaries, portfolioCosts);
+        }
+
+        RunningMoments moments = new RunningMoments();
+        for (double cost : portfolioCosts) {
+            moments.add(cost);
+        }
+        Arrays.sort(portfolioCosts);
+        Map<Integer, Double> costConfidenceResults = new HashMap<>();
+        for (int confidence : confidenceLevels) {
+            costConfidenceResults.put(confidence, SimulationOutcome.percentile(portfolioCosts, confidence));
+        }
+
+        PortfolioSimulationResult result = new PortfolioSimulationResult();
+        result.setRunId(UUID.randomUUID().toString());
+        result.setStartedAt(startedAt);
+        result.setFinishedAt(new Date());
+        result.setIterations(iterations);
+        result.setSeed(seed);
+        result.setConfidenceLevels(confidenceLevels);
+        result.setProjectCount(projects.size());
+        result.setFailedProjectCount(failed);
+        result.setProjects(summaries);
+        result.setMeanPortfolioCost(moments.getMean());
+        result.setPortfolioCostStandardDeviation(moments.getStandardDeviation());
+        result.setPortfolioCostConfidenceResults(costConfidenceResults);
+        result.setPortfolioCostHistogram(SimulationOutcome.histogram(portfolioCosts, histogramBins));
+
+        log.info("Completed portfolio simulation of {} projects ({} failed) in {} ms, mean portfolio cost: ${}",
+                projects.size(), failed, result.getFinishedAt().getTime() - startedAt.getTime(),
+                String.format("%.2f", moments.getMean()));
+        return result;
+    }
+
+    /**
+     * Add a finished project to the portfolio
+     * @return 1 if the project failed, 0 otherwise
+     */
+    private int reduce(ProjectRun run, List<ProjectSimulationSummary> summaries, double[] portfolioCosts) {
+        summaries.add(run.summary);
+        if (run.costs == null) {
+            return 1;
+        }
+        for (int i = 0; i < portfolioCosts.length; i++) {
+            portfolioCosts[i] += run.costs[i];
+        }
+        return 0;
+    }
+
+    /**
+     * Simulate one project, keeping sketches for its percentiles and every iteration's cost for the
+     * portfolio total. Failures are recorded in the summary; only cancellation is thrown.
+     */
+    private ProjectRun simulateProject(Project project, List<Activity> activities,
+                                       Supplier<List<ResourceAssignment>> assignments,
+                                       Supplier<List<Relationship>> relationships,
+                                       int iterations, long seed) {
+        ProjectSimulationSummary summary = new ProjectSimulationSummary();
+        summary.setProjectId(project.getObjectId());
+        summary.setProjectName(project.getName());
+        summary.setDataVersion(simulationService.dataVersion(project));
+        summary.setSeed(seed);
+
+        try {
+            if (activities.isEmpty()) {
+                throw new IllegalStateException("No activities found for project");
+            }
+            SimulationModel model = simulationService.getSimulationModel(project, activities, assignments, relationships);
+
+            double[] costs = new double[iterations];
+            SimulationMonitor monitor = new SimulationMonitor() {
+                @Override
+                public void iterationsCompleted(int count) {
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return shuttingDown;
+                }
+
+                @Override
+                public void iterationSimulated(int iteration, long completionMillis, double totalCost) {
+                    costs[iteration] = totalCost;
+                }
+            };
+
+            SimulationOutcome outcome = monteCarloEngine.run(model, iterations, seed, 0, false,
+                    SamplingMode.RANDOM, null, false, monitor);
+
+            Map<Integer, Date> dateConfidenceResults = new HashMap<>();
+            Map<Integer, Double> costConfidenceResults = new HashMap<>();
+            for (int confidence : confidenceLevels) {
+                dateConfidenceResults.put(confidence, new Date(outcome.completionPercentile(confidence)));
+                costConfidenceResults.put(confidence, outcome.costPercentile(confidence));
+            }
+            summary.setMeanCompletionDate(new Date(outcome.getMeanCompletionMillis()));
+            summary.setDateStandardDeviation(outcome.getDateStandardDeviationDays());
+            summary.setDateConfidenceResults(dateConfidenceResults);
+            summary.setMeanTotalCost(outcome.getMeanTotalCost());
+            summary.setCostStandardDeviation(outcome.getCostStandardDeviation());
+            summary.setCostConfidenceResults(costConfidenceResults);
+            return new ProjectRun(summary, costs);
+
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Portfolio simulation skipped project {}: {}", project.getObjectId(), e.getMessage());
+            summary.setError(e.getMessage());
+            return new ProjectRun(summary, null);
+        } finally {
+            completedProjects.incrementAndGet();
+        }
+    }
+
+    /**
+     * Bulk-load one kind of project data, or null if the load failed. Models are then built with the
+     * fallbacks of getSimulationModel and not cached.
+     */
+    private <T> Map<String, List<T>> loadAll(String what, Supplier<Map<String, List<T>>> loader) {
+        try {
+            return loader.get();
+        } catch (Exception e) {
+            log.warn("Error loading {} for the portfolio simulation: {}", what, e.getMessage());
+            return null;
+        }
+    }
+
+    private static <T> List<T> projectData(Map<String, List<T>> data, String projectId, String what) {
+        if (data == null) {
+            throw new IllegalStateException("Could not load " + what);
+        }
+        return data.getOrDefault(projectId, Collections.emptyList());
+    }
+
+    /**
+     * A simulated project: its summary and every iteration's cost, or no costs if it failed
+     */
+    private static final class ProjectRun {
+        final ProjectSimulationSummary summary;
+        final double[] costs;
+
+        ProjectRun(ProjectSimulationSummary summary, double[] costs) {
+            this.summary = summary;
+            this.costs = costs;
+        }
+    }
+}
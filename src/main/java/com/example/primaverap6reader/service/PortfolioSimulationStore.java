@@ -0,0 +1,120 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.PortfolioSimulationResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.*;
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * File store of portfolio simulation results, so dashboards read the last run instead of recomputing it.
+ * Each run is one JSON file named by its start time; the newest is also kept in memory and reloaded
+ * at startup. Files are written to a temporary name and moved into place, so readers never see a
+ * partial file.
+ */
+@Service
+@Slf4j
+public class PortfolioSimulationStore {
+
+    private static final String PREFIX = "portfolio-simulation-";
+    private static final String SUFFIX = ".json";
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final Path directory;
+    private final int keepRuns;
+    private volatile PortfolioSimulationResult latest;
+
+    public PortfolioSimulationStore(
+            @Value("${primavera.simulation.portfolio.storeDir:portfolio-simulations}") String directory,
+            @Value("${primavera.simulation.portfolio.keepRuns:14}") int keepRuns) {
+        this.directory = Paths.get(directory);
+        this.keepRuns = Math.max(1, keepRuns);
+    }
+
+    @PostConstruct
+    void loadLatest() {
+        List<Path> files = listRuns();
+        for (int i = files.size() - 1; i >= 0 && latest == null; i--) {
+            try {
+                latest = objectMapper.readValue(files.get(i).toFile(), PortfolioSimulationResult.class);
+                log.info("Loaded portfolio simulation result {} from {}", latest.getRunId(), files.get(i));
+            } catch (IOException e) {
+                log.warn("Could not read portfolio simulation result {}: {}", files.get(i), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Result of the newest run, or null if none has completed
+     */
+    public PortfolioSimulationResult getLatest() {
+        return latest;
+    }
+
+    /**
+     * Store a completed run and make it the latest. Older runs beyond the configured number are deleted.
+     * The result stays available in memory if it cannot be written.
+     */
+    public void save(PortfolioSimulationResult result) {
+        latest = result;
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd'T'HHmmssSSS'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Path file = directory.resolve(PREFIX + format.format(result.getStartedAt()) + "-" + result.getRunId() + SUFFIX);
+
+        try {
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, PREFIX, ".tmp");
+            try {
+                objectMapper.writeValue(temporary.toFile(), result);
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+            log.info("Stored portfolio simulation result {} in {}", result.getRunId(), file);
+        } catch (IOException e) {
+            log.error("Could not store portfolio simulation result {}: {}", result.getRunId(), e.getMessage(), e);
+            return;
+        }
+
+        List<Path> files = listRuns();
+        for (int i = 0; i < files.size() - keepRuns; i++) {
+            try {
+                Files.delete(files.get(i));
+            } catch (IOException e) {
+                log.warn("Could not delete old portfolio simulation result {}: {}", files.get(i), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stored runs, oldest first (the file names sort by start time)
+     */
+    private List<Path> listRuns() {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            log.warn("Could not list portfolio simulation results in {}: {}", directory, e.getMessage());
+            return List.of();
+        }
+    }
+}
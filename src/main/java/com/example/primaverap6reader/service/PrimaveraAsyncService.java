@@ -0,0 +1,105 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.Activity;
+import com.example.primaverap6reader.model.Project;
+import com.example.primaverap6reader.model.Relationship;
+import com.example.primaverap6reader.model.Resource;
+import com.example.primaverap6reader.model.ResourceAssignment;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Future-returning variants of the PrimaveraRestService calls.
+ * Calls go through the cached service proxy and run on the bounded P6 request executor, so callers
+ * can start several independent loads and join them together.
+ */
+@Service
+@RequiredArgsConstructor
+public class PrimaveraAsyncService {
+
+    private final PrimaveraRestService primaveraService;
+    private final ConcurrentFetcher concurrentFetcher;
+
+    public CompletableFuture<List<Project>> getAllProjectsAsync() {
+        return concurrentFetcher.submit(primaveraService::getAllProjects);
+    }
+
+    public CompletableFuture<List<Project>> getProjectsWithPaginationAsync(int page, int size) {
+        return concurrentFetcher.submit(() -> primaveraService.getProjectsWithPagination(page, size));
+    }
+
+    public CompletableFuture<List<Project>> getFilteredProjectsAsync(
+            String nameFilter, String statusFilter, String sortBy, String sortDirection, int page, int size) {
+        return concurrentFetcher.submit(() -> primaveraService.getFilteredProjects(
+                nameFilter, statusFilter, sortBy, sortDirection, page, size));
+    }
+
+    public CompletableFuture<Integer> getTotalProjectCountAsync() {
+        return concurrentFetcher.submit(primaveraService::getTotalProjectCount);
+    }
+
+    public CompletableFuture<Project> getProjectByIdAsync(String projectId) {
+        return concurrentFetcher.submit(() -> primaveraService.getProjectById(projectId));
+    }
+
+    public CompletableFuture<List<Activity>> getActivitiesForProjectAsync(String projectObjectId) {
+        return concurrentFetcher.submit(() -> primaveraService.getActivitiesForProject(projectObjectId));
+    }
+
+    public CompletableFuture<List<Activity>> getActivitiesForProjectWithPaginationAsync(
+            String projectObjectId, int page, int size) {
+        return concurrentFetcher.submit(() ->
+                primaveraService.getActivitiesForProjectWithPagination(projectObjectId, page, size));
+    }
+
+    public CompletableFuture<List<Activity>> getFilteredActivitiesAsync(
+            String projectObjectId, String nameFilter, String typeFilter, String statusFilter,
+            String sortBy, String sortDirection, int page, int size) {
+        return concurrentFetcher.submit(() -> primaveraService.getFilteredActivities(
+                projectObjectId, nameFilter, typeFilter, statusFilter, sortBy, sortDirection, page, size));
+    }
+
+    public CompletableFuture<Integer> getTotalActivityCountAsync(String projectObjectId) {
+        return concurrentFetcher.submit(() -> primaveraService.getTotalActivityCount(projectObjectId));
+    }
+
+    public CompletableFuture<Map<String, List<Activity>>> getActivitiesForProjectsAsync(
+            Collection<String> projectObjectIds) {
+        return concurrentFetcher.submit(() -> primaveraService.getActivitiesForProjects(projectObjectIds));
+    }
+
+    public CompletableFuture<List<ResourceAssignment>> getResourceAssignmentsForActivityAsync(String activityObjectId) {
+        return concurrentFetcher.submit(() -> primaveraService.getResourceAssignmentsForActivity(activityObjectId));
+    }
+
+    public CompletableFuture<List<ResourceAssignment>> getResourceAssignmentsForProjectAsync(String projectObjectId) {
+        return concurrentFetcher.submit(() -> primaveraService.getResourceAssignmentsForProject(projectObjectId));
+    }
+
+    public CompletableFuture<Map<String, List<ResourceAssignment>>> getResourceAssignmentsForProjectsAsync(
+            Collection<String> projectObjectIds) {
+        return concurrentFetcher.submit(() -> primaveraService.getResourceAssignmentsForProjects(projectObjectIds));
+    }
+
+    public CompletableFuture<List<Relationship>> getRelationshipsForProjectAsync(String projectObjectId) {
+        return concurrentFetcher.submit(() -> primaveraService.getRelationshipsForProject(projectObjectId));
+    }
+
+    public CompletableFuture<Map<String, List<Relationship>>> getRelationshipsForProjectsAsync(
+            Collection<String> projectObjectIds) {
+        return concurrentFetcher.submit(() -> primaveraService.getRelationshipsForProjects(projectObjectIds));
+    }
+
+    public CompletableFuture<List<Resource>> getAllResourcesAsync() {
+        return concurrentFetcher.submit(primaveraService::getAllResources);
+    }
+
+    public CompletableFuture<Map<String, Double>> calculateResourceAllocationAsync() {
+        return concurrentFetcher.submit(primaveraService::calculateResourceAllocation);
+    }
+}
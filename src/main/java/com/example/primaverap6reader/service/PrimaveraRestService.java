@@ -2,11 +2,13 @@ package com.example.primaverap6reader.service;
 
 import com.example.primaverap6reader.model.Activity;
 import com.example.primaverap6reader.model.Project;
+import com.example.primaverap6reader.model.Relationship;
 import com.example.primaverap6reader.model.Resource;
 import com.example.primaverap6reader.model.ResourceAssignment;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -17,27 +19,61 @@ import org.springframework.web.client.RestTemplate;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collector;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class PrimaveraRestService {
 
+    private static final String ACTIVITY_FIELDS =
+            "Id,Name,ObjectId,ProjectObjectId,Status,Type,WBSName,StartDate,FinishDate,PlannedDuration,LastUpdateDate";
+
+    private static final String PROJECT_FIELDS =
+            "Name,ObjectId,Id,Status,StartDate,FinishDate,DataDate,Description,LastUpdateDate";
+
+    private static final String RELATIONSHIP_FIELDS =
+            "ObjectId,PredecessorActivityObjectId,SuccessorActivityObjectId,PredecessorProjectObjectId,SuccessorProjectObjectId,Type,Lag";
+
+    private static final String RESOURCE_ASSIGNMENT_FIELDS =
+            "ObjectId,ActivityId,ActivityObjectId,ProjectObjectId,ResourceId,ResourceObjectId,ResourceName,PlannedUnits,ActualUnits,RemainingUnits,PlannedCost,ActualCost,RemainingCost,PlannedStartDate,PlannedFinishDate,ActualStartDate,ActualFinishDate,LastUpdateDate";
+
+    private static final DateTimeFormatter P6_DATE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss").withZone(ZoneOffset.UTC);
+
     private final RestTemplate restTemplate;
+    private final P6JsonStreamReader jsonStreamReader;
+    private final PagedFetcher pagedFetcher;
+    private final InFilterBatcher inFilterBatcher;
+    private final CacheManager cacheManager;
     private final String baseUrl;
     private final String username;
     private final String password;
     private final String databaseName;
-    private String cookies;
+    private volatile String cookies;
 
     public PrimaveraRestService(
+            RestTemplate p6RestTemplate,
+            P6JsonStreamReader jsonStreamReader,
+            PagedFetcher pagedFetcher,
+            InFilterBatcher inFilterBatcher,
+            CacheManager cacheManager,
             @Value("${primavera.api.baseUrl}") String baseUrl,
             @Value("${primavera.api.username}") String username,
             @Value("${primavera.api.password}") String password,
             @Value("${primavera.api.databaseName:}") String databaseName) {
 
-        this.restTemplate = new RestTemplate();
+        this.restTemplate = p6RestTemplate;
+        this.jsonStreamReader = jsonStreamReader;
+        this.pagedFetcher = pagedFetcher;
+        this.inFilterBatcher = inFilterBatcher;
+        this.cacheManager = cacheManager;
         this.baseUrl = baseUrl;
         this.username = username;
         this.password = password;
@@ -48,7 +84,7 @@ public class PrimaveraRestService {
      * Login using the method described in Oracle documentation
      * @return boolean indicating if login was successful
      */
-    public boolean login() {
+    public synchronized boolean login() {
         try {
             log.info("Attempting login to Primavera P6...");
 
@@ -123,11 +159,38 @@ public class PrimaveraRestService {
         return headers;
     }
 
+    /**
+     * Execute a GET request and decode the JSON array response record by record
+     * @param url Request URL
+     * @param type Record type
+     * @param consumer Receives each decoded record
+     * @return Number of records read
+     */
+    private <T> long streamRecords(String url, Class<T> type, Consumer<? super T> consumer) {
+        HttpHeaders headers = createApiHeaders();
+
+        Long count = restTemplate.execute(url, HttpMethod.GET,
+                request -> request.getHeaders().putAll(headers),
+                response -> jsonStreamReader.readArray(response.getBody(), type, consumer));
+
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Look up an entry that is already cached, without loading it
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T getCachedValue(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        Cache.ValueWrapper wrapper = cache != null ? cache.get(key) : null;
+        return wrapper != null ? (T) wrapper.get() : null;
+    }
+
     /**
      * Get all projects
      * @return List of Project objects
      */
-    @Cacheable(value = "allProjects")
+    @Cacheable(value = "allProjects", sync = true)
     public List<Project> getAllProjects() {
         // Check if logged in
         if (cookies == null) {
@@ -139,7 +202,7 @@ public class PrimaveraRestService {
         }
 
         // Build URL with fields parameter to limit returned data
-        String url = baseUrl + "/project?Fields=Name,ObjectId,Id,Status,StartDate,FinishDate,DataDate,Description";
+        String url = baseUrl + "/project?Fields=" + PROJECT_FIELDS;
 
         HttpEntity<String> entity = new HttpEntity<>(createApiHeaders());
 
@@ -169,7 +232,7 @@ public class PrimaveraRestService {
      * @param size Page size
      * @return List of Project objects for the requested page
      */
-    @Cacheable(value = "projectsPage", key = "{#page, #size}")
+    @Cacheable(value = "projectsPage", key = "{#page, #size}", sync = true)
     public List<Project> getProjectsWithPagination(int page, int size) {
         // Check if logged in
         if (cookies == null) {
@@ -184,7 +247,7 @@ public class PrimaveraRestService {
         int offset = page * size;
 
         // Build URL with pagination parameters
-        String url = baseUrl + "/project?Fields=Name,ObjectId,Id,Status,StartDate,FinishDate,DataDate,Description" +
+        String url = baseUrl + "/project?Fields=" + PROJECT_FIELDS +
                 "&Offset=" + offset + "&Limit=" + size;
 
         HttpEntity<String> entity = new HttpEntity<>(createApiHeaders());
@@ -219,7 +282,8 @@ public class PrimaveraRestService {
      * @param size Page size
      * @return List of filtered and sorted Project objects
      */
-    @Cacheable(value = "filteredProjects", key = "{#nameFilter, #statusFilter, #sortBy, #sortDirection, #page, #size}")
+    @Cacheable(value = "filteredProjects", key = "{#nameFilter, #statusFilter, #sortBy, #sortDirection, #page, #size}",
+            sync = true)
     public List<Project> getFilteredProjects(
             String nameFilter,
             String statusFilter,
@@ -243,7 +307,7 @@ public class PrimaveraRestService {
 
             // Start with base project query
             StringBuilder urlBuilder = new StringBuilder(baseUrl);
-            urlBuilder.append("/project?Fields=Name,ObjectId,Id,Status,StartDate,FinishDate,DataDate,Description");
+            urlBuilder.append("/project?Fields=").append(PROJECT_FIELDS);
 
             // Initialize the base filter if needed
             urlBuilder.append("&Filter=Id IS NOT NULL");
@@ -303,7 +367,7 @@ public class PrimaveraRestService {
      * Get total count of projects (for pagination)
      * @return Total number of projects
      */
-    @Cacheable(value = "projectCount")
+    @Cacheable(value = "projectCount", sync = true)
     public int getTotalProjectCount() {
         // Some P6 REST APIs provide a Count endpoint or header
         // If not available, retrieve all projects and count them
@@ -315,7 +379,7 @@ public class PrimaveraRestService {
      * @param projectId Project ID
      * @return Project object
      */
-    @Cacheable(value = "project", key = "#projectId")
+    @Cacheable(value = "project", key = "#projectId", sync = true)
     public Project getProjectById(String projectId) {
         // Check if logged in
         if (cookies == null) {
@@ -376,9 +440,9 @@ public class PrimaveraRestService {
     /**
      * Get activities for a specific project with enhanced logging and error handling
      * @param projectObjectId Project Object ID
-     * @return List of Activity objects
+     * @return Activities, as a columnar ActivityTable
      */
-    @Cacheable(value = "projectActivities", key = "#projectObjectId")
+    @Cacheable(value = "projectActivities", key = "#projectObjectId", sync = true)
     public List<Activity> getActivitiesForProject(String projectObjectId) {
         // Check if logged in
         if (cookies == null) {
@@ -389,70 +453,26 @@ public class PrimaveraRestService {
             }
         }
 
-        // Include PlannedDuration in the Fields parameter
-        String url = baseUrl + "/activity?Filter=ProjectObjectId IN(" + projectObjectId +
-                ")&Fields=Id,Name,ObjectId,Status,Type,WBSName,StartDate,FinishDate,PlannedDuration";
-
-        HttpEntity<String> entity = new HttpEntity<>(createApiHeaders());
-
         log.info("Fetching activities for project ObjectId: {}", projectObjectId);
-        log.info("Request URL: {}", url);
 
         try {
-            ResponseEntity<Activity[]> response = restTemplate.exchange(
-                    url, HttpMethod.GET, entity, Activity[].class);
-
-            if (response.getBody() != null) {
-                List<Activity> activities = Arrays.asList(response.getBody());
+            // Read the project in concurrent Offset/Limit windows, merged back in order into columns
+            ActivityTable.Builder builder = ActivityTable.builder();
+            fetchActivitiesPaged(projectObjectId, builder::addAll);
 
-                // Detailed logging of activities and their details
-                log.info("Successfully retrieved {} activities for project {}", activities.size(), projectObjectId);
-                for (Activity activity : activities) {
-                    log.info("Activity Details:");
-                    log.info("  Name: {}", activity.getName());
-                    log.info("  ID: {}", activity.getId());
-                    log.info("  ObjectId: {}", activity.getObjectId());
-                    log.info("  Type: {}", activity.getType());
-                    log.info("  Status: {}", activity.getStatus());
-
-                    // Explicit date logging with null checks
-                    if (activity.getStartDate() != null) {
-                        log.info("  Start Date: {} (Timestamp: {})",
-                                activity.getStartDate(),
-                                activity.getStartDate().getTime());
-                    } else {
-                        log.warn("  Start Date: NULL for activity {}", activity.getName());
-                    }
-
-                    if (activity.getFinishDate() != null) {
-                        log.info("  Finish Date: {} (Timestamp: {})",
-                                activity.getFinishDate(),
-                                activity.getFinishDate().getTime());
-                    } else {
-                        log.warn("  Finish Date: NULL for activity {}", activity.getName());
-                    }
-
-                    // Log Planned Duration
-                    if (activity.getPlannedDuration() != null) {
-                        log.info("  Planned Duration: {} hours", activity.getPlannedDuration());
-                    } else {
-                        log.warn("  Planned Duration: NULL for activity {}", activity.getName());
-                    }
-
-                    // Log calculated duration
-                    Double durationHours = activity.getDurationHours();
-                    if (durationHours != null) {
-                        log.info("  Calculated Duration: {} hours", durationHours);
-                    } else {
-                        log.warn("  Unable to calculate duration for activity {}", activity.getName());
-                    }
-                }
-
-                return activities;
-            } else {
+            if (builder.size() == 0) {
                 log.warn("No activities found or null response body for project {}", projectObjectId);
-                return Collections.emptyList();
+                return ActivityTable.empty();
+            }
+
+            ActivityTable activities = builder.build();
+            log.info("Successfully retrieved {} activities for project {} (~{} KB)",
+                    activities.size(), projectObjectId, activities.estimatedBytes() / 1024);
+            if (log.isDebugEnabled()) {
+                activities.forEach(this::logActivityDetails);
             }
+
+            return activities;
         } catch (HttpClientErrorException e) {
             log.error("HTTP Error fetching activities: {}", e.getMessage());
             log.error("Response Body: {}", e.getResponseBodyAsString());
@@ -464,6 +484,446 @@ public class PrimaveraRestService {
         }
     }
 
+    /**
+     * Detailed per-activity logging of activities and their details
+     */
+    private void logActivityDetails(Activity activity) {
+        log.debug("Activity Details:");
+        log.debug("  Name: {}", activity.getName());
+        log.debug("  ID: {}", activity.getId());
+        log.debug("  ObjectId: {}", activity.getObjectId());
+        log.debug("  Type: {}", activity.getType());
+        log.debug("  Status: {}", activity.getStatus());
+
+        // Explicit date logging with null checks
+        if (activity.getStartDate() != null) {
+            log.debug("  Start Date: {} (Timestamp: {})",
+                    activity.getStartDate(),
+                    activity.getStartDate().getTime());
+        } else {
+            log.debug("  Start Date: NULL for activity {}", activity.getName());
+        }
+
+        if (activity.getFinishDate() != null) {
+            log.debug("  Finish Date: {} (Timestamp: {})",
+                    activity.getFinishDate(),
+                    activity.getFinishDate().getTime());
+        } else {
+            log.debug("  Finish Date: NULL for activity {}", activity.getName());
+        }
+
+        // Log Planned Duration
+        if (activity.getPlannedDuration() != null) {
+            log.debug("  Planned Duration: {} hours", activity.getPlannedDuration());
+        } else {
+            log.debug("  Planned Duration: NULL for activity {}", activity.getName());
+        }
+
+        // Log calculated duration
+        Double durationHours = activity.getDurationHours();
+        if (durationHours != null) {
+            log.debug("  Calculated Duration: {} hours", durationHours);
+        } else {
+            log.debug("  Unable to calculate duration for activity {}", activity.getName());
+        }
+    }
+
+    /**
+     * Read all activities of a project through the paged fetch engine
+     * @param projectObjectId Project Object ID
+     * @param pageConsumer Receives each page of activities in order, as soon as it can be merged
+     * @return Number of activities read
+     */
+    private long fetchActivitiesPaged(String projectObjectId, Consumer<List<Activity>> pageConsumer) {
+        return pagedFetcher.fetchAll("activity", "project " + projectObjectId + " activities", (offset, limit) -> {
+            // Sort by ObjectId so that concurrent windows partition the project deterministically
+            String url = baseUrl + "/activity?Filter=ProjectObjectId IN(" + projectObjectId +
+                    ")&Fields=" + ACTIVITY_FIELDS + "&Sort=ObjectId ASC" +
+                    "&Offset=" + offset + "&Limit=" + limit;
+
+            List<Activity> page = new ArrayList<>();
+            streamRecords(url, Activity.class, page::add);
+            return page;
+        }, pageConsumer);
+    }
+
+    /**
+     * Get activities for many projects at once with multi-project ProjectObjectId IN queries.
+     * Projects already in the projectActivities cache are served from it; the rest are fetched
+     * in bulk, split by project and written into the cache.
+     * @param projectObjectIds Project Object IDs
+     * @return Map of project ObjectId to its activities as a columnar ActivityTable, in the given order
+     */
+    public Map<String, List<Activity>> getActivitiesForProjects(Collection<String> projectObjectIds) {
+        return loadByProject("projectActivities", projectObjectIds, missing -> {
+            Map<String, ActivityTable.Builder> builders = new HashMap<>();
+            missing.forEach(id -> builders.put(id, ActivityTable.builder()));
+
+            streamActivitiesFromP6(missing, activity -> {
+                ActivityTable.Builder builder = builders.get(activity.getProjectObjectId());
+                if (builder != null) {
+                    builder.add(activity);
+                }
+            });
+
+            Map<String, List<Activity>> loaded = new HashMap<>();
+            builders.forEach((id, builder) -> loaded.put(id, builder.build()));
+            return loaded;
+        });
+    }
+
+    /**
+     * The activities of a project if they are cached, without loading them
+     * @param projectObjectId Project Object ID
+     * @return Cached activities as a columnar ActivityTable, or null if the project is not cached
+     */
+    public ActivityTable getCachedActivities(String projectObjectId) {
+        List<Activity> cached = getCachedValue("projectActivities", projectObjectId);
+        return cached != null ? ActivityTable.of(cached) : null;
+    }
+
+    /**
+     * Stream the activities of a project to a consumer without building the full list.
+     * Served from the projectActivities cache when the project is already loaded; otherwise decoded
+     * from P6 page by page and not cached.
+     * @param projectObjectId Project Object ID
+     * @param consumer Receives each activity as it is decoded
+     * @return Number of activities streamed
+     */
+    public long streamActivitiesForProject(String projectObjectId, Consumer<? super Activity> consumer) {
+        return streamActivitiesForProjects(List.of(projectObjectId), consumer);
+    }
+
+    /**
+     * Reduce the activities of a project with a collector, in memory proportional to the result
+     * @param projectObjectId Project Object ID
+     * @param collector Collector applied to the activity stream
+     * @return Collector result
+     */
+    public <A, R> R collectActivitiesForProject(String projectObjectId, Collector<? super Activity, A, R> collector) {
+        A container = collector.supplier().get();
+        BiConsumer<A, ? super Activity> accumulator = collector.accumulator();
+        streamActivitiesForProject(projectObjectId, activity -> accumulator.accept(container, activity));
+        return collector.finisher().apply(container);
+    }
+
+    /**
+     * Stream the activities of many projects to a consumer without building their lists, for callers
+     * that only aggregate. Cached projects are served from the projectActivities cache; the rest are
+     * decoded from multi-project ProjectObjectId IN queries page by page and not cached, so memory stays
+     * bounded by the pages in flight whatever the size of the portfolio.
+     * @param projectObjectIds Project Object IDs
+     * @param consumer Receives each activity; called by one thread at a time
+     * @return Number of activities streamed
+     */
+    public long streamActivitiesForProjects(Collection<String> projectObjectIds, Consumer<? super Activity> consumer) {
+        List<String> missing = new ArrayList<>();
+        long count = 0;
+        for (String projectObjectId : new LinkedHashSet<>(projectObjectIds)) {
+            List<Activity> cached = getCachedValue("projectActivities", projectObjectId);
+            if (cached != null) {
+                cached.forEach(consumer);
+                count += cached.size();
+            } else {
+                missing.add(projectObjectId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return count;
+        }
+
+        requireLogin("streaming activities");
+        log.info("Streaming activities for {} projects ({} already cached)",
+                missing.size(), projectObjectIds.size() - missing.size());
+
+        try {
+            return count + streamActivitiesFromP6(missing, consumer);
+        } catch (Exception e) {
+            log.error("Error streaming activities for {} projects: {}", missing.size(), e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Decode the activities of projects from P6 with multi-project ProjectObjectId IN queries
+     */
+    private long streamActivitiesFromP6(List<String> projectObjectIds, Consumer<? super Activity> consumer) {
+        // Each activity belongs to exactly one project, so the chunks cannot overlap
+        return inFilterBatcher.<Activity>streamAll("ProjectObjectId", projectObjectIds,
+                (filter, chunkConsumer) -> pagedFetcher.fetchAll("activity", "bulk activities", (offset, limit) -> {
+                    String url = baseUrl + "/activity?Filter=" + filter + "&Fields=" + ACTIVITY_FIELDS +
+                            "&Sort=ObjectId ASC&Offset=" + offset + "&Limit=" + limit;
+                    List<Activity> page = new ArrayList<>();
+                    streamRecords(url, Activity.class, page::add);
+                    return page;
+                }, page -> page.forEach(chunkConsumer)),
+                null,
+                consumer);
+    }
+
+    /**
+     * Get resource assignments for many projects at once with multi-project ProjectObjectId IN queries.
+     * Projects already in the projectResourceAssignments cache are served from it; the rest are fetched
+     * in bulk, split by project and written into the cache.
+     * @param projectObjectIds Project Object IDs
+     * @return Map of project ObjectId to its resource assignments, in the given order
+     */
+    public Map<String, List<ResourceAssignment>> getResourceAssignmentsForProjects(Collection<String> projectObjectIds) {
+        return loadByProject("projectResourceAssignments", projectObjectIds, missing -> {
+            Map<String, List<ResourceAssignment>> loaded = new HashMap<>();
+            missing.forEach(id -> loaded.put(id, new ArrayList<>()));
+
+            streamResourceAssignmentsFromP6(missing,
+                    assignment -> addToProject(loaded, assignment.getProjectObjectId(), assignment));
+
+            return loaded;
+        });
+    }
+
+    /**
+     * Stream the resource assignments of a project to a consumer without building the full list.
+     * Served from the projectResourceAssignments cache when the project is already loaded; otherwise
+     * decoded from P6 page by page and not cached.
+     * @param projectObjectId Project Object ID
+     * @param consumer Receives each assignment as it is decoded
+     * @return Number of assignments streamed
+     */
+    public long streamResourceAssignmentsForProject(String projectObjectId,
+                                                    Consumer<? super ResourceAssignment> consumer) {
+        List<ResourceAssignment> cached = getCachedValue("projectResourceAssignments", projectObjectId);
+        if (cached != null) {
+            cached.forEach(consumer);
+            return cached.size();
+        }
+
+        requireLogin("streaming resource assignments");
+        log.info("Streaming resource assignments for project: {}", projectObjectId);
+
+        try {
+            return streamResourceAssignmentsFromP6(List.of(projectObjectId), consumer);
+        } catch (Exception e) {
+            log.error("Error streaming resource assignments for project {}: {}",
+                    projectObjectId, e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Reduce the resource assignments of a project with a collector, in memory proportional to the result
+     * @param projectObjectId Project Object ID
+     * @param collector Collector applied to the assignment stream
+     * @return Collector result
+     */
+    public <A, R> R collectResourceAssignmentsForProject(String projectObjectId,
+                                                         Collector<? super ResourceAssignment, A, R> collector) {
+        A container = collector.supplier().get();
+        BiConsumer<A, ? super ResourceAssignment> accumulator = collector.accumulator();
+        streamResourceAssignmentsForProject(projectObjectId, assignment -> accumulator.accept(container, assignment));
+        return collector.finisher().apply(container);
+    }
+
+    /**
+     * Decode the resource assignments of projects from P6 with multi-project ProjectObjectId IN queries
+     */
+    private long streamResourceAssignmentsFromP6(List<String> projectObjectIds,
+                                                 Consumer<? super ResourceAssignment> consumer) {
+        // Each assignment belongs to exactly one project, so the chunks cannot overlap
+        return inFilterBatcher.<ResourceAssignment>streamAll("ProjectObjectId", projectObjectIds,
+                (filter, chunkConsumer) -> pagedFetcher.fetchAll("resourceAssignment", "bulk resource assignments", (offset, limit) -> {
+                    String url = buildAssignmentsUrl(filter) +
+                            "&Sort=ObjectId ASC&Offset=" + offset + "&Limit=" + limit;
+                    List<ResourceAssignment> page = new ArrayList<>();
+                    streamRecords(url, ResourceAssignment.class, page::add);
+                    return page;
+                }, page -> page.forEach(chunkConsumer)),
+                null,
+                consumer);
+    }
+
+    /**
+     * Get the relationships of many projects at once with multi-project SuccessorProjectObjectId IN queries.
+     * Projects already in the projectRelationships cache are served from it; the rest are fetched
+     * in bulk, split by successor project and written into the cache.
+     * @param projectObjectIds Project Object IDs
+     * @return Map of project ObjectId to the relationships whose successor belongs to it, in the given order
+     */
+    public Map<String, List<Relationship>> getRelationshipsForProjects(Collection<String> projectObjectIds) {
+        return loadByProject("projectRelationships", projectObjectIds, missing -> {
+            Map<String, List<Relationship>> loaded = new HashMap<>();
+            missing.forEach(id -> loaded.put(id, new ArrayList<>()));
+
+            inFilterBatcher.<Relationship>streamAll("SuccessorProjectObjectId", missing,
+                    (filter, chunkConsumer) -> pagedFetcher.fetchAll("relationship", "bulk relationships", (offset, limit) -> {
+                        String url = baseUrl + "/relationship?Filter=" + filter + "&Fields=" + RELATIONSHIP_FIELDS +
+                                "&Sort=ObjectId ASC&Offset=" + offset + "&Limit=" + limit;
+                        List<Relationship> page = new ArrayList<>();
+                        streamRecords(url, Relationship.class, page::add);
+                        return page;
+                    }, page -> page.forEach(chunkConsumer)),
+                    null,
+                    relationship -> addToProject(loaded, relationship.getSuccessorProjectObjectId(), relationship));
+
+            return loaded;
+        });
+    }
+
+    /**
+     * Get the activities of a project that P6 changed or added after a date
+     * @param projectObjectId Project Object ID
+     * @param since Only activities with a later LastUpdateDate
+     * @return Changed activities
+     */
+    public List<Activity> getActivitiesUpdatedSince(String projectObjectId, Date since) {
+        requireLogin("fetching changed activities");
+        return fetchAllPaged("activity", "project " + projectObjectId + " changed activities",
+                baseUrl + "/activity?Filter=ProjectObjectId IN(" + projectObjectId + ") AND " + updatedSince(since) +
+                        "&Fields=" + ACTIVITY_FIELDS, Activity.class);
+    }
+
+    /**
+     * Get the resource assignments of a project that P6 changed or added after a date
+     * @param projectObjectId Project Object ID
+     * @param since Only assignments with a later LastUpdateDate
+     * @return Changed resource assignments
+     */
+    public List<ResourceAssignment> getResourceAssignmentsUpdatedSince(String projectObjectId, Date since) {
+        requireLogin("fetching changed resource assignments");
+        return fetchAllPaged("resourceAssignment", "project " + projectObjectId + " changed resource assignments",
+                buildAssignmentsUrl("ProjectObjectId IN(" + projectObjectId + ") AND " + updatedSince(since)),
+                ResourceAssignment.class);
+    }
+
+    /**
+     * Get the projects that P6 changed or added after a date
+     * @param since Only projects with a later LastUpdateDate
+     * @return Changed projects
+     */
+    public List<Project> getProjectsUpdatedSince(Date since) {
+        requireLogin("fetching changed projects");
+        return fetchAllPaged("project", "changed projects", baseUrl + "/project?Fields=" + PROJECT_FIELDS +
+                "&Filter=" + updatedSince(since), Project.class);
+    }
+
+    /**
+     * ObjectIds of all activities of a project in P6, for finding deleted activities
+     * @param projectObjectId Project Object ID
+     * @return Activity ObjectIds
+     */
+    public Set<String> getActivityObjectIdsInP6(String projectObjectId) {
+        requireLogin("fetching activity ObjectIds");
+        return new HashSet<>(fetchActivityObjectIds(projectObjectId));
+    }
+
+    /**
+     * ObjectIds of all resource assignments of a project in P6, for finding deleted assignments
+     * @param projectObjectId Project Object ID
+     * @return Resource assignment ObjectIds
+     */
+    public Set<String> getResourceAssignmentObjectIdsInP6(String projectObjectId) {
+        requireLogin("fetching resource assignment ObjectIds");
+        return fetchAllPaged("resourceAssignment ObjectId",
+                "project " + projectObjectId + " resource assignment ObjectIds",
+                baseUrl + "/resourceAssignment?Filter=ProjectObjectId IN(" + projectObjectId + ")&Fields=ObjectId",
+                ResourceAssignment.class).stream()
+                .map(ResourceAssignment::getObjectId)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * ObjectIds of all projects in P6, for finding deleted projects
+     * @return Project ObjectIds
+     */
+    public Set<String> getProjectObjectIdsInP6() {
+        requireLogin("fetching project ObjectIds");
+        return fetchAllPaged("project ObjectId", "project ObjectIds", baseUrl + "/project?Fields=ObjectId",
+                Project.class).stream()
+                .map(Project::getObjectId)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * LastUpdateDate filter expression, in the UTC form P6 returns dates in
+     */
+    private static String updatedSince(Date since) {
+        return "LastUpdateDate > '" + P6_DATE_FORMAT.format(since.toInstant()) + "'";
+    }
+
+    /**
+     * Read every record of a query in ObjectId order through the paged fetch engine
+     */
+    private <T> List<T> fetchAllPaged(String endpoint, String label, String url, Class<T> type) {
+        List<T> records = new ArrayList<>();
+        pagedFetcher.fetchAll(endpoint, label, (offset, limit) -> {
+            List<T> page = new ArrayList<>();
+            streamRecords(url + "&Sort=ObjectId ASC&Offset=" + offset + "&Limit=" + limit, type, page::add);
+            return page;
+        }, records::addAll);
+        return records;
+    }
+
+    private void requireLogin(String action) {
+        if (cookies == null) {
+            log.info("No session cookies, attempting to login first");
+            if (!login()) {
+                log.error("Login failed, cannot proceed with {}", action);
+                throw new RuntimeException("Unable to login to Primavera P6");
+            }
+        }
+    }
+
+    /**
+     * Serve per-project lists from a cache, bulk-loading and caching the projects that are missing
+     */
+    private <T> Map<String, List<T>> loadByProject(String cacheName, Collection<String> projectObjectIds,
+                                                   Function<List<String>, Map<String, List<T>>> bulkLoader) {
+        Map<String, List<T>> result = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+
+        for (String projectObjectId : new LinkedHashSet<>(projectObjectIds)) {
+            List<T> cached = getCachedValue(cacheName, projectObjectId);
+            result.put(projectObjectId, cached);
+            if (cached == null) {
+                missing.add(projectObjectId);
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        // Check if logged in
+        if (cookies == null) {
+            log.info("No session cookies, attempting to login first");
+            if (!login()) {
+                log.error("Login failed, cannot proceed with bulk loading {}", cacheName);
+                throw new RuntimeException("Unable to login to Primavera P6");
+            }
+        }
+
+        log.info("Bulk loading {} for {} projects ({} already cached)",
+                cacheName, missing.size(), result.size() - missing.size());
+
+        Map<String, List<T>> loaded = bulkLoader.apply(missing);
+        Cache cache = cacheManager.getCache(cacheName);
+
+        for (String projectObjectId : missing) {
+            List<T> records = loaded.getOrDefault(projectObjectId, Collections.emptyList());
+            result.put(projectObjectId, records);
+            if (cache != null) {
+                cache.put(projectObjectId, records);
+            }
+        }
+
+        return result;
+    }
+
+    private static <T> void addToProject(Map<String, List<T>> byProject, String projectObjectId, T record) {
+        List<T> records = byProject.get(projectObjectId);
+        if (records != null) {
+            records.add(record);
+        }
+    }
+
     /**
      * Get activities for a specific project with pagination
      * @param projectObjectId Project Object ID
@@ -471,7 +931,7 @@ public class PrimaveraRestService {
      * @param size Page size
      * @return List of Activity objects for the requested page
      */
-    @Cacheable(value = "projectActivitiesPage", key = "{#projectObjectId, #page, #size}")
+    @Cacheable(value = "projectActivitiesPage", key = "{#projectObjectId, #page, #size}", sync = true)
     public List<Activity> getActivitiesForProjectWithPagination(String projectObjectId, int page, int size) {
         // Check if logged in
         if (cookies == null) {
@@ -526,7 +986,8 @@ public class PrimaveraRestService {
      * @return List of filtered and sorted Activity objects
      */
     @Cacheable(value = "filteredActivities",
-            key = "{#projectObjectId, #nameFilter, #typeFilter, #statusFilter, #sortBy, #sortDirection, #page, #size}")
+            key = "{#projectObjectId, #nameFilter, #typeFilter, #statusFilter, #sortBy, #sortDirection, #page, #size}",
+            sync = true)
     public List<Activity> getFilteredActivities(
             String projectObjectId,
             String nameFilter,
@@ -615,7 +1076,7 @@ public class PrimaveraRestService {
      * @param projectObjectId Project Object ID
      * @return Total number of activities for the project
      */
-    @Cacheable(value = "activityCount", key = "#projectObjectId")
+    @Cacheable(value = "activityCount", key = "#projectObjectId", sync = true)
     public int getTotalActivityCount(String projectObjectId) {
         // Some P6 REST APIs provide a Count endpoint or header
         // If not available, retrieve all activities and count them
@@ -623,24 +1084,46 @@ public class PrimaveraRestService {
     }
 
     /**
-     * Refresh all caches
+     * Get the relationships (logic links) whose successor activity belongs to a project
+     * @param projectObjectId Project Object ID
+     * @return List of relationships, including links from activities of other projects
      */
-    @CacheEvict(value = {
-            "allProjects",
-            "projectsPage",
-            "filteredProjects",
-            "projectCount",
-            "project",
-            "projectActivities",
-            "projectActivitiesPage",
-            "filteredActivities",
-            "activityCount",
-            "activityResourceAssignments",
-            "projectResourceAssignments",
-            "allResources"
-    }, allEntries = true)
-    public void refreshCache() {
-        log.info("Refreshing all caches");
+    @Cacheable(value = "projectRelationships", key = "#projectObjectId", sync = true)
+    public List<Relationship> getRelationshipsForProject(String projectObjectId) {
+        // Check if logged in
+        if (cookies == null) {
+            log.info("No session cookies, attempting to login first");
+            if (!login()) {
+                log.error("Login failed, cannot proceed with fetching relationships");
+                throw new RuntimeException("Unable to login to Primavera P6");
+            }
+        }
+
+        log.info("Fetching relationships for project ObjectId: {}", projectObjectId);
+
+        try {
+            List<Relationship> relationships = new ArrayList<>();
+            pagedFetcher.fetchAll("relationship", "project " + projectObjectId + " relationships", (offset, limit) -> {
+                String url = baseUrl + "/relationship?Filter=SuccessorProjectObjectId IN(" + projectObjectId +
+                        ")&Fields=" + RELATIONSHIP_FIELDS + "&Sort=ObjectId ASC" +
+                        "&Offset=" + offset + "&Limit=" + limit;
+
+                List<Relationship> page = new ArrayList<>();
+                streamRecords(url, Relationship.class, page::add);
+                return page;
+            }, relationships::addAll);
+
+            log.info("Successfully retrieved {} relationships for project {}", relationships.size(), projectObjectId);
+            return relationships;
+        } catch (HttpClientErrorException e) {
+            log.error("HTTP Error fetching relationships: {}", e.getMessage());
+            log.error("Response Body: {}", e.getResponseBodyAsString());
+            throw e;
+        } catch (Exception e) {
+            log.error("Unexpected error fetching relationships for project {}: {}",
+                    projectObjectId, e.getMessage(), e);
+            throw e;
+        }
     }
 
     /**
@@ -648,7 +1131,7 @@ public class PrimaveraRestService {
      * @param activityObjectId Activity Object ID
      * @return List of resource assignments
      */
-    @Cacheable(value = "activityResourceAssignments", key = "#activityObjectId")
+    @Cacheable(value = "activityResourceAssignments", key = "#activityObjectId", sync = true)
     public List<ResourceAssignment> getResourceAssignmentsForActivity(String activityObjectId) {
         // Check if logged in
         if (cookies == null) {
@@ -661,7 +1144,7 @@ public class PrimaveraRestService {
 
         try {
             // Use the correct capitalization in the URL path
-            String url = baseUrl + "/resourceAssignment?Fields=ObjectId,ActivityId,ActivityObjectId,ResourceId,ResourceObjectId,ResourceName,PlannedUnits,ActualUnits,RemainingUnits,PlannedCost,ActualCost,RemainingCost,PlannedStartDate,PlannedFinishDate,ActualStartDate,ActualFinishDate" +
+            String url = baseUrl + "/resourceAssignment?Fields=" + RESOURCE_ASSIGNMENT_FIELDS +
                     "&Filter=ActivityObjectId = " + activityObjectId;
 
             HttpEntity<String> entity = new HttpEntity<>(createApiHeaders());
@@ -689,7 +1172,7 @@ public class PrimaveraRestService {
             try {
                 log.info("Attempting alternative filter format for resource assignments");
                 // Note the capital 'A' in the URL
-                String altUrl = baseUrl + "/resourceAssignment?Fields=ObjectId,ActivityId,ActivityObjectId,ResourceId,ResourceObjectId,ResourceName,PlannedUnits,ActualUnits,RemainingUnits,PlannedCost,ActualCost,RemainingCost,PlannedStartDate,PlannedFinishDate,ActualStartDate,ActualFinishDate" +
+                String altUrl = baseUrl + "/resourceAssignment?Fields=" + RESOURCE_ASSIGNMENT_FIELDS +
                         "&Filter=ActivityObjectId IN (" + activityObjectId + ")";
 
                 HttpEntity<String> entity = new HttpEntity<>(createApiHeaders());
@@ -714,7 +1197,7 @@ public class PrimaveraRestService {
      * @param projectObjectId Project Object ID
      * @return List of resource assignments
      */
-    @Cacheable(value = "projectResourceAssignments", key = "#projectObjectId")
+    @Cacheable(value = "projectResourceAssignments", key = "#projectObjectId", sync = true)
     public List<ResourceAssignment> getResourceAssignmentsForProject(String projectObjectId) {
         // Check if logged in
         if (cookies == null) {
@@ -725,46 +1208,67 @@ public class PrimaveraRestService {
             }
         }
 
-        // First get all activities for the project
-        List<Activity> activities = getActivitiesForProject(projectObjectId);
-
-        if (activities.isEmpty()) {
+        List<String> activityObjectIds = getActivityObjectIds(projectObjectId);
+        if (activityObjectIds.isEmpty()) {
             return Collections.emptyList();
         }
 
-        // Create a filter with all activity object IDs
-        StringBuilder filter = new StringBuilder("ActivityObjectId IN (");
-        for (int i = 0; i < activities.size(); i++) {
-            if (i > 0) {
-                filter.append(", ");
-            }
-            filter.append(activities.get(i).getObjectId());
-        }
-        filter.append(")");
-
-        // Note the capital 'A' in resourceAssignment
-        String url = baseUrl + "/resourceAssignment?Fields=ObjectId,ActivityId,ActivityObjectId,ResourceId,ResourceObjectId,ResourceName,PlannedUnits,ActualUnits,RemainingUnits,PlannedCost,ActualCost,RemainingCost,PlannedStartDate,PlannedFinishDate,ActualStartDate,ActualFinishDate" +
-                "&Filter=" + filter.toString();
-
-        HttpEntity<String> entity = new HttpEntity<>(createApiHeaders());
-
         log.info("Fetching resource assignments for project activities: {}", projectObjectId);
 
         try {
-            ResponseEntity<ResourceAssignment[]> response = restTemplate.exchange(
-                    url, HttpMethod.GET, entity, ResourceAssignment[].class);
-
-            if (response.getBody() != null) {
-                log.info("Successfully retrieved {} resource assignments", response.getBody().length);
-                return Arrays.asList(response.getBody());
-            } else {
+            // Query in size-bounded ActivityObjectId chunks so large projects stay within URL limits
+            List<ResourceAssignment> assignments = inFilterBatcher.fetchAll("ActivityObjectId", activityObjectIds,
+                    filter -> {
+                        List<ResourceAssignment> chunk = new ArrayList<>();
+                        streamRecords(buildAssignmentsUrl(filter), ResourceAssignment.class, chunk::add);
+                        return chunk;
+                    },
+                    ResourceAssignment::getObjectId);
+
+            if (assignments.isEmpty()) {
                 log.warn("No resource assignments found or null response body");
                 return Collections.emptyList();
             }
+
+            log.info("Successfully retrieved {} resource assignments", assignments.size());
+            return assignments;
         } catch (Exception e) {
-            log.error("Error fetching resource assignments: {}", e.getMessage(), e);
-            return Collections.emptyList();
+            log.error("Error fetching resource assignments for project {}: {}", projectObjectId, e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * The ObjectIds of a project's activities: the ObjectId column of its cached activities if it is
+     * loaded, otherwise read from P6 without the other activity fields
+     */
+    private List<String> getActivityObjectIds(String projectObjectId) {
+        List<Activity> cached = getCachedValue("projectActivities", projectObjectId);
+        if (cached != null) {
+            ActivityTable table = ActivityTable.of(cached);
+            List<String> objectIds = new ArrayList<>(table.size());
+            for (int row = 0; row < table.size(); row++) {
+                objectIds.add(table.objectId(row));
+            }
+            return objectIds;
         }
+        return fetchActivityObjectIds(projectObjectId);
+    }
+
+    private List<String> fetchActivityObjectIds(String projectObjectId) {
+        return fetchAllPaged("activity ObjectId", "project " + projectObjectId + " activity ObjectIds",
+                baseUrl + "/activity?Filter=ProjectObjectId IN(" + projectObjectId + ")&Fields=ObjectId",
+                Activity.class).stream()
+                .map(Activity::getObjectId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Build a resource assignment query URL for a filter expression
+     */
+    private String buildAssignmentsUrl(String filter) {
+        // Note the capital 'A' in resourceAssignment
+        return baseUrl + "/resourceAssignment?Fields=" + RESOURCE_ASSIGNMENT_FIELDS + "&Filter=" + filter;
     }
 
     /**
@@ -869,7 +1373,7 @@ public class PrimaveraRestService {
      * Get all resources
      * @return List of Resource objects
      */
-    @Cacheable(value = "allResources")
+    @Cacheable(value = "allResources", sync = true)
     public List<Resource> getAllResources() {
         // Check if logged in
         if (cookies == null) {
@@ -918,21 +1422,13 @@ public class PrimaveraRestService {
             // Get all resource assignments
             List<ResourceAssignment> allAssignments = new ArrayList<>();
 
-            // Fetch assignments for each project
+            // Fetch assignments for all projects with bulk multi-project queries
             List<Project> projects = getAllProjects();
             log.info("Total projects found: {}", projects.size());
 
-            for (Project project : projects) {
-                try {
-                    List<ResourceAssignment> projectAssignments =
-                            getResourceAssignmentsForProject(project.getObjectId());
-                    log.info("Project {} - Assignments: {}", project.getName(), projectAssignments.size());
-                    allAssignments.addAll(projectAssignments);
-                } catch (Exception e) {
-                    log.error("Error fetching assignments for project {}: {}",
-                            project.getName(), e.getMessage(), e);
-                }
-            }
+            Map<String, List<ResourceAssignment>> assignmentsByProject = getResourceAssignmentsForProjects(
+                    projects.stream().map(Project::getObjectId).collect(Collectors.toList()));
+            assignmentsByProject.values().forEach(allAssignments::addAll);
 
             log.info("Total assignments across all projects: {}", allAssignments.size());
 
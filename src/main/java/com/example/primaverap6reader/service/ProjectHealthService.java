@@ -17,6 +17,7 @@ public class ProjectHealthService {
 
     private final PrimaveraRestService primaveraService;
     private final EarnedValueService earnedValueService;
+    private final ConcurrentFetcher concurrentFetcher;
 
     /**
      * Calculate health score for a project (0-100)
@@ -72,25 +73,33 @@ public class ProjectHealthService {
         }
 
         // Component 2: Activity completion ratio (10 points)
+        ActivityTable table = ActivityTable.of(activities);
+        int completed = table.status().codeOf("Completed");
         double completionRatio = 0;
-        if (!activities.isEmpty()) {
-            long completedActivities = activities.stream()
-                    .filter(a -> "Completed".equals(a.getStatus()))
-                    .count();
-            completionRatio = (double) completedActivities / activities.size();
+        if (!table.isEmpty()) {
+            long completedActivities = 0;
+            for (int row = 0; row < table.size(); row++) {
+                if (table.status().code(row) == completed) {
+                    completedActivities++;
+                }
+            }
+            completionRatio = (double) completedActivities / table.size();
         }
         double completionScore = completionRatio * 10;
 
         // Component 3: On-time activities (5 points)
         double onTimeScore = 0;
-        Date currentDate = new Date();
-        if (!activities.isEmpty()) {
-            long onTimeActivities = activities.stream()
-                    .filter(a -> a.getFinishDate() == null ||
-                            a.getFinishDate().after(currentDate) ||
-                            "Completed".equals(a.getStatus()))
-                    .count();
-            onTimeScore = (double) onTimeActivities / activities.size() * 5;
+        long currentTime = System.currentTimeMillis();
+        if (!table.isEmpty()) {
+            long onTimeActivities = 0;
+            for (int row = 0; row < table.size(); row++) {
+                long finish = table.finishTime(row);
+                if (finish == ActivityTable.NO_DATE || finish > currentTime
+                        || table.status().code(row) == completed) {
+                    onTimeActivities++;
+                }
+            }
+            onTimeScore = (double) onTimeActivities / table.size() * 5;
         }
 
         return spiScore + completionScore + onTimeScore;
@@ -143,21 +152,27 @@ public class ProjectHealthService {
             return 0;
         }
 
-        // Component 1: Behind schedule activities (15 points)
-        Date currentDate = new Date();
-        long behindSchedule = activities.stream()
-                .filter(a -> a.getFinishDate() != null &&
-                        a.getFinishDate().before(currentDate) &&
-                        !"Completed".equals(a.getStatus()))
-                .count();
+        // Both components in one scan over the date and status columns
+        ActivityTable table = ActivityTable.of(activities);
+        int completed = table.status().codeOf("Completed");
+        long currentTime = System.currentTimeMillis();
+        long behindSchedule = 0;
+        long withoutDates = 0;
+        for (int row = 0; row < table.size(); row++) {
+            long finish = table.finishTime(row);
+            if (finish != ActivityTable.NO_DATE && finish < currentTime && table.status().code(row) != completed) {
+                behindSchedule++;
+            }
+            if (table.startTime(row) == ActivityTable.NO_DATE || finish == ActivityTable.NO_DATE) {
+                withoutDates++;
+            }
+        }
 
+        // Component 1: Behind schedule activities (15 points)
         double behindScheduleRatio = (double) behindSchedule / activities.size();
         double behindScheduleScore = (1 - behindScheduleRatio) * 15;
 
         // Component 2: Activities without dates (10 points)
-        long withoutDates = activities.stream()
-                .filter(a -> a.getStartDate() == null || a.getFinishDate() == null)
-                .count();
 
         double withoutDatesRatio = (double) withoutDates / activities.size();
         double withoutDatesScore = (1 - withoutDatesRatio) * 10;
@@ -187,19 +202,24 @@ public class ProjectHealthService {
         List<Project> projects = primaveraService.getAllProjects();
         Map<String, Double> projectHealthScores = new HashMap<>();
 
-        for (Project project : projects) {
+        Map<Project, Map<String, Object>> healthByProject = concurrentFetcher.fanOut(projects, project -> {
             try {
-                Map<String, Object> healthMetrics =
-                        calculateProjectHealth(project.getObjectId());
+                return calculateProjectHealth(project.getObjectId());
+            } catch (Exception e) {
+                log.error("Error calculating health for project {}: {}",
+                        project.getName(), e.getMessage());
+                return null;
+            }
+        });
+
+        healthByProject.forEach((project, healthMetrics) -> {
+            if (healthMetrics != null) {
                 projectHealthScores.put(
                         project.getName(),
                         (Double) healthMetrics.get("overallHealth")
                 );
-            } catch (Exception e) {
-                log.error("Error calculating health for project {}: {}",
-                        project.getName(), e.getMessage());
             }
-        }
+        });
 
         return projectHealthScores;
     }
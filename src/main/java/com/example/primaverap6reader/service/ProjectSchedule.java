@@ -0,0 +1,243 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.Activity;
+import com.example.primaverap6reader.model.Relationship;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Critical path method schedule of a project: early and late dates and floats of every activity,
+ * computed by one forward and one backward pass over the compiled network. Times are hours from the
+ * project start; activities are indexed by network node (see ScheduleNetwork).
+ * Changed durations and link lags or types can be applied in place: propagate() then recomputes only
+ * the nodes downstream (early dates) and upstream (late dates) of the changes. Not thread-safe;
+ * callers updating a shared schedule must lock it.
+ */
+public final class ProjectSchedule {
+
+    // Floats within this many hours of zero count as zero, absorbing rounding in the passes
+    private static final double FLOAT_TOLERANCE = 1e-6;
+
+    private final ScheduleNetwork network;
+    private final double[] duration;
+    private final double[] earlyFinish;
+    private final double[] lateFinish;
+    private final double[] freeFloat;
+    private double projectFinish;
+
+    // Pending changes: nodes to recompute forward and backward, nodes whose duration changed
+    private final BitSet forward = new BitSet();
+    private final BitSet backward = new BitSet();
+    private final BitSet durationChanged = new BitSet();
+
+    private ProjectSchedule(ScheduleNetwork network, double[] duration, double[] earlyFinish, double[] lateFinish,
+                            double[] freeFloat, double projectFinish) {
+        this.network = network;
+        this.duration = duration;
+        this.earlyFinish = earlyFinish;
+        this.lateFinish = lateFinish;
+        this.freeFloat = freeFloat;
+        this.projectFinish = projectFinish;
+    }
+
+    /**
+     * Schedule a project's activities with their planned durations
+     * @param activities Activities of the project
+     * @param relationships Relationships between them
+     * @return Schedule
+     * @throws IllegalStateException if the relationships contain a cycle, or activities share an ObjectId
+     */
+    public static ProjectSchedule build(List<Activity> activities, List<Relationship> relationships) {
+        ScheduleNetwork network = ScheduleNetwork.build(activities, relationships);
+        double[] duration = new double[network.size()];
+        for (Activity activity : activities) {
+            Double hours = activity.getDurationHours();
+            duration[network.indexOf(activity.getObjectId())] = hours != null && hours > 0 ? hours : 0;
+        }
+        return schedule(network, duration);
+    }
+
+    /**
+     * Schedule a compiled network
+     * @param network Network
+     * @param duration Duration of every node (hours); kept by the schedule
+     */
+    public static ProjectSchedule schedule(ScheduleNetwork network, double[] duration) {
+        int n = network.size();
+        double[] earlyFinish = new double[n];
+        double[] lateFinish = new double[n];
+        double[] freeFloat = new double[n];
+        double projectFinish = network.forwardPass(duration, earlyFinish);
+        network.backwardPass(duration, earlyFinish, projectFinish, lateFinish, freeFloat);
+        return new ProjectSchedule(network, duration, earlyFinish, lateFinish, freeFloat, projectFinish);
+    }
+
+    public ScheduleNetwork network() {
+        return network;
+    }
+
+    public int size() {
+        return network.size();
+    }
+
+    /**
+     * Project duration (hours), the latest early finish
+     */
+    public double getProjectFinish() {
+        return projectFinish;
+    }
+
+    public double duration(int node) {
+        return duration[node];
+    }
+
+    public double earlyStart(int node) {
+        return earlyFinish[node] - duration[node];
+    }
+
+    public double earlyFinish(int node) {
+        return earlyFinish[node];
+    }
+
+    public double lateStart(int node) {
+        return lateFinish[node] - duration[node];
+    }
+
+    public double lateFinish(int node) {
+        return lateFinish[node];
+    }
+
+    /**
+     * How far a node can slip without delaying the project (hours)
+     */
+    public double totalFloat(int node) {
+        double slack = lateFinish[node] - earlyFinish[node];
+        return slack > FLOAT_TOLERANCE ? slack : 0;
+    }
+
+    /**
+     * How far a node can slip without delaying any successor (hours)
+     */
+    public double freeFloat(int node) {
+        double slack = freeFloat[node];
+        return slack > FLOAT_TOLERANCE ? slack : 0;
+    }
+
+    /**
+     * Whether a node is critical: it has no total float
+     */
+    public boolean isCritical(int node) {
+        return totalFloat(node) == 0;
+    }
+
+    /**
+     * Change the duration of a node; takes effect with propagate()
+     */
+    public void changeDuration(int node, double hours) {
+        if (duration[node] == hours) {
+            return;
+        }
+        duration[node] = hours;
+        durationChanged.set(node);
+        forward.set(node);
+        // Its late finish depends on its own duration through start-driven links
+        markPredecessors(node, backward);
+        backward.set(node);
+    }
+
+    /**
+     * Change the type and lag of a link (see ScheduleNetwork.linkIndex); takes effect with propagate()
+     */
+    public void changeLink(int link, String type, double lag) {
+        network.setLink(link, ScheduleNetwork.parseType(type), lag);
+        forward.set(network.successorOf(link));
+        backward.set(network.predecessor(link));
+    }
+
+    /**
+     * Recompute the dates affected by the pending changes.
+     * Early dates are recomputed in topological order from the changed nodes, continuing only to the
+     * successors of nodes whose early dates moved; late dates likewise in reverse order. If the project
+     * finish moves, every late date moves with it and the backward pass runs in full.
+     * @return Number of nodes recomputed
+     */
+    public int propagate() {
+        int n = network.size();
+        int recomputed = 0;
+
+        for (int v = forward.nextSetBit(0); v >= 0; v = forward.nextSetBit(v + 1)) {
+            recomputed++;
+            double finish = network.earlyStart(v, duration, earlyFinish) + duration[v];
+            if (finish != earlyFinish[v] || durationChanged.get(v)) {
+                earlyFinish[v] = finish;
+                // Successors' early starts and this node's and its predecessors' free floats depend on it
+                markSuccessors(v, forward);
+                markPredecessors(v, backward);
+                backward.set(v);
+            }
+        }
+
+        double finish = 0;
+        for (int v = 0; v < n; v++) {
+            finish = Math.max(finish, earlyFinish[v]);
+        }
+
+        if (finish != projectFinish) {
+            projectFinish = finish;
+            network.backwardPass(duration, earlyFinish, projectFinish, lateFinish, freeFloat);
+            recomputed += n;
+        } else {
+            for (int v = backward.previousSetBit(n - 1); v >= 0; v = backward.previousSetBit(v - 1)) {
+                recomputed++;
+                freeFloat[v] = network.freeFloat(v, duration, earlyFinish, projectFinish);
+                double late = network.lateFinish(v, duration, lateFinish, projectFinish);
+                if (late != lateFinish[v] || durationChanged.get(v)) {
+                    lateFinish[v] = late;
+                    markPredecessors(v, backward);
+                }
+            }
+        }
+
+        forward.clear();
+        backward.clear();
+        durationChanged.clear();
+        return recomputed;
+    }
+
+    /**
+     * Whether another schedule of the same network has the same dates and floats, within a tolerance
+     */
+    public boolean matches(ProjectSchedule other, double tolerance) {
+        if (other.size() != size() || Math.abs(other.projectFinish - projectFinish) > tolerance) {
+            return false;
+        }
+        for (int v = 0; v < size(); v++) {
+            if (Math.abs(other.earlyFinish[v] - earlyFinish[v]) > tolerance
+                    || Math.abs(other.lateFinish[v] - lateFinish[v]) > tolerance
+                    || Math.abs(other.freeFloat[v] - freeFloat[v]) > tolerance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A full recompute of this schedule's network and durations, for checking incremental updates
+     */
+    public ProjectSchedule recompute() {
+        return schedule(network, duration.clone());
+    }
+
+    private void markSuccessors(int v, BitSet nodes) {
+        for (int j = network.successorStart(v), end = network.successorEnd(v); j < end; j++) {
+            nodes.set(network.successor(j));
+        }
+    }
+
+    private void markPredecessors(int v, BitSet nodes) {
+        for (int k = network.predecessorStart(v), end = network.predecessorEnd(v); k < end; k++) {
+            nodes.set(network.predecessor(k));
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -41,18 +42,8 @@ public class ProjectStatisticsService {
     @Cacheable("activityTypeStats")
     public Map<String, Integer> getActivityCountByType() {
         List<Project> projects = primaveraService.getAllProjects();
-        Map<String, Integer> typeCounts = new HashMap<>();
 
-        for (Project project : projects) {
-            List<Activity> activities = primaveraService.getActivitiesForProject(project.getObjectId());
-
-            for (Activity activity : activities) {
-                String type = activity.getType() != null ? activity.getType() : "Unknown";
-                typeCounts.put(type, typeCounts.getOrDefault(type, 0) + 1);
-            }
-        }
-
-        return typeCounts;
+        return countActivities(projects, ActivityTable::type, Activity::getType);
     }
 
     /**
@@ -62,18 +53,8 @@ public class ProjectStatisticsService {
     @Cacheable("activityStatusStats")
     public Map<String, Integer> getActivityCountByStatus() {
         List<Project> projects = primaveraService.getAllProjects();
-        Map<String, Integer> statusCounts = new HashMap<>();
-
-        for (Project project : projects) {
-            List<Activity> activities = primaveraService.getActivitiesForProject(project.getObjectId());
 
-            for (Activity activity : activities) {
-                String status = activity.getStatus() != null ? activity.getStatus() : "Unknown";
-                statusCounts.put(status, statusCounts.getOrDefault(status, 0) + 1);
-            }
-        }
-
-        return statusCounts;
+        return countActivities(projects, ActivityTable::status, Activity::getStatus);
     }
 
     /**
@@ -148,9 +129,9 @@ public class ProjectStatisticsService {
         List<Project> projects = primaveraService.getAllProjects();
         Map<String, Integer> projectActivityCounts = new HashMap<>();
 
+        Map<String, List<Activity>> activitiesByProject = loadActivities(projects);
         for (Project project : projects) {
-            List<Activity> activities = primaveraService.getActivitiesForProject(project.getObjectId());
-            projectActivityCounts.put(project.getName(), activities.size());
+            projectActivityCounts.put(project.getName(), activitiesByProject.get(project.getObjectId()).size());
         }
 
         // Sort by activity count (descending) and limit results
@@ -174,20 +155,71 @@ public class ProjectStatisticsService {
         List<Project> projects = primaveraService.getAllProjects();
         Map<String, Double> projectDurations = new HashMap<>();
 
+        Map<String, List<Activity>> activitiesByProject = loadActivities(projects);
         for (Project project : projects) {
-            List<Activity> activities = primaveraService.getActivitiesForProject(project.getObjectId());
-
-            double totalDuration = activities.stream()
-                    .filter(a -> a.getDurationHours() != null)
-                    .mapToDouble(Activity::getDurationHours)
-                    .sum();
-
+            ActivityTable activities = ActivityTable.of(activitiesByProject.get(project.getObjectId()));
+            double totalDuration = 0;
+            for (int row = 0; row < activities.size(); row++) {
+                double hours = activities.durationHours(row);
+                if (!Double.isNaN(hours)) {
+                    totalDuration += hours;
+                }
+            }
             projectDurations.put(project.getName(), totalDuration);
         }
 
         return projectDurations;
     }
 
+    /**
+     * Count activities across projects by the values of a field. Cached projects are counted on their
+     * dictionary-encoded column, counting codes per project and resolving each distinct value once; the
+     * others are folded in as P6 returns them, without loading them into the cache
+     * @param projects Projects to scan
+     * @param column Selects the column to count by in a cached ActivityTable
+     * @param field Reads the same value from a streamed activity
+     * @return Map of value ("Unknown" for none) to activity count
+     */
+    private Map<String, Integer> countActivities(List<Project> projects,
+                                                 Function<ActivityTable, ActivityTable.DictionaryColumn> column,
+                                                 Function<Activity, String> field) {
+        Map<String, Integer> counts = new HashMap<>();
+        List<String> uncached = new ArrayList<>();
+
+        for (Project project : projects) {
+            ActivityTable activities = primaveraService.getCachedActivities(project.getObjectId());
+            if (activities == null) {
+                uncached.add(project.getObjectId());
+                continue;
+            }
+            ActivityTable.DictionaryColumn values = column.apply(activities);
+            int[] countByCode = values.countByCode();
+            for (int code = 0; code < countByCode.length; code++) {
+                String value = values.value(code) != null ? values.value(code) : "Unknown";
+                counts.merge(value, countByCode[code], Integer::sum);
+            }
+        }
+
+        if (!uncached.isEmpty()) {
+            primaveraService.streamActivitiesForProjects(uncached, activity -> {
+                String value = field.apply(activity);
+                counts.merge(value != null ? value : "Unknown", 1, Integer::sum);
+            });
+        }
+
+        return counts;
+    }
+
+    /**
+     * Load the activities of all projects with bulk multi-project queries, which also warms
+     * the per-project activity cache
+     */
+    private Map<String, List<Activity>> loadActivities(List<Project> projects) {
+        return primaveraService.getActivitiesForProjects(projects.stream()
+                .map(Project::getObjectId)
+                .collect(Collectors.toList()));
+    }
+
     /**
      * Get projects summary statistics
      * @return Map with various summary metrics
@@ -36,16 +36,8 @@ public class ResourceAnalyticsService {
         });
 
         // For each project, calculate resource allocation by month
-        for (Project project : projects) {
-            try {
-                List<ResourceAssignment> assignments =
-                        primaveraService.getResourceAssignmentsForProject(project.getObjectId());
-
-                processAssignments(assignments, resourceUtilization);
-            } catch (Exception e) {
-                log.error("Error processing assignments for project {}: {}",
-                        project.getName(), e.getMessage());
-            }
+        for (List<ResourceAssignment> assignments : fetchAssignmentsByProject(projects).values()) {
+            processAssignments(assignments, resourceUtilization);
         }
 
         return resourceUtilization;
@@ -126,29 +118,32 @@ public class ResourceAnalyticsService {
         List<Project> projects = primaveraService.getAllProjects();
         Map<String, Map<String, Double>> result = new HashMap<>();
 
-        for (Project project : projects) {
-            Map<String, Double> resourceCosts = new HashMap<>();
-
-            try {
-                List<ResourceAssignment> assignments =
-                        primaveraService.getResourceAssignmentsForProject(project.getObjectId());
-
-                // Group by resource and sum costs
-                for (ResourceAssignment assignment : assignments) {
-                    if (assignment.getResourceName() != null && assignment.getPlannedCost() != null) {
-                        String resourceName = assignment.getResourceName();
-                        double currentCost = resourceCosts.getOrDefault(resourceName, 0.0);
-                        resourceCosts.put(resourceName, currentCost + assignment.getPlannedCost());
-                    }
-                }
-
-                result.put(project.getName(), resourceCosts);
-            } catch (Exception e) {
-                log.error("Error calculating resource costs for project {}: {}",
-                        project.getName(), e.getMessage());
-            }
-        }
+        Map<Project, List<ResourceAssignment>> assignmentsByProject = fetchAssignmentsByProject(projects);
+
+        assignmentsByProject.forEach((project, assignments) -> {
+            // Group by resource and sum costs
+            Map<String, Double> resourceCosts = assignments.stream()
+                    .filter(a -> a.getResourceName() != null && a.getPlannedCost() != null)
+                    .collect(Collectors.groupingBy(ResourceAssignment::getResourceName,
+                            Collectors.summingDouble(ResourceAssignment::getPlannedCost)));
+            result.put(project.getName(), resourceCosts);
+        });
 
         return result;
     }
+
+    /**
+     * Fetch the resource assignments of every project with bulk multi-project queries,
+     * which also warms the per-project assignment cache
+     */
+    private Map<Project, List<ResourceAssignment>> fetchAssignmentsByProject(List<Project> projects) {
+        Map<String, List<ResourceAssignment>> byObjectId = primaveraService.getResourceAssignmentsForProjects(
+                projects.stream().map(Project::getObjectId).collect(Collectors.toList()));
+
+        Map<Project, List<ResourceAssignment>> byProject = new LinkedHashMap<>();
+        for (Project project : projects) {
+            byProject.put(project, byObjectId.getOrDefault(project.getObjectId(), Collections.emptyList()));
+        }
+        return byProject;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,472 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.Activity;
+import com.example.primaverap6reader.model.Relationship;
+
+import java.util.*;
+
+/**
+ * Activity dependency network compiled into topologically ordered int arrays.
+ * Node i is the i-th activity in topological order; predecessor links are stored in
+ * compressed sparse rows (predecessorStart[i] .. predecessorStart[i + 1]) so a forward pass
+ * is one sequential sweep over primitive arrays. Successor rows index the same links, for
+ * recomputing single nodes from their successors.
+ * Links are numbered by their position in the predecessor rows. Networks are immutable except for
+ * setLink, which only the owner of a network (a ProjectSchedule) may call.
+ */
+public final class ScheduleNetwork {
+
+    public static final byte FINISH_TO_START = 0;
+    public static final byte START_TO_START = 1;
+    public static final byte FINISH_TO_FINISH = 2;
+    public static final byte START_TO_FINISH = 3;
+
+    private final String[] activityObjectIds;
+    private final Map<String, Integer> nodeIndex;
+    private final int[] predecessorStart;
+    private final int[] predecessorNode;
+    private final byte[] predecessorType;
+    private final double[] predecessorLag;
+    // Per-link 0/1 factors so the forward pass is branch-free: a start-driven link subtracts the
+    // predecessor's duration from its finish, a finish-driven link subtracts the successor's duration
+    private final double[] fromStart;
+    private final double[] toFinish;
+    private final int[] successorStart;
+    private final int[] successorNode;
+    private final int[] successorLink;
+
+    private ScheduleNetwork(String[] activityObjectIds, Map<String, Integer> nodeIndex, int[] predecessorStart,
+                            int[] predecessorNode, byte[] predecessorType, double[] predecessorLag) {
+        this.activityObjectIds = activityObjectIds;
+        this.nodeIndex = nodeIndex;
+        this.predecessorStart = predecessorStart;
+        this.predecessorNode = predecessorNode;
+        this.predecessorType = predecessorType;
+        this.predecessorLag = predecessorLag;
+        this.fromStart = new double[predecessorType.length];
+        this.toFinish = new double[predecessorType.length];
+        for (int k = 0; k < predecessorType.length; k++) {
+            setFactors(k);
+        }
+
+        int n = activityObjectIds.length;
+        int m = predecessorNode.length;
+        this.successorStart = new int[n + 1];
+        this.successorNode = new int[m];
+        this.successorLink = new int[m];
+        for (int k = 0; k < m; k++) {
+            successorStart[predecessorNode[k] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            successorStart[i + 1] += successorStart[i];
+        }
+        int[] fill = Arrays.copyOf(successorStart, n);
+        for (int v = 0; v < n; v++) {
+            for (int k = predecessorStart[v]; k < predecessorStart[v + 1]; k++) {
+                int j = fill[predecessorNode[k]]++;
+                successorNode[j] = v;
+                successorLink[j] = k;
+            }
+        }
+    }
+
+    private void setFactors(int k) {
+        byte type = predecessorType[k];
+        fromStart[k] = type == START_TO_START || type == START_TO_FINISH ? 1 : 0;
+        toFinish[k] = type == FINISH_TO_FINISH || type == START_TO_FINISH ? 1 : 0;
+    }
+
+    /**
+     * Compile the network of a project's activities.
+     * Links to or from activities outside the list (e.g. other projects) are ignored.
+     * @param activities Activities of the project
+     * @param relationships Relationships between them
+     * @return Compiled network
+     * @throws IllegalStateException if the relationships contain a cycle, or activities share an ObjectId
+     */
+    public static ScheduleNetwork build(List<Activity> activities, List<Relationship> relationships) {
+        int n = activities.size();
+        Map<String, Integer> inputIndex = new HashMap<>(n * 2);
+        String[] inputIds = new String[n];
+        List<String> duplicates = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            inputIds[i] = activities.get(i).getObjectId();
+            if (inputIndex.putIfAbsent(inputIds[i], i) != null && duplicates.size() < 10) {
+                duplicates.add(inputIds[i]);
+            }
+        }
+        if (inputIndex.size() < n) {
+            throw new IllegalStateException("Schedule network contains " + (n - inputIndex.size())
+                    + " activities with an ObjectId already used by another, e.g. " + duplicates);
+        }
+
+        // Keep only links inside the project, as parallel edge arrays in input numbering
+        int m = 0;
+        int[] from = new int[relationships.size()];
+        int[] to = new int[relationships.size()];
+        byte[] type = new byte[relationships.size()];
+        double[] lag = new double[relationships.size()];
+        for (Relationship relationship : relationships) {
+            Integer p = inputIndex.get(relationship.getPredecessorActivityObjectId());
+            Integer s = inputIndex.get(relationship.getSuccessorActivityObjectId());
+            if (p == null || s == null) {
+                continue;
+            }
+            from[m] = p;
+            to[m] = s;
+            type[m] = parseType(relationship.getType());
+            lag[m] = relationship.getLag() != null ? relationship.getLag() : 0;
+            m++;
+        }
+
+        // Kahn's algorithm over successor lists
+        int[] successorStart = new int[n + 1];
+        int[] inDegree = new int[n];
+        for (int e = 0; e < m; e++) {
+            successorStart[from[e] + 1]++;
+            inDegree[to[e]]++;
+        }
+        for (int i = 0; i < n; i++) {
+            successorStart[i + 1] += successorStart[i];
+        }
+        int[] successorEdge = new int[m];
+        int[] fill = Arrays.copyOf(successorStart, n);
+        for (int e = 0; e < m; e++) {
+            successorEdge[fill[from[e]]++] = e;
+        }
+
+        int[] order = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            if (inDegree[i] == 0) {
+                order[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            int v = order[head++];
+            for (int k = successorStart[v]; k < successorStart[v + 1]; k++) {
+                int w = to[successorEdge[k]];
+                if (--inDegree[w] == 0) {
+                    order[tail++] = w;
+                }
+            }
+        }
+
+        if (tail < n) {
+            List<String> cyclic = new ArrayList<>();
+            for (int i = 0; i < n && cyclic.size() < 10; i++) {
+                if (inDegree[i] > 0) {
+                    cyclic.add(inputIds[i]);
+                }
+            }
+            throw new IllegalStateException("Schedule network contains a relationship loop involving "
+                    + (n - tail) + " activities, e.g. " + cyclic);
+        }
+
+        // Renumber nodes in topological order and build predecessor rows
+        int[] rank = new int[n];
+        String[] ids = new String[n];
+        for (int r = 0; r < n; r++) {
+            rank[order[r]] = r;
+            ids[r] = inputIds[order[r]];
+        }
+
+        int[] predecessorStart = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            predecessorStart[rank[to[e]] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            predecessorStart[i + 1] += predecessorStart[i];
+        }
+        int[] predecessorNode = new int[m];
+        byte[] predecessorType = new byte[m];
+        double[] predecessorLag = new double[m];
+        fill = Arrays.copyOf(predecessorStart, n);
+        for (int e = 0; e < m; e++) {
+            int k = fill[rank[to[e]]]++;
+            predecessorNode[k] = rank[from[e]];
+            predecessorType[k] = type[e];
+            predecessorLag[k] = lag[e];
+        }
+
+        // Reuse the input index for the node numbers rather than hashing every id again
+        inputIndex.replaceAll((id, i) -> rank[i]);
+        return new ScheduleNetwork(ids, inputIndex, predecessorStart, predecessorNode, predecessorType, predecessorLag);
+    }
+
+    /**
+     * Network in which the activities run one after another in list order
+     */
+    public static ScheduleNetwork serial(List<Activity> activities) {
+        List<Relationship> chain = new ArrayList<>();
+        for (int i = 1; i < activities.size(); i++) {
+            Relationship link = new Relationship();
+            link.setPredecessorActivityObjectId(activities.get(i - 1).getObjectId());
+            link.setSuccessorActivityObjectId(activities.get(i).getObjectId());
+            chain.add(link);
+        }
+        return build(activities, chain);
+    }
+
+    static byte parseType(String type) {
+        if (type == null) {
+            return FINISH_TO_START;
+        }
+        switch (type) {
+            case "Start to Start":
+                return START_TO_START;
+            case "Finish to Finish":
+                return FINISH_TO_FINISH;
+            case "Start to Finish":
+                return START_TO_FINISH;
+            default:
+                return FINISH_TO_START;
+        }
+    }
+
+    /**
+     * Forward pass: earliest finish of every node, with activities starting no earlier than time 0.
+     * Allocates nothing; the caller owns the arrays.
+     * @param duration Duration of every node (hours)
+     * @param earlyFinish Output, earliest finish of every node (hours from start)
+     * @return Project duration, the latest early finish
+     */
+    public double forwardPass(double[] duration, double[] earlyFinish) {
+        double projectFinish = 0;
+
+        for (int v = 0, n = activityObjectIds.length; v < n; v++) {
+            double earlyStart = 0;
+            double d = duration[v];
+
+            for (int k = predecessorStart[v], end = predecessorStart[v + 1]; k < end; k++) {
+                int p = predecessorNode[k];
+                earlyStart = Math.max(earlyStart,
+                        earlyFinish[p] - fromStart[k] * duration[p] + predecessorLag[k] - toFinish[k] * d);
+            }
+
+            double finish = earlyStart + d;
+            earlyFinish[v] = finish;
+            projectFinish = Math.max(projectFinish, finish);
+        }
+
+        return projectFinish;
+    }
+
+    /**
+     * Backward pass after a forward pass: latest finish and free float of every node, with activities
+     * finishing no later than the project finish. One reverse sweep over the predecessor rows: when a
+     * node is reached all its successors are done, so its latest finish is final and it can relax the
+     * latest finishes of its predecessors. Allocates nothing; the caller owns the arrays.
+     * @param duration Durations used by the forward pass
+     * @param earlyFinish Early finishes computed by the forward pass
+     * @param projectFinish Project finish returned by the forward pass
+     * @param lateFinish Output, latest finish of every node (hours from start)
+     * @param freeFloat Output, how far every node can slip without delaying any successor (hours);
+     *                  nodes without successors may slip up to the project finish
+     */
+    public void backwardPass(double[] duration, double[] earlyFinish, double projectFinish,
+                             double[] lateFinish, double[] freeFloat) {
+        int n = activityObjectIds.length;
+        Arrays.fill(lateFinish, 0, n, projectFinish);
+        Arrays.fill(freeFloat, 0, n, Double.POSITIVE_INFINITY);
+
+        for (int v = n - 1; v >= 0; v--) {
+            double d = duration[v];
+            double earlyStart = earlyFinish[v] - d;
+            double lateStart = lateFinish[v] - d;
+            if (freeFloat[v] == Double.POSITIVE_INFINITY) {
+                freeFloat[v] = projectFinish - earlyFinish[v];
+            }
+
+            for (int k = predecessorStart[v], end = predecessorStart[v + 1]; k < end; k++) {
+                int p = predecessorNode[k];
+                // The forward constraint solved for the predecessor's finish
+                double offset = predecessorLag[k] - toFinish[k] * d - fromStart[k] * duration[p];
+                lateFinish[p] = Math.min(lateFinish[p], lateStart - offset);
+                freeFloat[p] = Math.min(freeFloat[p], earlyStart - offset - earlyFinish[p]);
+            }
+        }
+    }
+
+    /**
+     * Early start of one node from its predecessors' early finishes, as the forward pass computes it
+     */
+    public double earlyStart(int v, double[] duration, double[] earlyFinish) {
+        double earlyStart = 0;
+        double d = duration[v];
+        for (int k = predecessorStart[v], end = predecessorStart[v + 1]; k < end; k++) {
+            int p = predecessorNode[k];
+            earlyStart = Math.max(earlyStart,
+                    earlyFinish[p] - fromStart[k] * duration[p] + predecessorLag[k] - toFinish[k] * d);
+        }
+        return earlyStart;
+    }
+
+    /**
+     * Late finish of one node from its successors' late finishes, as the backward pass computes it
+     */
+    public double lateFinish(int p, double[] duration, double[] lateFinish, double projectFinish) {
+        double finish = projectFinish;
+        for (int j = successorStart[p], end = successorStart[p + 1]; j < end; j++) {
+            int v = successorNode[j];
+            int k = successorLink[j];
+            double d = duration[v];
+            double offset = predecessorLag[k] - toFinish[k] * d - fromStart[k] * duration[p];
+            finish = Math.min(finish, lateFinish[v] - d - offset);
+        }
+        return finish;
+    }
+
+    /**
+     * Free float of one node from its successors' early finishes, as the backward pass computes it
+     */
+    public double freeFloat(int p, double[] duration, double[] earlyFinish, double projectFinish) {
+        if (successorStart[p] == successorStart[p + 1]) {
+            return projectFinish - earlyFinish[p];
+        }
+        double slack = Double.POSITIVE_INFINITY;
+        for (int j = successorStart[p], end = successorStart[p + 1]; j < end; j++) {
+            int v = successorNode[j];
+            int k = successorLink[j];
+            double d = duration[v];
+            double offset = predecessorLag[k] - toFinish[k] * d - fromStart[k] * duration[p];
+            slack = Math.min(slack, earlyFinish[v] - d - offset - earlyFinish[p]);
+        }
+        return slack;
+    }
+
+    /**
+     * Count the nodes of one critical path of a completed forward pass: starting from a node that
+     * finishes last, step to the predecessor that set each node's early start until a node is driven by
+     * the project start. Only the path's predecessor links are revisited, so this costs far less than
+     * tracking drivers during the pass. Where paths tie, the first driving link wins.
+     * @param duration Durations used by the forward pass
+     * @param earlyFinish Early finishes computed by the forward pass
+     * @param projectFinish Project finish returned by the forward pass
+     * @param criticalCount Incremented for every node on the path
+     */
+    public void countCriticalPath(double[] duration, double[] earlyFinish, double projectFinish, long[] criticalCount) {
+        int v = activityObjectIds.length - 1;
+        while (v >= 0 && earlyFinish[v] != projectFinish) {
+            v--;
+        }
+
+        while (v >= 0) {
+            criticalCount[v]++;
+
+            // The same expression as the forward pass, so the driving link reproduces its value exactly
+            double d = duration[v];
+            double earlyStart = 0;
+            int driving = -1;
+            for (int k = predecessorStart[v], end = predecessorStart[v + 1]; k < end; k++) {
+                int p = predecessorNode[k];
+                double candidate = earlyFinish[p] - fromStart[k] * duration[p] + predecessorLag[k] - toFinish[k] * d;
+                if (candidate > earlyStart || (driving < 0 && candidate == earlyStart)) {
+                    earlyStart = candidate;
+                    driving = p;
+                }
+            }
+            v = driving;
+        }
+    }
+
+    public int size() {
+        return activityObjectIds.length;
+    }
+
+    public int relationshipCount() {
+        return predecessorNode.length;
+    }
+
+    public String activityObjectId(int node) {
+        return activityObjectIds[node];
+    }
+
+    public int predecessorStart(int node) {
+        return predecessorStart[node];
+    }
+
+    public int predecessorEnd(int node) {
+        return predecessorStart[node + 1];
+    }
+
+    /**
+     * Predecessor node of a link
+     */
+    public int predecessor(int link) {
+        return predecessorNode[link];
+    }
+
+    /**
+     * Successor node of a link: the node whose predecessor row holds it
+     */
+    public int successorOf(int link) {
+        int low = 0;
+        int high = activityObjectIds.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (predecessorStart[mid] <= link) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    public int successorStart(int node) {
+        return successorStart[node];
+    }
+
+    public int successorEnd(int node) {
+        return successorStart[node + 1];
+    }
+
+    /**
+     * Successor node at a position of the successor rows
+     */
+    public int successor(int position) {
+        return successorNode[position];
+    }
+
+    /**
+     * Gap a link imposes between its predecessor's finish and its successor's start: the successor
+     * may start no earlier than the predecessor's finish plus this (hours; negative for start-driven links)
+     * @param link Link
+     * @param successor Successor node of the link
+     * @param duration Durations of the nodes
+     */
+    public double linkOffset(int link, int successor, double[] duration) {
+        return predecessorLag[link] - toFinish[link] * duration[successor] - fromStart[link] * duration[predecessorNode[link]];
+    }
+
+    /**
+     * Link from one node to another, or -1 if there is none
+     */
+    public int linkIndex(int predecessor, int successor) {
+        for (int k = predecessorStart[successor], end = predecessorStart[successor + 1]; k < end; k++) {
+            if (predecessorNode[k] == predecessor) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Change the type and lag of a link; the order of the network is unaffected
+     */
+    void setLink(int link, byte type, double lag) {
+        predecessorType[link] = type;
+        predecessorLag[link] = lag;
+        setFactors(link);
+    }
+
+    /**
+     * Node of an activity, or -1 if it is not part of the network
+     */
+    public int indexOf(String activityObjectId) {
+        Integer index = nodeIndex.get(activityObjectId);
+        return index != null ? index : -1;
+    }
+}
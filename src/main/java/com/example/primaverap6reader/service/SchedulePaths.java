@@ -0,0 +1,234 @@
+package com.example.primaverap6reader.service;
+
+import java.util.*;
+
+/**
+ * Path analysis of a CPM schedule: critical path drag and the longest paths through the network.
+ * Both work on the early and late finishes of a computed schedule instead of rescheduling: the early
+ * finish of a node is the length of the longest path to its finish, and the project finish minus its
+ * late finish the length of the longest path from its finish to the end.
+ */
+public final class SchedulePaths {
+
+    // Bounds the search for near-critical paths when many paths tie
+    private static final int MAX_EXPANSIONS = 2_000_000;
+
+    private SchedulePaths() {
+    }
+
+    /**
+     * A path through the network, from a node that may start at the project start to one that ends it
+     */
+    public static final class Path {
+        private final int[] nodes;
+        private final double length;
+
+        Path(int[] nodes, double length) {
+            this.nodes = nodes;
+            this.length = length;
+        }
+
+        /**
+         * Nodes in schedule order
+         */
+        public int[] nodes() {
+            return nodes;
+        }
+
+        /**
+         * Finish of the path's last node when only the path's links constrain it (hours)
+         */
+        public double length() {
+            return length;
+        }
+    }
+
+    /**
+     * Drag of every node: how much earlier the project would finish if the node took no time.
+     * The project length without a node's duration is the longer of the longest path that bypasses the
+     * node and the longest path through it at zero duration. In topological order, a path bypasses a node
+     * exactly when it has a link jumping over the node's position, so the bypass lengths of all nodes
+     * are found by one sweep of range maxima over the links, in O((n + m) log n).
+     * Nodes with float have no drag; with start-to-start or finish-to-finish logic, shortening a node can
+     * lengthen the project, which shows as negative drag.
+     * @param schedule Schedule
+     * @return Drag per node (hours)
+     */
+    public static double[] drag(ProjectSchedule schedule) {
+        ScheduleNetwork network = schedule.network();
+        int n = network.size();
+        double projectFinish = schedule.getProjectFinish();
+        double[] duration = new double[n];
+        double[] earlyFinish = new double[n];
+        double[] lateFinish = new double[n];
+        for (int v = 0; v < n; v++) {
+            duration[v] = schedule.duration(v);
+            earlyFinish[v] = schedule.earlyFinish(v);
+            lateFinish[v] = schedule.lateFinish(v);
+        }
+
+        // Longest path over each link that jumps over nodes, as a range maximum over the nodes between
+        double[] tree = new double[2 * n];
+        Arrays.fill(tree, Double.NEGATIVE_INFINITY);
+        for (int w = 0; w < n; w++) {
+            double tail = duration[w] + projectFinish - lateFinish[w];
+            for (int k = network.predecessorStart(w), end = network.predecessorEnd(w); k < end; k++) {
+                int u = network.predecessor(k);
+                if (u + 1 < w) {
+                    double length = earlyFinish[u] + network.linkOffset(k, w, duration) + tail;
+                    rangeMax(tree, n, u + 1, w - 1, length);
+                }
+            }
+        }
+
+        // Paths that end before a node (prefix) or start after it (suffix) also bypass it
+        double[] startsAfter = new double[n + 1];
+        startsAfter[n] = Double.NEGATIVE_INFINITY;
+        for (int w = n - 1; w >= 0; w--) {
+            startsAfter[w] = Math.max(startsAfter[w + 1], duration[w] + projectFinish - lateFinish[w]);
+        }
+
+        double[] drag = new double[n];
+        double endsBefore = Double.NEGATIVE_INFINITY;
+        for (int v = 0; v < n; v++) {
+            double bypass = Math.max(pointMax(tree, n, v), Math.max(endsBefore, startsAfter[v + 1]));
+
+            // Longest path through the node with its duration set to zero
+            double d = duration[v];
+            duration[v] = 0;
+            double through = network.earlyStart(v, duration, earlyFinish)
+                    + projectFinish - network.lateFinish(v, duration, lateFinish, projectFinish);
+            duration[v] = d;
+
+            drag[v] = projectFinish - Math.max(bypass, through);
+            endsBefore = Math.max(endsBefore, earlyFinish[v]);
+        }
+        return drag;
+    }
+
+    /**
+     * Longest paths through the network, longest first.
+     * A best-first search backwards from the path ends: every partial path is ranked by the longest
+     * complete path it can become (the early finish of its first node plus its own length), which is
+     * exact, so complete paths come out in order and the search expands little beyond the paths returned.
+     * @param schedule Schedule
+     * @param limit Maximum number of paths
+     * @param floatThreshold Only paths at most this much shorter than the project (hours)
+     * @return Paths, longest first
+     */
+    public static List<Path> longestPaths(ProjectSchedule schedule, int limit, double floatThreshold) {
+        ScheduleNetwork network = schedule.network();
+        int n = network.size();
+        double projectFinish = schedule.getProjectFinish();
+        double shortest = projectFinish - floatThreshold - 1e-9;
+        double[] duration = new double[n];
+        for (int v = 0; v < n; v++) {
+            duration[v] = schedule.duration(v);
+        }
+
+        PriorityQueue<Partial> queue = new PriorityQueue<>();
+        for (int v = 0; v < n; v++) {
+            if (schedule.earlyFinish(v) >= shortest) {
+                queue.add(new Partial(new Step(v, null), 0, schedule.earlyFinish(v), false));
+            }
+        }
+
+        List<Path> paths = new ArrayList<>();
+        int expansions = 0;
+        while (!queue.isEmpty() && paths.size() < limit && expansions++ < MAX_EXPANSIONS) {
+            Partial partial = queue.poll();
+            if (partial.complete) {
+                paths.add(partial.toPath());
+                continue;
+            }
+
+            int v = partial.first.node;
+            // The path may begin here, at the project start
+            double length = duration[v] + partial.tail;
+            if (length >= shortest) {
+                queue.add(new Partial(partial.first, partial.tail, length, true));
+            }
+            for (int k = network.predecessorStart(v), end = network.predecessorEnd(v); k < end; k++) {
+                int p = network.predecessor(k);
+                double tail = partial.tail + network.linkOffset(k, v, duration) + duration[v];
+                double bound = schedule.earlyFinish(p) + tail;
+                if (bound >= shortest) {
+                    queue.add(new Partial(new Step(p, partial.first), tail, bound, false));
+                }
+            }
+        }
+        return paths;
+    }
+
+    private static void rangeMax(double[] tree, int n, int from, int to, double value) {
+        for (int l = from + n, r = to + n + 1; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                tree[l] = Math.max(tree[l], value);
+                l++;
+            }
+            if ((r & 1) == 1) {
+                r--;
+                tree[r] = Math.max(tree[r], value);
+            }
+        }
+    }
+
+    private static double pointMax(double[] tree, int n, int index) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = index + n; i >= 1; i >>= 1) {
+            max = Math.max(max, tree[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Node of a partial path, linked towards the path's end
+     */
+    private static final class Step {
+        final int node;
+        final Step next;
+        final int depth;
+
+        Step(int node, Step next) {
+            this.node = node;
+            this.next = next;
+            this.depth = next != null ? next.depth + 1 : 1;
+        }
+    }
+
+    /**
+     * Path from a first node to a path end, with the length from the first node's finish to the end
+     */
+    private static final class Partial implements Comparable<Partial> {
+        final Step first;
+        final double tail;
+        final double bound;
+        final boolean complete;
+
+        Partial(Step first, double tail, double bound, boolean complete) {
+            this.first = first;
+            this.tail = tail;
+            this.bound = bound;
+            this.complete = complete;
+        }
+
+        @Override
+        public int compareTo(Partial other) {
+            // Longest first; among ties finish complete and deeper paths first, so ties do not fan out
+            int order = Double.compare(other.bound, bound);
+            if (order == 0) {
+                order = Boolean.compare(other.complete, complete);
+            }
+            return order != 0 ? order : Integer.compare(other.first.depth, first.depth);
+        }
+
+        Path toPath() {
+            int[] nodes = new int[first.depth];
+            int i = 0;
+            for (Step step = first; step != null; step = step.next) {
+                nodes[i++] = step.node;
+            }
+            return new Path(nodes, bound);
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.Project;
+import com.example.primaverap6reader.model.SimulationJobState;
+import com.example.primaverap6reader.model.SimulationJobStatus;
+import com.example.primaverap6reader.model.SimulationOptions;
+import com.example.primaverap6reader.model.SimulationResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs Monte Carlo simulations as background jobs on a bounded executor.
+ * Callers get a job id to poll for progress, cancel, and fetch the result. Finished results of
+ * seeded runs are cached by project, options, seed and data version, and identical seeded requests
+ * share one running job, so repeating a request returns at once.
+ */
+@Service
+@Slf4j
+public class SimulationJobService {
+
+    private final MonteCarloSimulationService simulationService;
+    private final PrimaveraRestService primaveraService;
+    private final ThreadPoolTaskExecutor executor;
+    private final Cache<String, SimulationResult> results;
+    private final Map<String, SimulationJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, SimulationJob> runningByKey = new ConcurrentHashMap<>();
+    private final long retentionMillis;
+
+    public SimulationJobService(
+            MonteCarloSimulationService simulationService,
+            PrimaveraRestService primaveraService,
+            @Value("${primavera.simulation.jobs.maxConcurrent:2}") int maxConcurrent,
+            @Value("${primavera.simulation.jobs.queueCapacity:16}") int queueCapacity,
+            @Value("${primavera.simulation.jobs.retentionMinutes:30}") long retentionMinutes,
+            @Value("${primavera.simulation.jobs.resultCacheMaxSamples:4000000}") long resultCacheMaxSamples,
+            @Value("${primavera.simulation.jobs.resultCacheMinutes:60}") long resultCacheMinutes) {
+
+        this.simulationService = simulationService;
+        this.primaveraService = primaveraService;
+        this.retentionMillis = TimeUnit.MINUTES.toMillis(retentionMinutes);
+
+        // Each job already runs its iterations on the engine's fork-join pool, so few workers are needed
+        this.executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("simulation-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+
+        // Weighed by raw samples kept, the dominant part of a result's size; sketched results weigh 1
+        this.results = Caffeine.newBuilder()
+                .maximumWeight(resultCacheMaxSamples)
+                .weigher((String key, SimulationResult result) -> Math.max(1, sampleCount(result)))
+                .expireAfterWrite(resultCacheMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(job -> job.cancelRequested = true);
+        executor.shutdown();
+    }
+
+    /**
+     * Submit a simulation job
+     * @param projectObjectId The project's object ID
+     * @param options Simulation options; only runs with a seed are cached, as others are not reproducible
+     * @return Status of the new job, of an identical job already running, or of a completed job
+     *         answered from the result cache
+     * @throws RejectedExecutionException if the job queue is full
+     */
+    public SimulationJobStatus submit(String projectObjectId, SimulationOptions options) {
+        return submitJob(projectObjectId, options).toStatus();
+    }
+
+    /**
+     * Status of a job, or null if the job is unknown or expired
+     */
+    public SimulationJobStatus getStatus(String jobId) {
+        SimulationJob job = jobs.get(jobId);
+        return job != null ? job.toStatus() : null;
+    }
+
+    /**
+     * Result of a completed job, or null if the job is unknown, expired or not completed
+     */
+    public SimulationResult getResult(String jobId) {
+        SimulationJob job = jobs.get(jobId);
+        return job != null && job.state == SimulationJobState.COMPLETED ? job.result : null;
+    }
+
+    /**
+     * Cancel a job. Queued jobs are dropped at once; running jobs stop before their next chunk of iterations.
+     * @return Status of the job, or null if the job is unknown or expired
+     */
+    public SimulationJobStatus cancel(String jobId) {
+        SimulationJob job = jobs.get(jobId);
+        if (job == null) {
+            return null;
+        }
+
+        job.cancelRequested = true;
+        // Fails once a worker has started the job; the run then stops at its next chunk
+        if (job.cancelQueued()) {
+            if (job.cacheKey != null) {
+                runningByKey.remove(job.cacheKey, job);
+            }
+            // Free the queue slot; a worker that takes the job anyway finds it cancelled and skips it
+            Future<?> future = job.future;
+            if (future != null && future.cancel(false)) {
+                executor.getThreadPoolExecutor().remove((Runnable) future);
+            }
+        }
+
+        log.info("Cancellation requested for simulation job {} ({})", jobId, job.state);
+        return job.toStatus();
+    }
+
+    private SimulationJob submitJob(String projectObjectId, SimulationOptions options) {
+        if (options.getIterations() <= 0) {
+            throw new IllegalArgumentException("Number of iterations must be positive");
+        }
+        purgeExpiredJobs();
+
+        String cacheKey = options.getSeed() != null ? cacheKey(projectObjectId, options) : null;
+        SimulationJob job = new SimulationJob(projectObjectId, cacheKey, options.getIterations());
+
+        if (cacheKey != null) {
+            SimulationResult cached = results.getIfPresent(cacheKey);
+            if (cached != null) {
+                log.info("Simulation for project {} answered from the result cache", projectObjectId);
+                job.cached = true;
+                job.startedAt = job.submittedAt;
+                job.finish(SimulationJobState.COMPLETED, cached, null);
+                jobs.put(job.id, job);
+                return job;
+            }
+
+            SimulationJob running = runningByKey.putIfAbsent(cacheKey, job);
+            if (running != null) {
+                log.info("Simulation for project {} joins running job {}", projectObjectId, running.id);
+                return running;
+            }
+        }
+
+        jobs.put(job.id, job);
+        try {
+            job.future = executor.submit(() -> execute(job, options));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            if (cacheKey != null) {
+                runningByKey.remove(cacheKey, job);
+            }
+            log.warn("Simulation job queue is full, rejecting project {}", projectObjectId);
+            throw e;
+        }
+
+        log.info("Queued simulation job {} for project {} with {} iterations",
+                job.id, projectObjectId, options.getIterations());
+        return job;
+    }
+
+    private void execute(SimulationJob job, SimulationOptions options) {
+        try {
+            if (!job.start()) {
+                finishCancelled(job);
+                return;
+            }
+
+            SimulationResult result = simulationService.performScheduleRiskAnalysis(job.projectId, options, job);
+            if (job.cacheKey != null) {
+                results.put(job.cacheKey, result);
+            }
+            job.finish(SimulationJobState.COMPLETED, result, null);
+
+        } catch (CancellationException e) {
+            finishCancelled(job);
+        } catch (RuntimeException e) {
+            Throwable cause = e;
+            while (cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            log.error("Simulation job {} failed: {}", job.id, cause.getMessage(), e);
+            job.error = cause.getMessage();
+            job.finish(SimulationJobState.FAILED, null, e);
+        } finally {
+            if (job.cacheKey != null) {
+                runningByKey.remove(job.cacheKey, job);
+            }
+        }
+    }
+
+    private void finishCancelled(SimulationJob job) {
+        job.finish(SimulationJobState.CANCELLED, null, new CancellationException("Simulation cancelled"));
+        if (job.cacheKey != null) {
+            runningByKey.remove(job.cacheKey, job);
+        }
+    }
+
+    private void purgeExpiredJobs() {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.getTime() < cutoff);
+    }
+
+    /**
+     * Everything that determines a seeded run's result. Parallelism is left out: it does not change the samples.
+     */
+    private String cacheKey(String projectObjectId, SimulationOptions options) {
+        Project project = primaveraService.getAllProjects().stream()
+                .filter(p -> projectObjectId.equals(p.getObjectId()))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("Project not found: " + projectObjectId));
+
+        return projectObjectId + '|' + options.getIterations() + '|' + options.getSeed()
+                + '|' + simulationService.dataVersion(project)
+                + '|' + options.getConfidenceLevels() + '|' + options.isAdaptive()
+                + '|' + options.getSamplingMode() + '|' + options.isKeepSamples() + '|' + options.getHistogramBins()
+                + '|' + options.isAnalyzeActivities() + '|' + options.getRankedActivities();
+    }
+
+    private static int sampleCount(SimulationResult result) {
+        return result.getSimulatedCompletionDates() != null ? result.getSimulatedCompletionDates().length : 0;
+    }
+
+    /**
+     * A submitted job; it is its own simulation monitor
+     */
+    private static final class SimulationJob implements SimulationMonitor {
+        final String id = UUID.randomUUID().toString();
+        final String projectId;
+        final String cacheKey;
+        final int totalIterations;
+        final Date submittedAt = new Date();
+        final AtomicInteger completedIterations = new AtomicInteger();
+        volatile SimulationJobState state = SimulationJobState.QUEUED;
+        volatile boolean cancelRequested;
+        volatile boolean cached;
+        volatile Date startedAt;
+        volatile Date finishedAt;
+        volatile SimulationResult result;
+        volatile Throwable failure;
+        volatile String error;
+        volatile Future<?> future;
+
+        SimulationJob(String projectId, String cacheKey, int totalIterations) {
+            this.projectId = projectId;
+            this.cacheKey = cacheKey;
+            this.totalIterations = totalIterations;
+        }
+
+        @Override
+        public void iterationsCompleted(int count) {
+            completedIterations.addAndGet(count);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelRequested;
+        }
+
+        /**
+         * Move from queued to running, unless the job was cancelled first
+         */
+        synchronized boolean start() {
+            if (state != SimulationJobState.QUEUED || cancelRequested) {
+                return false;
+            }
+            startedAt = new Date();
+            state = SimulationJobState.RUNNING;
+            return true;
+        }
+
+        /**
+         * Move from queued to cancelled, unless a worker started the job first
+         */
+        synchronized boolean cancelQueued() {
+            if (state != SimulationJobState.QUEUED) {
+                return false;
+            }
+            finish(SimulationJobState.CANCELLED, null, new CancellationException("Simulation cancelled"));
+            return true;
+        }
+
+        /**
+         * Move to a final state; only the first call has an effect
+         */
+        synchronized void finish(SimulationJobState finalState, SimulationResult result, Throwable failure) {
+            if (state.isFinished()) {
+                return;
+            }
+            this.result = result;
+            this.failure = failure;
+            this.finishedAt = new Date();
+            this.state = finalState;
+        }
+
+        SimulationJobStatus toStatus() {
+            SimulationJobStatus status = new SimulationJobStatus();
+            status.setJobId(id);
+            status.setProjectId(projectId);
+            status.setState(state);
+            status.setCompletedIterations(result != null ? result.getIterations() : completedIterations.get());
+            status.setTotalIterations(totalIterations);
+            status.setCached(cached);
+            status.setSubmittedAt(submittedAt);
+            status.setStartedAt(startedAt);
+            status.setFinishedAt(finishedAt);
+            status.setError(error);
+            return status;
+        }
+    }
+}
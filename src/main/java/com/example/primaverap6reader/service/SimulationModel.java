@@ -0,0 +1,206 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.Activity;
+import com.example.primaverap6reader.model.Relationship;
+import com.example.primaverap6reader.model.ResourceAssignment;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, array-packed inputs of a Monte Carlo run.
+ * Built once per simulation so that iterations only read primitive arrays: no map lookups,
+ * boxing or P6 calls happen inside the sampling loop. Activities are indexed twice: as network
+ * nodes (all activities, topological order) and as stochastic activities (those with a positive
+ * planned duration, which get a triangular distribution).
+ */
+public final class SimulationModel {
+
+    // Triangular distribution bounds relative to the planned duration
+    static final double OPTIMISTIC_FACTOR = 0.8;
+    static final double PESSIMISTIC_FACTOR = 1.3;
+
+    private final long startMillis;
+    private final ScheduleNetwork network;
+    private final double[] plannedDuration;
+    private final int[] stochasticNode;
+    private final double[] minimum;
+    private final double[] maximum;
+    private final double[] modeFraction;
+    private final double[] lowerScale;
+    private final double[] upperScale;
+    private final double[] costPerHour;
+
+    private SimulationModel(long startMillis, ScheduleNetwork network, double[] plannedDuration, int[] stochasticNode,
+                            double[] minimum, double[] maximum, double[] modeFraction,
+                            double[] lowerScale, double[] upperScale, double[] costPerHour) {
+        this.startMillis = startMillis;
+        this.network = network;
+        this.plannedDuration = plannedDuration;
+        this.stochasticNode = stochasticNode;
+        this.minimum = minimum;
+        this.maximum = maximum;
+        this.modeFraction = modeFraction;
+        this.lowerScale = lowerScale;
+        this.upperScale = upperScale;
+        this.costPerHour = costPerHour;
+    }
+
+    /**
+     * Build the model for a project's activities
+     * @param startMillis Project start date
+     * @param activities Activities of the project
+     * @param assignments Resource assignments of the project, used for the planned cost of each activity
+     * @param relationships Relationships of the project, or null to chain the activities in list order
+     * @return Simulation model
+     * @throws IllegalStateException if the relationships contain a loop
+     */
+    public static SimulationModel build(long startMillis, List<Activity> activities,
+                                        List<ResourceAssignment> assignments, List<Relationship> relationships) {
+        ScheduleNetwork network = relationships != null
+                ? ScheduleNetwork.build(activities, relationships)
+                : ScheduleNetwork.serial(activities);
+
+        Map<String, Double> plannedCostByActivity = new HashMap<>();
+        for (ResourceAssignment assignment : assignments) {
+            if (assignment.getActivityObjectId() != null && assignment.getPlannedCost() != null) {
+                plannedCostByActivity.merge(assignment.getActivityObjectId(), assignment.getPlannedCost(), Double::sum);
+            }
+        }
+
+        Map<String, Activity> activitiesById = new HashMap<>(activities.size() * 2);
+        int stochastic = 0;
+        for (Activity activity : activities) {
+            activitiesById.put(activity.getObjectId(), activity);
+            if (isStochastic(activity)) {
+                stochastic++;
+            }
+        }
+
+        double[] plannedDuration = new double[network.size()];
+        int[] stochasticNode = new int[stochastic];
+        double[] minimum = new double[stochastic];
+        double[] maximum = new double[stochastic];
+        double[] modeFraction = new double[stochastic];
+        double[] lowerScale = new double[stochastic];
+        double[] upperScale = new double[stochastic];
+        double[] costPerHour = new double[stochastic];
+
+        int i = 0;
+        for (int node = 0; node < network.size(); node++) {
+            Activity activity = activitiesById.get(network.activityObjectId(node));
+            if (!isStochastic(activity)) {
+                // Activities without a positive duration keep their planned duration and carry no cost
+                plannedDuration[node] = activity.getDurationHours() != null ? activity.getDurationHours() : 0;
+                continue;
+            }
+
+            double mostLikely = activity.getDurationHours();
+            double min = mostLikely * OPTIMISTIC_FACTOR;
+            double max = mostLikely * PESSIMISTIC_FACTOR;
+            double range = max - min;
+
+            plannedDuration[node] = mostLikely;
+            stochasticNode[i] = node;
+            minimum[i] = min;
+            maximum[i] = max;
+            modeFraction[i] = (mostLikely - min) / range;
+            lowerScale[i] = range * (mostLikely - min);
+            upperScale[i] = range * (max - mostLikely);
+            // Cost scales with the simulated/planned duration ratio
+            costPerHour[i] = plannedCostByActivity.getOrDefault(activity.getObjectId(), 0.0) / mostLikely;
+            i++;
+        }
+
+        return new SimulationModel(startMillis, network, plannedDuration, stochasticNode,
+                minimum, maximum, modeFraction, lowerScale, upperScale, costPerHour);
+    }
+
+    private static boolean isStochastic(Activity activity) {
+        return activity.getDurationHours() != null && activity.getDurationHours() > 0;
+    }
+
+    /**
+     * Sample the duration of a stochastic activity from its triangular distribution
+     * @param i Activity index
+     * @param u Uniform random number in [0, 1)
+     * @return Duration in hours
+     */
+    public double sampleDuration(int i, double u) {
+        if (u < modeFraction[i]) {
+            return minimum[i] + Math.sqrt(u * lowerScale[i]);
+        }
+        return maximum[i] - Math.sqrt((1 - u) * upperScale[i]);
+    }
+
+    /**
+     * Sample every stochastic activity of one iteration into its network node
+     * @param u One uniform number per stochastic activity
+     * @param duration Per-node durations, stochastic nodes are overwritten
+     * @return Total cost of the iteration
+     */
+    public double sampleIteration(double[] u, double[] duration) {
+        double totalCost = 0;
+        for (int i = 0; i < u.length; i++) {
+            double sampled = sampleDuration(i, u[i]);
+            duration[stochasticNode[i]] = sampled;
+            totalCost += sampled * costPerHour[i];
+        }
+        return totalCost;
+    }
+
+    /**
+     * Cost of a stochastic activity per simulated hour
+     */
+    public double costPerHour(int i) {
+        return costPerHour[i];
+    }
+
+    /**
+     * Number of activities with a duration distribution
+     */
+    public int size() {
+        return minimum.length;
+    }
+
+    /**
+     * Network node of a stochastic activity
+     */
+    public int stochasticNode(int i) {
+        return stochasticNode[i];
+    }
+
+    public ScheduleNetwork network() {
+        return network;
+    }
+
+    /**
+     * Fill per-node durations with the planned durations; iterations then overwrite the stochastic nodes
+     */
+    public void resetDurations(double[] duration) {
+        System.arraycopy(plannedDuration, 0, duration, 0, plannedDuration.length);
+    }
+
+    /**
+     * Project duration (hours) when every activity takes its planned duration
+     */
+    public double plannedProjectDuration() {
+        return network.forwardPass(plannedDuration, new double[plannedDuration.length]);
+    }
+
+    public long startMillis() {
+        return startMillis;
+    }
+
+    public String activityObjectId(int i) {
+        return network.activityObjectId(stochasticNode[i]);
+    }
+
+    /**
+     * Completion date of an iteration whose network finishes the given number of hours after the start
+     */
+    public long completionMillis(double totalDurationHours) {
+        return startMillis + (long) Math.ceil(totalDurationHours) * 3_600_000L;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.primaverap6reader.service;
+
+/**
+ * Observes a running Monte Carlo simulation.
+ * All methods are called from the engine's worker threads and must be thread-safe.
+ */
+public interface SimulationMonitor {
+
+    /**
+     * Monitor of runs nobody watches: no progress, never cancelled
+     */
+    SimulationMonitor NONE = new SimulationMonitor() {
+        @Override
+        public void iterationsCompleted(int count) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    /**
+     * A chunk of iterations has finished
+     * @param count Number of iterations in the chunk
+     */
+    void iterationsCompleted(int count);
+
+    /**
+     * Whether the run should stop; checked before every chunk
+     */
+    boolean isCancelled();
+
+    /**
+     * One iteration has been simulated. Every iteration is reported exactly once, by the worker
+     * running its chunk, so monitors can fill per-iteration slots without locking.
+     * @param iteration Global iteration index
+     * @param completionMillis Simulated completion date
+     * @param totalCost Simulated total cost
+     */
+    default void iterationSimulated(int iteration, long completionMillis, double totalCost) {
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.SimulationHistogram;
+import com.tdunning.math.stats.TDigest;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Aggregated outcome of a Monte Carlo run.
+ * Percentiles are exact when the raw samples were kept (sorted primitive arrays),
+ * otherwise they are read from t-digest sketches.
+ */
+public final class SimulationOutcome {
+
+    private static final double MILLIS_PER_DAY = 86_400_000.0;
+
+    private final long startMillis;
+    private final int iterations;
+    private final boolean converged;
+    private final long[] completionMillis;
+    private final double[] totalCosts;
+    private final RunningMoments durationMoments;
+    private final RunningMoments costMoments;
+    private final TDigest durationDigest;
+    private final TDigest costDigest;
+    private final ActivityStatistics activityStatistics;
+
+    SimulationOutcome(long startMillis, int iterations, boolean converged, long[] completionMillis,
+                      double[] totalCosts, RunningMoments durationMoments, RunningMoments costMoments,
+                      TDigest durationDigest, TDigest costDigest, ActivityStatistics activityStatistics) {
+        this.startMillis = startMillis;
+        this.iterations = iterations;
+        this.converged = converged;
+        this.completionMillis = completionMillis;
+        this.totalCosts = totalCosts;
+        this.durationMoments = durationMoments;
+        this.costMoments = costMoments;
+        this.durationDigest = durationDigest;
+        this.costDigest = costDigest;
+        this.activityStatistics = activityStatistics;
+    }
+
+    /**
+     * Criticality and sensitivity of the activities, or null if the run did not analyze them
+     */
+    public ActivityStatistics getActivityStatistics() {
+        return activityStatistics;
+    }
+
+    /**
+     * Number of iterations actually run
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Whether an adaptive run stopped early because its percentiles converged
+     */
+    public boolean isConverged() {
+        return converged;
+    }
+
+    /**
+     * Sorted completion dates (epoch milliseconds), or null when only sketches were kept
+     */
+    public long[] getCompletionMillis() {
+        return completionMillis;
+    }
+
+    /**
+     * Sorted total costs, or null when only sketches were kept
+     */
+    public double[] getTotalCosts() {
+        return totalCosts;
+    }
+
+    public boolean hasSamples() {
+        return completionMillis != null;
+    }
+
+    /**
+     * Completion date at a confidence level (percent)
+     */
+    public long completionPercentile(int confidence) {
+        if (hasSamples()) {
+            return completionMillis[percentileIndex(iterations, confidence)];
+        }
+        return startMillis + Math.round(durationDigest.quantile(confidence / 100.0));
+    }
+
+    /**
+     * Total cost at a confidence level (percent)
+     */
+    public double costPercentile(int confidence) {
+        if (hasSamples()) {
+            return totalCosts[percentileIndex(iterations, confidence)];
+        }
+        return costDigest.quantile(confidence / 100.0);
+    }
+
+    private static int percentileIndex(int count, int confidence) {
+        int index = (int) Math.ceil(count * confidence / 100.0) - 1;
+        return Math.max(0, Math.min(index, count - 1));
+    }
+
+    /**
+     * Histogram of the completion dates. Counts are exact when the samples were kept,
+     * otherwise they are interpolated from the sketch's CDF.
+     * @param bins Number of equal-width bins
+     */
+    public SimulationHistogram completionHistogram(int bins) {
+        if (hasSamples()) {
+            return histogram(completionMillis[0], completionMillis[iterations - 1], bins, iterations,
+                    edge -> countBelow(completionMillis, edge));
+        }
+        return histogram(startMillis + durationDigest.getMin(), startMillis + durationDigest.getMax(), bins,
+                iterations, edge -> durationDigest.cdf(edge - startMillis) * iterations);
+    }
+
+    /**
+     * Histogram of the total costs, exact or sketched like {@link #completionHistogram(int)}
+     * @param bins Number of equal-width bins
+     */
+    public SimulationHistogram costHistogram(int bins) {
+        if (hasSamples()) {
+            return histogram(totalCosts, bins);
+        }
+        return histogram(costDigest.getMin(), costDigest.getMax(), bins, iterations,
+                edge -> costDigest.cdf(edge) * iterations);
+    }
+
+    /**
+     * Exact histogram of sorted values
+     * @param sorted Values in ascending order, at least one
+     * @param bins Number of equal-width bins
+     */
+    public static SimulationHistogram histogram(double[] sorted, int bins) {
+        return histogram(sorted[0], sorted[sorted.length - 1], bins, sorted.length, edge -> countBelow(sorted, edge));
+    }
+
+    /**
+     * Value at a confidence level (percent) of sorted values, by the same rule as the run percentiles
+     */
+    public static double percentile(double[] sorted, int confidence) {
+        return sorted[percentileIndex(sorted.length, confidence)];
+    }
+
+    /**
+     * Bin [min, max] evenly
+     * @param count Number of outcomes
+     * @param below Number of outcomes strictly below a value
+     */
+    private static SimulationHistogram histogram(double min, double max, int bins, int count,
+                                                 DoubleUnaryOperator below) {
+        // A constant outcome gets a single bin
+        if (!(max > min)) {
+            bins = 1;
+        }
+
+        double[] edges = new double[bins + 1];
+        for (int i = 0; i < bins; i++) {
+            edges[i] = min + (max - min) * i / bins;
+        }
+        edges[bins] = max;
+
+        long[] counts = new long[bins];
+        double[] cumulative = new double[bins];
+        long previous = 0;
+        for (int i = 0; i < bins; i++) {
+            // Rounded cumulative counts keep the bins summing to the iteration count
+            long upTo = i == bins - 1
+                    ? count
+                    : Math.max(previous, Math.min(count, Math.round(below.applyAsDouble(edges[i + 1]))));
+            counts[i] = upTo - previous;
+            cumulative[i] = (double) upTo / count;
+            previous = upTo;
+        }
+
+        SimulationHistogram histogram = new SimulationHistogram();
+        histogram.setBinEdges(edges);
+        histogram.setCounts(counts);
+        histogram.setCumulative(cumulative);
+        return histogram;
+    }
+
+    private static double countBelow(long[] sorted, double value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static double countBelow(double[] sorted, double value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public long getMeanCompletionMillis() {
+        return startMillis + Math.round(durationMoments.getMean());
+    }
+
+    /**
+     * Standard deviation of the completion date in days
+     */
+    public double getDateStandardDeviationDays() {
+        return durationMoments.getStandardDeviation() / MILLIS_PER_DAY;
+    }
+
+    public double getMeanTotalCost() {
+        return costMoments.getMean();
+    }
+
+    public double getCostStandardDeviation() {
+        return costMoments.getStandardDeviation();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.primaverap6reader.service;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip-compressed binary encoding of a simulation's raw samples, for downloads.
+ * Layout (big-endian, inside the gzip stream):
+ * <pre>
+ * int    magic 0x50364D43 ("P6MC")
+ * int    format version (1)
+ * int    n, number of iterations
+ * long   first completion date (epoch millis), then n - 1 longs: differences to the previous date
+ * double n total costs
+ * </pre>
+ * Both series are sorted ascending, so the date differences are small and compress well.
+ */
+public final class SimulationSampleCodec {
+
+    public static final int MAGIC = 0x50364D43;
+    public static final int VERSION = 1;
+
+    private SimulationSampleCodec() {
+    }
+
+    /**
+     * Write the samples; the stream is finished but not closed
+     * @param completionMillis Sorted completion dates
+     * @param totalCosts Sorted total costs, same length
+     * @param out Destination
+     */
+    public static void write(long[] completionMillis, double[] totalCosts, OutputStream out) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024);
+        DataOutputStream data = new DataOutputStream(gzip);
+
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(completionMillis.length);
+
+        long previous = 0;
+        for (long date : completionMillis) {
+            data.writeLong(date - previous);
+            previous = date;
+        }
+        for (double cost : totalCosts) {
+            data.writeDouble(cost);
+        }
+
+        data.flush();
+        gzip.finish();
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.SamplingMode;
+
+import java.util.SplittableRandom;
+
+/**
+ * Produces the uniform numbers of one Monte Carlo iteration, one per stochastic activity.
+ * Implementations are stateless apart from their seed-derived tables, so any iteration can be
+ * generated on any thread and the result depends only on the iteration index and its chunk stream.
+ */
+public interface UniformSampler {
+
+    /**
+     * Fill u with one uniform number in [0, 1) per dimension for the given iteration
+     * @param iteration Global iteration index
+     * @param random The iteration's chunk stream
+     * @param u Output, one entry per dimension
+     */
+    void fill(int iteration, SplittableRandom random, double[] u);
+
+    /**
+     * Create the sampler for a sampling mode
+     * @param mode Sampling mode
+     * @param dimensions Number of stochastic activities
+     * @param iterations Total number of iterations
+     * @param blockSize Latin hypercube stratification block; the last block may be shorter
+     * @param seed Root seed of the run
+     */
+    static UniformSampler create(SamplingMode mode, int dimensions, int iterations, int blockSize, long seed) {
+        switch (mode) {
+            case LATIN_HYPERCUBE:
+                return new LatinHypercube(dimensions, iterations, blockSize, seed);
+            case HALTON:
+                return new Halton(dimensions, seed);
+            case RANDOM:
+            default:
+                return (iteration, random, u) -> {
+                    for (int i = 0; i < u.length; i++) {
+                        u[i] = random.nextDouble();
+                    }
+                };
+        }
+    }
+
+    /**
+     * Latin hypercube sampling: within each block of iterations, every dimension visits each of
+     * the block's equal-probability strata exactly once, in an independent pseudo-random order.
+     * Strata orders come from a keyed hash permutation, so no permutation tables are stored.
+     */
+    final class LatinHypercube implements UniformSampler {
+
+        private final int iterations;
+        private final int blockSize;
+        private final int[] dimensionKeys;
+        private final long seed;
+
+        LatinHypercube(int dimensions, int iterations, int blockSize, long seed) {
+            this.iterations = iterations;
+            this.blockSize = Math.max(1, Math.min(blockSize, iterations));
+            this.seed = seed;
+            this.dimensionKeys = new int[dimensions];
+
+            SplittableRandom keys = new SplittableRandom(seed ^ 0x5DEECE66DL);
+            for (int i = 0; i < dimensions; i++) {
+                dimensionKeys[i] = keys.nextInt();
+            }
+        }
+
+        @Override
+        public void fill(int iteration, SplittableRandom random, double[] u) {
+            int block = iteration / blockSize;
+            int index = iteration - block * blockSize;
+            int length = Math.min(blockSize, iterations - block * blockSize);
+            int blockKey = (int) mix64(seed + block * 0x9E3779B97F4A7C15L);
+
+            for (int i = 0; i < u.length; i++) {
+                int stratum = permute(index, length, dimensionKeys[i] ^ blockKey);
+                u[i] = (stratum + random.nextDouble()) / length;
+            }
+        }
+
+        /**
+         * Keyed pseudo-random permutation of [0, length), evaluated one element at a time
+         * (Kensler, "Correlated Multi-Jittered Sampling", 2013) using cycle walking
+         */
+        static int permute(int i, int length, int key) {
+            int w = length - 1;
+            w |= w >>> 1;
+            w |= w >>> 2;
+            w |= w >>> 4;
+            w |= w >>> 8;
+            w |= w >>> 16;
+
+            do {
+                i ^= key;
+                i *= 0xe170893d;
+                i ^= key >>> 16;
+                i ^= (i & w) >>> 4;
+                i ^= key >>> 8;
+                i *= 0x0929eb3f;
+                i ^= key >>> 23;
+                i ^= (i & w) >>> 1;
+                i *= 1 | key >>> 27;
+                i *= 0x6935fa69;
+                i ^= (i & w) >>> 11;
+                i *= 0x74dcb303;
+                i ^= (i & w) >>> 2;
+                i *= 0x9e501cc3;
+                i ^= (i & w) >>> 2;
+                i *= 0xc860a3df;
+                i &= w;
+                i ^= i >>> 5;
+            } while (i >= length);
+
+            return Integer.remainderUnsigned(i + key, length);
+        }
+    }
+
+    /**
+     * Halton sequence with one prime base per dimension, randomized with a linear digit scramble
+     * and a Cranley-Patterson shift per dimension so that runs with different seeds are independent
+     */
+    final class Halton implements UniformSampler {
+
+        private final int[] bases;
+        private final int[] multipliers;
+        private final int[] offsets;
+        private final double[] shifts;
+
+        Halton(int dimensions, long seed) {
+            this.bases = firstPrimes(dimensions);
+            this.multipliers = new int[dimensions];
+            this.offsets = new int[dimensions];
+            this.shifts = new double[dimensions];
+
+            SplittableRandom random = new SplittableRandom(seed ^ 0x2545F4914F6CDD1DL);
+            for (int i = 0; i < dimensions; i++) {
+                multipliers[i] = 1 + random.nextInt(bases[i] - 1);
+                offsets[i] = random.nextInt(bases[i]);
+                shifts[i] = random.nextDouble();
+            }
+        }
+
+        @Override
+        public void fill(int iteration, SplittableRandom random, double[] u) {
+            // Index 0 maps to the origin in every dimension, so the sequence starts at 1
+            long index = iteration + 1L;
+
+            for (int i = 0; i < u.length; i++) {
+                int base = bases[i];
+                double inverseBase = 1.0 / base;
+                double factor = inverseBase;
+                double value = 0;
+
+                for (long k = index; k > 0; k /= base) {
+                    int digit = (int) (k % base);
+                    value += ((multipliers[i] * (long) digit + offsets[i]) % base) * factor;
+                    factor *= inverseBase;
+                }
+
+                value += shifts[i];
+                u[i] = value >= 1 ? value - 1 : value;
+            }
+        }
+
+        static int[] firstPrimes(int count) {
+            int[] primes = new int[count];
+            if (count == 0) {
+                return primes;
+            }
+
+            // The n-th prime is below n (ln n + ln ln n) for n >= 6
+            int limit = count < 6 ? 15 : (int) (count * (Math.log(count) + Math.log(Math.log(count)))) + 1;
+            boolean[] composite = new boolean[limit + 1];
+            int found = 0;
+
+            for (int n = 2; n <= limit && found < count; n++) {
+                if (!composite[n]) {
+                    primes[found++] = n;
+                    for (long m = (long) n * n; m <= limit; m += n) {
+                        composite[(int) m] = true;
+                    }
+                }
+            }
+
+            return primes;
+        }
+    }
+
+    /**
+     * 64-bit finalizer of SplitMix64
+     */
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.primaverap6reader.controller;
+
+import com.example.primaverap6reader.model.Project;
+import com.example.primaverap6reader.model.SimulationJobState;
+import com.example.primaverap6reader.model.SimulationJobStatus;
+import com.example.primaverap6reader.service.MonteCarloSimulationService;
+import com.example.primaverap6reader.service.PortfolioSimulationService;
+import com.example.primaverap6reader.service.PortfolioSimulationStore;
+import com.example.primaverap6reader.service.PrimaveraRestService;
+import com.example.primaverap6reader.service.SimulationJobService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+class PredictiveAnalyticsControllerTest {
+
+    private final PrimaveraRestService primaveraService = mock(PrimaveraRestService.class);
+    private final SimulationJobService jobService = mock(SimulationJobService.class);
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new PredictiveAnalyticsController(
+            primaveraService, mock(MonteCarloSimulationService.class), jobService,
+            mock(PortfolioSimulationService.class), mock(PortfolioSimulationStore.class))).build();
+
+    @Test
+    void simulateReturnsTheJobToPoll() throws Exception {
+        when(jobService.submit(eq("P"), any())).thenReturn(job(SimulationJobState.QUEUED));
+
+        mockMvc.perform(post("/predictive/simulate/P").param("iterations", "500"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.jobId").value("J"));
+    }
+
+    @Test
+    void simulateReportsAFullQueue() throws Exception {
+        when(jobService.submit(eq("P"), any())).thenThrow(new RejectedExecutionException());
+
+        mockMvc.perform(post("/predictive/simulate/P"))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void scheduleRiskPageRendersWhileTheJobRuns() throws Exception {
+        Project project = new Project();
+        project.setObjectId("P");
+        when(primaveraService.getAllProjects()).thenReturn(List.of(project));
+        when(jobService.submit(eq("P"), any())).thenReturn(job(SimulationJobState.RUNNING));
+
+        mockMvc.perform(get("/predictive/schedule-risk/P"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("schedule-risk-analysis"))
+                .andExpect(model().attribute("simulationResult", (Object) null));
+    }
+
+    private static SimulationJobStatus job(SimulationJobState state) {
+        SimulationJobStatus status = new SimulationJobStatus();
+        status.setJobId("J");
+        status.setState(state);
+        return status;
+    }
+}
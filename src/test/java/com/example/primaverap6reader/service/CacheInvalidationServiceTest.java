@@ -0,0 +1,119 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.config.RefreshAheadCacheManager;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheInvalidationServiceTest {
+
+    private RefreshAheadCacheManager cacheManager;
+    private CacheInvalidationService invalidationService;
+
+    @BeforeEach
+    void setUp() {
+        // Every read of a cached projectActivities entry reloads it in the background
+        cacheManager = new RefreshAheadCacheManager(Map.of("projectActivities", Duration.ZERO), 1);
+        cacheManager.registerCustomCache("projectActivities",
+                Caffeine.newBuilder().expireAfterWrite(1, TimeUnit.HOURS).build());
+        for (String name : List.of("activityCount", "activityTypeStats", "projectActivitiesPage", "projectPaths")) {
+            cacheManager.registerCustomCache(name, Caffeine.newBuilder().build());
+        }
+        invalidationService = new CacheInvalidationService(cacheManager);
+        invalidationService.listenToReloads();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cacheManager.destroy();
+    }
+
+    @Test
+    void changedReloadInvalidatesDependentsAndBumpsTheGeneration() throws InterruptedException {
+        cache("projectActivities").put("P", List.of());
+        cache("activityCount").put("P", 0L);
+        cache("activityCount").put("Q", 3L);
+        cache("activityTypeStats").put("all", Map.of());
+        cache("projectActivitiesPage").put(List.of("P", 0, 50), List.of());
+        long generation = invalidationService.getDataGeneration("P");
+
+        cache("projectActivities").get("P", () -> List.of(ProjectScheduleTest.activity("1", 8.0)));
+
+        waitUntil(() -> cache("activityCount").get("P") == null);
+        assertThat(cache("activityCount").get("Q")).isNotNull();
+        assertThat(cache("activityTypeStats").get("all")).isNull();
+        assertThat(cache("projectActivitiesPage").get(List.of("P", 0, 50))).isNull();
+        assertThat(cache("projectActivities").get("P").get()).asList().hasSize(1);
+        assertThat(invalidationService.getDataGeneration("P")).isGreaterThan(generation);
+        assertThat(invalidationService.getDataGeneration("Q")).isEqualTo(0);
+    }
+
+    @Test
+    void unchangedReloadKeepsDependents() throws InterruptedException {
+        AtomicReference<Boolean> reloaded = new AtomicReference<>(false);
+        cache("projectActivities").put("P", List.of());
+        cache("activityCount").put("P", 0L);
+
+        cache("projectActivities").get("P", () -> {
+            reloaded.set(true);
+            return List.of();
+        });
+
+        waitUntil(reloaded::get);
+        // The listener would run on the refresh thread right after the reload
+        Thread.sleep(100);
+        assertThat(cache("activityCount").get("P")).isNotNull();
+        assertThat(invalidationService.getDataGeneration("P")).isEqualTo(0);
+    }
+
+    @Test
+    void refreshProjectEvictsDerivedEntriesOfThatProjectOnly() {
+        cache("projectActivities").put("P", List.of());
+        cache("projectActivities").put("Q", List.of());
+        cache("activityCount").put("P", 0L);
+        cache("activityCount").put("Q", 0L);
+        cache("projectPaths").put(List.of("P", 5, 40.0), "paths of P");
+        cache("projectPaths").put(List.of("Q", 5, 40.0), "paths of Q");
+
+        invalidationService.refreshProject("P");
+
+        assertThat(cache("projectActivities").get("P")).isNull();
+        assertThat(cache("activityCount").get("P")).isNull();
+        assertThat(cache("projectActivities").get("Q")).isNotNull();
+        assertThat(cache("activityCount").get("Q")).isNotNull();
+        assertThat(cache("projectPaths").get(List.of("P", 5, 40.0))).isNull();
+        assertThat(cache("projectPaths").get(List.of("Q", 5, 40.0))).isNotNull();
+    }
+
+    @Test
+    void changedRelationshipsInvalidatePathAnalyses() {
+        cache("projectPaths").put(List.of("P", 5, 40.0), "paths of P");
+
+        invalidationService.invalidateDependents("projectRelationships", "P");
+
+        assertThat(cache("projectPaths").get(List.of("P", 5, 40.0))).isNull();
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("waited 5 s for the background reload").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private Cache cache(String name) {
+        return cacheManager.getCache(name);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.Activity;
+import com.example.primaverap6reader.model.Project;
+import com.example.primaverap6reader.model.Resource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CacheSnapshotCodecTest {
+
+    @Test
+    void recordsRoundTripIncludingNullColumns(@TempDir Path dir) throws IOException {
+        List<Activity> activities = activities(500);
+        ActivityTable table = ActivityTable.builder().addAll(activities).build();
+        Resource active = new Resource();
+        active.setObjectId("R1");
+        active.setName("Ünïcode ✓");
+        active.setIsActive(true);
+        active.setPricePerUnit(12.5);
+        // Every Double and Boolean left null
+        Resource blank = new Resource();
+        blank.setObjectId("R2");
+        blank.setCalculateCostFromUnits(false);
+        Project project = new Project();
+        project.setObjectId("P1");
+        project.setLastUpdateDate(new Date(1_650_000_000_000L));
+
+        Path file = dir.resolve("snapshot.bin");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            CacheSnapshotCodec.write(42, List.of(
+                    new CacheSnapshotCodec.Entry("projectActivities", "P1", Activity.class, table),
+                    new CacheSnapshotCodec.Entry("allResources", null, Resource.class, List.of(active, blank)),
+                    new CacheSnapshotCodec.Entry("allProjects", null, Project.class, List.of(project))), out);
+        }
+        CacheSnapshotCodec.Snapshot snapshot = CacheSnapshotCodec.read(file);
+
+        assertThat(snapshot.getCreatedAt()).isEqualTo(42);
+        assertThat(snapshot.getSkippedEntries()).isZero();
+        assertThat(snapshot.getEntries()).extracting(CacheSnapshotCodec.Entry::getCacheName)
+                .containsExactly("projectActivities", "allResources", "allProjects");
+        assertThat(snapshot.getEntries()).extracting(CacheSnapshotCodec.Entry::getKey)
+                .containsExactly("P1", null, null);
+        assertThat(snapshot.getEntries().get(0).getRecords()).isEqualTo(activities);
+        assertThat(snapshot.getEntries().get(1).getRecords()).isEqualTo(List.of(active, blank));
+        Resource readBlank = (Resource) snapshot.getEntries().get(1).getRecords().get(1);
+        assertThat(readBlank.getPricePerUnit()).isNull();
+        assertThat(readBlank.getIsActive()).isNull();
+        assertThat(readBlank.getCalculateCostFromUnits()).isFalse();
+        assertThat(snapshot.getEntries().get(2).getRecords()).isEqualTo(List.of(project));
+    }
+
+    @Test
+    void corruptSnapshotsAreRejected() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CacheSnapshotCodec.write(42, List.of(
+                new CacheSnapshotCodec.Entry("projectActivities", "P1", Activity.class, activities(50))), out);
+        byte[] bytes = out.toByteArray();
+
+        byte[] truncated = new byte[bytes.length / 2];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        assertThatThrownBy(() -> CacheSnapshotCodec.read(ByteBuffer.wrap(truncated))).isInstanceOf(IOException.class);
+
+        byte[] badMagic = bytes.clone();
+        badMagic[0] ^= 0x55;
+        assertThatThrownBy(() -> CacheSnapshotCodec.read(ByteBuffer.wrap(badMagic))).isInstanceOf(IOException.class);
+
+        // A string table offset pointing past the end of the file
+        byte[] badOffset = bytes.clone();
+        badOffset[bytes.length - 3] ^= 0x7f;
+        assertThatThrownBy(() -> CacheSnapshotCodec.read(ByteBuffer.wrap(badOffset))).isInstanceOf(IOException.class);
+    }
+
+    private static List<Activity> activities(int count) {
+        List<Activity> activities = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Activity activity = new Activity();
+            activity.setObjectId("A" + i);
+            activity.setId("ID" + i);
+            activity.setName("Activity " + i);
+            activity.setProjectObjectId("P1");
+            activity.setStatus(i % 7 == 0 ? null : "Not Started");
+            activity.setStartDate(new Date(1_600_000_000_000L + i * 1000L));
+            activity.setFinishDate(i % 5 == 0 ? null : new Date(1_600_100_000_000L + i * 1000L));
+            activity.setPlannedDuration(i % 4 == 0 ? null : (double) (i % 100));
+            activity.setLastUpdateDate(new Date(1_650_000_000_000L + i));
+            activities.add(activity);
+        }
+        return activities;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.Project;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CacheWarmUpServiceTest {
+
+    @Test
+    void warmUpFillsTheProjectListCache() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(CachingConfig.class)) {
+            PrimaveraRestService primaveraService = context.getBean(PrimaveraRestService.class);
+            CacheWarmUpService warmUp = new CacheWarmUpService(primaveraService, new SyncTaskExecutor(), true);
+
+            warmUp.warmUpOnStartup();
+            warmUp.runWarmUp();
+
+            // Both runs go through the caching proxy, so P6 is asked for the project list once
+            PrimaveraRestService target = context.getBean(CachingConfig.class).target;
+            verify(target, times(1)).getAllProjects();
+            verify(target, times(2)).getActivitiesForProjects(List.of("P"));
+            verify(target, times(2)).getResourceAssignmentsForProjects(anyCollection());
+            assertThat(context.getBean(CacheManager.class).getCache("allProjects").get(SimpleKey.EMPTY)).isNotNull();
+        }
+    }
+
+    @Configuration
+    @EnableCaching(proxyTargetClass = true)
+    static class CachingConfig {
+        final PrimaveraRestService target = mock(PrimaveraRestService.class);
+
+        CachingConfig() {
+            Project project = new Project();
+            project.setObjectId("P");
+            when(target.getAllProjects()).thenReturn(List.of(project));
+        }
+
+        @Bean
+        CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager("allProjects");
+        }
+
+        @Bean
+        PrimaveraRestService primaveraService() {
+            return target;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.Activity;
+import com.example.primaverap6reader.model.Relationship;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.primaverap6reader.service.ProjectScheduleTest.activity;
+import static com.example.primaverap6reader.service.ProjectScheduleTest.relationship;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CriticalPathServiceTest {
+
+    private final PrimaveraRestService primaveraService = mock(PrimaveraRestService.class);
+    private CriticalPathService service;
+
+    private final List<Activity> activities = List.of(activity("1", 5.0), activity("2", 3.0), activity("3", 1.0));
+    private final List<Relationship> relationships = List.of(
+            relationship("1", "2", "Finish to Start", 0.0),
+            relationship("1", "3", "Finish to Start", 0.0));
+
+    @BeforeEach
+    void setUp() {
+        service = new CriticalPathService(primaveraService, new ConcurrentMapCacheManager("projectSchedules"));
+        returns(activities, relationships);
+    }
+
+    @Test
+    void changedDurationsAndLinksUpdateTheCachedSchedule() {
+        ProjectSchedule first = service.withSchedule("P", (schedule, byNode) -> schedule);
+
+        List<Activity> changed = new ArrayList<>(activities);
+        changed.set(2, activity("3", 6.0));
+        returns(changed, List.of(
+                relationship("1", "2", "Start to Start", 1.0),
+                relationship("1", "3", "Finish to Start", 0.0)));
+        ProjectSchedule second = service.withSchedule("P", (schedule, byNode) -> schedule);
+
+        assertThat(second).isSameAs(first);
+        assertThat(second.matches(second.recompute(), 1e-9)).isTrue();
+        assertThat(second.getProjectFinish()).isEqualTo(11.0);
+        assertThat(service.identifyCriticalPath("P")).extracting(Activity::getObjectId).containsExactly("1", "3");
+    }
+
+    @Test
+    void failedUpdateLeavesTheCachedScheduleUntouched() {
+        ProjectSchedule first = service.withSchedule("P", (schedule, byNode) -> schedule);
+        double[] durations = {first.duration(0), first.duration(1), first.duration(2)};
+
+        // A changed duration before an activity the network does not have: the update must fail as a whole
+        returns(List.of(activity("1", 50.0), activity("2", 3.0), activity("4", 1.0)), relationships);
+        Map<String, Double> floats = service.calculateActivityFloat("P");
+
+        assertThat(new double[]{first.duration(0), first.duration(1), first.duration(2)}).isEqualTo(durations);
+        assertThat(first.matches(first.recompute(), 1e-9)).isTrue();
+        assertThat(floats).containsOnlyKeys("A1", "A2", "A4");
+        ProjectSchedule rebuilt = service.withSchedule("P", (schedule, byNode) -> schedule);
+        assertThat(rebuilt).isNotSameAs(first);
+    }
+
+    private void returns(List<Activity> projectActivities, List<Relationship> projectRelationships) {
+        when(primaveraService.getActivitiesForProject("P")).thenReturn(projectActivities);
+        when(primaveraService.getRelationshipsForProject("P")).thenReturn(projectRelationships);
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.Activity;
+import com.example.primaverap6reader.model.Project;
+import com.example.primaverap6reader.model.ResourceAssignment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeltaSyncServiceTest {
+
+    private final PrimaveraRestService primaveraService = mock(PrimaveraRestService.class);
+    private final CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+    private CacheInvalidationService invalidationService;
+    private DeltaSyncService syncService;
+
+    @BeforeEach
+    void setUp() {
+        invalidationService = new CacheInvalidationService(cacheManager);
+        syncService = new DeltaSyncService(primaveraService, invalidationService, cacheManager,
+                new ConcurrentFetcher(Runnable::run), true, 60, 60);
+    }
+
+    @Test
+    void changedActivitiesAreMergedAndDeletedOnesDroppedOnReconcile() {
+        cache("projectActivities").put("P", ActivityTable.builder()
+                .add(activity("A1", 1_000_000)).add(activity("A2", 2_000_000)).add(activity("A3", 3_000_000))
+                .build());
+        cache("projectResourceAssignments").put("P", List.of(assignment("R1", 1000), assignment("R2", 1000)));
+        cache("activityCount").put("P", 3L);
+        cache("activityCount").put("Q", 9L);
+        when(primaveraService.getActivitiesUpdatedSince(eq("P"), any()))
+                .thenReturn(List.of(activity("A2", 5_000_000), activity("A4", 5_000_000)));
+        when(primaveraService.getActivityObjectIdsInP6("P")).thenReturn(Set.of("A1", "A2", "A4"));
+        when(primaveraService.getResourceAssignmentsUpdatedSince(eq("P"), any())).thenReturn(List.of());
+        when(primaveraService.getResourceAssignmentObjectIdsInP6("P")).thenReturn(Set.of("R1"));
+
+        syncService.syncProject("P");
+
+        List<Activity> activities = cachedValue("projectActivities", "P");
+        assertThat(activities.stream().map(Activity::getObjectId).collect(Collectors.toList()))
+                .containsExactly("A1", "A2", "A4");
+        assertThat(activities.get(1).getLastUpdateDate()).isEqualTo(new Date(5_000_000));
+        // Asked from the high-water mark less the overlap
+        verify(primaveraService).getActivitiesUpdatedSince("P", new Date(3_000_000 - 60_000));
+        List<ResourceAssignment> assignments = cachedValue("projectResourceAssignments", "P");
+        assertThat(assignments).extracting(ResourceAssignment::getObjectId).containsExactly("R1");
+        assertThat(cache("activityCount").get("P")).isNull();
+        assertThat(cache("activityCount").get("Q")).isNotNull();
+        assertThat(invalidationService.getDataGeneration("P")).isPositive();
+    }
+
+    @Test
+    void unchangedDataKeepsCachedEntriesAndSkipsReconcileUntilDue() {
+        ActivityTable activities = ActivityTable.builder().add(activity("A1", 1_000_000)).build();
+        cache("projectActivities").put("P", activities);
+        cache("activityCount").put("P", 1L);
+        // The overlap fetches the newest record again, unchanged
+        when(primaveraService.getActivitiesUpdatedSince(eq("P"), any())).thenReturn(List.of(activity("A1", 1_000_000)));
+        when(primaveraService.getActivityObjectIdsInP6("P")).thenReturn(Set.of("A1"));
+
+        syncService.syncProject("P");
+        syncService.syncProject("P");
+
+        assertThat(cache("projectActivities").get("P").get()).isSameAs(activities);
+        assertThat(cache("activityCount").get("P")).isNotNull();
+        assertThat(invalidationService.getDataGeneration("P")).isZero();
+        verify(primaveraService, times(1)).getActivityObjectIdsInP6("P");
+    }
+
+    @Test
+    void projectListIsMergedAndReconciled() {
+        cache("allProjects").put(SimpleKey.EMPTY, List.of(project("1", 1000), project("2", 2000)));
+        cache("projectCount").put(SimpleKey.EMPTY, 2L);
+        when(primaveraService.getProjectsUpdatedSince(any())).thenReturn(List.of(project("3", 3000)));
+        when(primaveraService.getProjectObjectIdsInP6()).thenReturn(Set.of("2", "3"));
+
+        syncService.syncAll();
+        syncService.syncAll();
+
+        List<Project> projects = cachedValue("allProjects", SimpleKey.EMPTY);
+        assertThat(projects).extracting(Project::getObjectId).containsExactly("2", "3");
+        assertThat(cache("projectCount").get(SimpleKey.EMPTY)).isNull();
+        // Reconciled once, the second sync is within the reconcile interval
+        verify(primaveraService).getProjectObjectIdsInP6();
+    }
+
+    @Test
+    void uncachedDataIsNotSynced() {
+        syncService.syncAll();
+
+        verify(primaveraService, never()).getProjectsUpdatedSince(any());
+        verify(primaveraService, never()).getActivitiesUpdatedSince(any(), any());
+    }
+
+    private Cache cache(String name) {
+        return cacheManager.getCache(name);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cachedValue(String cacheName, Object key) {
+        return (T) cache(cacheName).get(key).get();
+    }
+
+    private static Activity activity(String objectId, long lastUpdate) {
+        Activity activity = ProjectScheduleTest.activity(objectId, 8.0);
+        activity.setProjectObjectId("P");
+        activity.setLastUpdateDate(new Date(lastUpdate));
+        return activity;
+    }
+
+    private static ResourceAssignment assignment(String objectId, long lastUpdate) {
+        ResourceAssignment assignment = new ResourceAssignment();
+        assignment.setObjectId(objectId);
+        assignment.setActivityObjectId("A1");
+        assignment.setLastUpdateDate(new Date(lastUpdate));
+        return assignment;
+    }
+
+    private static Project project(String objectId, long lastUpdate) {
+        Project project = new Project();
+        project.setObjectId(objectId);
+        project.setId("PRJ-" + objectId);
+        project.setLastUpdateDate(new Date(lastUpdate));
+        return project;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.primaverap6reader.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InFilterBatcherTest {
+
+    private static final ConcurrentFetcher SAME_THREAD = new ConcurrentFetcher(Runnable::run);
+
+    @Test
+    void partitionKeepsEveryChunkWithinTheValueCount() {
+        InFilterBatcher batcher = new InFilterBatcher(SAME_THREAD, 3, 4000);
+
+        assertThat(batcher.partition("F", values(1, 7))).containsExactly(
+                "F IN (1, 2, 3)", "F IN (4, 5, 6)", "F IN (7)");
+        assertThat(batcher.partition("F", values(1, 6))).containsExactly("F IN (1, 2, 3)", "F IN (4, 5, 6)");
+    }
+
+    @Test
+    void partitionKeepsEveryChunkWithinTheLength() {
+        int maxLength = 60;
+        InFilterBatcher batcher = new InFilterBatcher(SAME_THREAD, 1000, maxLength);
+        List<String> values = values(100000, 100500);
+
+        List<String> filters = batcher.partition("ActivityObjectId", values);
+
+        assertThat(filters).allMatch(filter -> filter.length() <= maxLength);
+        assertThat(parse(filters)).isEqualTo(values);
+    }
+
+    @Test
+    void partitionDropsDuplicatesAndNulls() {
+        InFilterBatcher batcher = new InFilterBatcher(SAME_THREAD, 500, 4000);
+
+        assertThat(batcher.partition("F", Arrays.asList("1", null, "2", "1"))).containsExactly("F IN (1, 2)");
+        assertThat(batcher.partition("F", Arrays.asList(null, null))).isEmpty();
+        assertThat(batcher.partition("F", List.of())).isEmpty();
+    }
+
+    @Test
+    void valueLongerThanTheLimitGetsAChunkOfItsOwn() {
+        InFilterBatcher batcher = new InFilterBatcher(SAME_THREAD, 500, 12);
+
+        assertThat(batcher.partition("F", List.of("1", "123456789", "2")))
+                .containsExactly("F IN (1)", "F IN (123456789)", "F IN (2)");
+    }
+
+    @Test
+    void fetchAllMergesChunksInOrderWithoutDuplicates() {
+        InFilterBatcher batcher = new InFilterBatcher(SAME_THREAD, 2, 4000);
+
+        // Every chunk also returns a record shared with the others
+        List<String> merged = batcher.fetchAll("F", values(1, 5), filter -> {
+            List<String> records = new ArrayList<>(parse(List.of(filter)));
+            records.add("shared");
+            return records;
+        }, record -> record);
+
+        assertThat(merged).containsExactly("1", "2", "shared", "3", "4", "5");
+    }
+
+    private static List<String> values(int from, int to) {
+        return IntStream.rangeClosed(from, to).mapToObj(String::valueOf).collect(Collectors.toList());
+    }
+
+    private static List<String> parse(List<String> filters) {
+        List<String> values = new ArrayList<>();
+        for (String filter : filters) {
+            String list = filter.substring(filter.indexOf('(') + 1, filter.length() - 1);
+            values.addAll(Arrays.asList(list.split(", ")));
+        }
+        return values;
+    }
+}
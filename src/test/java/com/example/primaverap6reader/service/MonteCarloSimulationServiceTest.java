@@ -0,0 +1,46 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.Project;
+import com.example.primaverap6reader.model.ResourceAssignment;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.example.primaverap6reader.service.ProjectScheduleTest.activity;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MonteCarloSimulationServiceTest {
+
+    @Test
+    void budgetForecastCostsTheProjectsAssignmentsInOneRequest() {
+        PrimaveraRestService primaveraService = mock(PrimaveraRestService.class);
+        Project project = new Project();
+        project.setObjectId("P");
+        project.setName("Project");
+        when(primaveraService.getAllProjects()).thenReturn(List.of(project));
+        when(primaveraService.getActivitiesForProject("P")).thenReturn(List.of(activity("1", 8.0), activity("2", 8.0)));
+        when(primaveraService.getResourceAssignmentsForProject("P")).thenReturn(List.of(
+                assignment("1", 100.0), assignment("1", 50.0), assignment("2", 25.0),
+                // Assignments of activities no longer in the project are not costed
+                assignment("3", 1000.0)));
+
+        MonteCarloSimulationService service = new MonteCarloSimulationService(primaveraService, null, null);
+        Map<String, Object> forecast = service.forecastProjectBudget("P");
+
+        assertThat(forecast.get("plannedCost")).isEqualTo(175.0);
+        verify(primaveraService, never()).getResourceAssignmentsForActivity(anyString());
+    }
+
+    private static ResourceAssignment assignment(String activityObjectId, Double plannedCost) {
+        ResourceAssignment assignment = new ResourceAssignment();
+        assignment.setActivityObjectId(activityObjectId);
+        assignment.setPlannedCost(plannedCost);
+        return assignment;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.primaverap6reader.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class P6ReplayServerTest {
+
+    private static final String ACTIVITIES = "["
+            + "{\"ObjectId\": 1, \"ProjectObjectId\": 10, \"Name\": \"Design\", \"PlannedDuration\": 8, \"FinishDate\": \"2024-01-02T17:00:00\"},"
+            + "{\"ObjectId\": 2, \"ProjectObjectId\": 10, \"Name\": \"Design AND (build)\", \"PlannedDuration\": 16},"
+            + "{\"ObjectId\": 3, \"ProjectObjectId\": 10, \"Name\": \"Build\", \"PlannedDuration\": 40, \"FinishDate\": \"2024-02-01T17:00:00\"},"
+            + "{\"ObjectId\": 4, \"ProjectObjectId\": 11, \"Name\": \"Test, 'final'\", \"PlannedDuration\": 24},"
+            + "{\"ObjectId\": 5, \"ProjectObjectId\": 11, \"Name\": \"Handover\", \"PlannedDuration\": 0}]";
+
+    private final RestTemplate restTemplate = new RestTemplate();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private P6ReplayServer server;
+    private int port;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void filtersCombineConditionsJoinedByAnd(@TempDir Path dir) throws IOException {
+        start(dir, 1);
+
+        assertThat(objectIds("ObjectId IN (1, 3, 5) AND PlannedDuration > 0")).containsExactly("1", "3");
+        assertThat(objectIds("ProjectObjectId = 10 AND PlannedDuration >= 16")).containsExactly("2", "3");
+        assertThat(objectIds("ProjectObjectId <> 10")).containsExactly("4", "5");
+        assertThat(objectIds("PlannedDuration < 16 AND PlannedDuration <= 8")).containsExactly("1", "5");
+        assertThat(objectIds("FinishDate IS NULL")).containsExactly("2", "4", "5");
+        assertThat(objectIds("FinishDate is not null AND FinishDate < '2024-01-15'")).containsExactly("1");
+    }
+
+    @Test
+    void andInsideQuotesOrParenthesesDoesNotSplitTheFilter(@TempDir Path dir) throws IOException {
+        start(dir, 1);
+
+        assertThat(objectIds("Name = 'Design AND (build)'")).containsExactly("2");
+        assertThat(objectIds("Name IN ('Design AND (build)', 'Build') AND ProjectObjectId = 10"))
+                .containsExactly("2", "3");
+        assertThat(objectIds("")).containsExactly("1", "2", "3", "4", "5");
+    }
+
+    @Test
+    void unsupportedConditionsAreRejected(@TempDir Path dir) throws IOException {
+        start(dir, 1);
+
+        assertThatThrownBy(() -> objectIds("Name LIKE 'Des%'"))
+                .isInstanceOfSatisfying(HttpClientErrorException.class,
+                        e -> assertThat(e.getRawStatusCode()).isEqualTo(400));
+    }
+
+    @Test
+    void filtersMatchRemappedIdsOfCopies(@TempDir Path dir) throws IOException {
+        start(dir, 2);
+
+        // Copies add a power of ten above the largest recorded ObjectId (11) to every ObjectId
+        assertThat(objectIds("ProjectObjectId = 111")).containsExactly("104", "105");
+        assertThat(objectIds("ObjectId IN (3, 103) AND PlannedDuration > 0")).containsExactly("3", "103");
+        assertThat(objectIds("ProjectObjectId = 211")).isEmpty();
+    }
+
+    private void start(Path dir, int scale) throws IOException {
+        Files.writeString(dir.resolve("activity.json"), ACTIVITIES);
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        server = new P6ReplayServer(true, "127.0.0.1", port, dir.toString(), 2, 0, 0, 0, scale);
+        server.start();
+    }
+
+    private List<String> objectIds(String filter) throws IOException {
+        URI uri = UriComponentsBuilder.fromHttpUrl("http://127.0.0.1:" + port + "/p6ws/restapi/activity")
+                .queryParam("Fields", "ObjectId")
+                .queryParam("Filter", filter)
+                .queryParam("OrderBy", "ObjectId")
+                .encode()
+                .build()
+                .toUri();
+        JsonNode body = objectMapper.readTree(restTemplate.getForObject(uri, String.class));
+        List<String> objectIds = new ArrayList<>();
+        body.forEach(record -> objectIds.add(record.get("ObjectId").asText()));
+        return objectIds;
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.primaverap6reader.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PagedFetcherTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final ConcurrentFetcher concurrentFetcher = new ConcurrentFetcher(executor);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void recordsArriveInOrderAcrossConcurrentWindows() {
+        PagedFetcher fetcher = new PagedFetcher(concurrentFetcher, 100, 10, 1000, 4, 60_000);
+
+        for (int size : new int[]{0, 1, 99, 100, 101, 2500, 3200}) {
+            List<Integer> records = fetch(fetcher, "e", new Server(size, Integer.MAX_VALUE));
+            assertThat(records).as("%d records", size).isEqualTo(range(size));
+        }
+    }
+
+    @Test
+    void failedWindowIsRetriedInHalvesWithoutReordering() {
+        PagedFetcher fetcher = new PagedFetcher(concurrentFetcher, 100, 10, 100, 4, 60_000);
+        Server server = new Server(1000, Integer.MAX_VALUE);
+        server.failOnce.add(300);
+        server.failOnce.add(700);
+
+        assertThat(fetch(fetcher, "e", server)).isEqualTo(range(1000));
+        assertThat(server.limits(300)).contains(100, 50);
+    }
+
+    @Test
+    void windowFailingAtTheMinimumSizeFailsTheFetch() {
+        PagedFetcher fetcher = new PagedFetcher(concurrentFetcher, 10, 10, 10, 4, 60_000);
+        Server server = new Server(100, Integer.MAX_VALUE);
+        server.failAlways.add(40);
+
+        assertThatThrownBy(() -> fetch(fetcher, "e", server)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void serverCappedWindowsDoNotTruncateTheData() {
+        PagedFetcher fetcher = new PagedFetcher(concurrentFetcher, 2000, 10, 10000, 4, 60_000);
+        Server server = new Server(5000, 300);
+
+        assertThat(fetch(fetcher, "e", server)).isEqualTo(range(5000));
+        // Later windows are sized to the cap, so they come back full
+        Server again = new Server(1000, 300);
+        assertThat(fetch(fetcher, "e", again)).isEqualTo(range(1000));
+        assertThat(again.requests).allMatch(request -> request[1] <= 300);
+    }
+
+    @Test
+    void shortWindowOfAFullyAnsweredLimitNeedsNoConfirmation() {
+        PagedFetcher fetcher = new PagedFetcher(concurrentFetcher, 100, 10, 100, 4, 60_000);
+
+        // Unproven Limit: one more window confirms the end
+        Server first = new Server(50, Integer.MAX_VALUE);
+        assertThat(fetch(fetcher, "e", first)).isEqualTo(range(50));
+        assertThat(first.requests).hasSize(2);
+
+        fetch(fetcher, "e", new Server(500, Integer.MAX_VALUE));
+        Server small = new Server(50, Integer.MAX_VALUE);
+        assertThat(fetch(fetcher, "e", small)).isEqualTo(range(50));
+        assertThat(small.requests).hasSize(1);
+    }
+
+    @Test
+    void windowSizesAdaptPerEndpoint() {
+        PagedFetcher fetcher = new PagedFetcher(concurrentFetcher, 100, 10, 1000, 1, 20);
+        Server slow = new Server(400, Integer.MAX_VALUE);
+        slow.delayMs = 50;
+        fetch(fetcher, "slow", slow);
+
+        Server other = new Server(10, Integer.MAX_VALUE);
+        fetch(fetcher, "other", other);
+        Server slowAgain = new Server(10, Integer.MAX_VALUE);
+        fetch(fetcher, "slow", slowAgain);
+
+        assertThat(other.requests.get(0)[1]).isEqualTo(100);
+        assertThat(slowAgain.requests.get(0)[1]).isLessThan(100);
+    }
+
+    private static List<Integer> fetch(PagedFetcher fetcher, String endpoint, Server server) {
+        List<Integer> records = new ArrayList<>();
+        long total = fetcher.fetchAll(endpoint, "test", server::load, records::addAll);
+        assertThat(total).isEqualTo(records.size());
+        return records;
+    }
+
+    private static List<Integer> range(int size) {
+        return IntStream.range(0, size).boxed().collect(Collectors.toList());
+    }
+
+    /**
+     * Serves the records 0 to size - 1 in order, at most cap per request
+     */
+    private static final class Server {
+        final int size;
+        final int cap;
+        final Set<Integer> failOnce = ConcurrentHashMap.newKeySet();
+        final Set<Integer> failAlways = ConcurrentHashMap.newKeySet();
+        final List<int[]> requests = new CopyOnWriteArrayList<>();
+        volatile long delayMs;
+
+        Server(int size, int cap) {
+            this.size = size;
+            this.cap = cap;
+        }
+
+        List<Integer> load(int offset, int limit) {
+            requests.add(new int[]{offset, limit});
+            if (delayMs > 0) {
+                try {
+                    Thread.sleep(delayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failAlways.stream().anyMatch(failing -> failing >= offset && failing < offset + limit)
+                    || failOnce.remove(offset)) {
+                throw new IllegalStateException("Window " + offset + "+" + limit + " timed out");
+            }
+            int end = Math.min(size, offset + Math.min(limit, cap));
+            return offset >= end ? Collections.emptyList() : new ArrayList<>(range(end).subList(offset, end));
+        }
+
+        List<Integer> limits(int offset) {
+            return requests.stream().filter(request -> request[0] == offset).map(request -> request[1])
+                    .collect(Collectors.toList());
+        }
+    }
+}
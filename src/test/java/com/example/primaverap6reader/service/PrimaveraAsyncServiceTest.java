@@ -0,0 +1,54 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.Project;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PrimaveraAsyncServiceTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "p6-test"));
+    private final PrimaveraRestService primaveraService = mock(PrimaveraRestService.class);
+    private final PrimaveraAsyncService asyncService =
+            new PrimaveraAsyncService(primaveraService, new ConcurrentFetcher(executor));
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void callsRunOnTheRequestExecutor() {
+        AtomicReference<String> thread = new AtomicReference<>();
+        when(primaveraService.getAllProjects()).thenAnswer(invocation -> {
+            thread.set(Thread.currentThread().getName());
+            return List.of(new Project());
+        });
+
+        CompletableFuture<List<Project>> projects = asyncService.getAllProjectsAsync();
+
+        assertThat(ConcurrentFetcher.join(projects)).hasSize(1);
+        assertThat(thread.get()).isEqualTo("p6-test");
+    }
+
+    @Test
+    void failuresCompleteTheFutureExceptionally() {
+        when(primaveraService.getProjectById("X")).thenThrow(new IllegalStateException("P6 unreachable"));
+
+        CompletableFuture<Project> project = asyncService.getProjectByIdAsync("X");
+
+        assertThatThrownBy(() -> ConcurrentFetcher.join(project))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("P6 unreachable");
+    }
+}
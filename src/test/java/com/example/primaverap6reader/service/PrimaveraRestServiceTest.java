@@ -0,0 +1,100 @@
+package com.example.primaverap6reader.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.primaverap6reader.service.ProjectScheduleTest.activity;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.queryParam;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class PrimaveraRestServiceTest {
+
+    private static final String BASE_URL = "http://p6.test/p6ws/restapi";
+
+    private final RestTemplate restTemplate = new RestTemplate();
+    private final MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+    private final CacheManager cacheManager = new ConcurrentMapCacheManager("projectActivities");
+    private PrimaveraRestService service;
+
+    @BeforeEach
+    void setUp() {
+        ConcurrentFetcher sameThread = new ConcurrentFetcher(Runnable::run);
+        service = new PrimaveraRestService(restTemplate, new P6JsonStreamReader(),
+                new PagedFetcher(sameThread, 2000, 250, 10000, 4, 3000),
+                new InFilterBatcher(sameThread, 500, 4000),
+                cacheManager, BASE_URL, "user", "password", "");
+
+        HttpHeaders cookie = new HttpHeaders();
+        cookie.add(HttpHeaders.SET_COOKIE, "JSESSIONID=1; Path=/");
+        server.expect(once(), requestTo(BASE_URL + "/login")).andExpect(method(HttpMethod.POST))
+                .andRespond(withSuccess().headers(cookie));
+    }
+
+    @Test
+    void assignmentsOfACachedProjectQueryOnlyAssignments() {
+        cacheManager.getCache("projectActivities").put("P", ActivityTable.builder()
+                .add(activity("11", 8.0)).add(activity("12", 8.0)).build());
+        server.expect(once(), requestTo(containsString("/resourceAssignment?")))
+                .andExpect(requestTo(containsString("ActivityObjectId%20IN%20(11,%2012)")))
+                .andRespond(withSuccess("[{\"ObjectId\": \"1\", \"ActivityObjectId\": \"11\"}]",
+                        MediaType.APPLICATION_JSON));
+
+        assertThat(service.getResourceAssignmentsForProject("P")).hasSize(1);
+        server.verify();
+    }
+
+    @Test
+    void assignmentsOfAnUncachedProjectReadOnlyActivityObjectIds() {
+        server.expect(once(), requestTo(containsString("/activity?")))
+                .andExpect(queryParam("Fields", "ObjectId"))
+                .andRespond(withSuccess("[{\"ObjectId\": \"11\"}, {\"ObjectId\": \"12\"}]",
+                        MediaType.APPLICATION_JSON));
+        // Both activities fit the first window: one more confirms the end
+        server.expect(once(), requestTo(containsString("/activity?")))
+                .andExpect(queryParam("Offset", "2"))
+                .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+        server.expect(once(), requestTo(containsString("/resourceAssignment?")))
+                .andExpect(requestTo(containsString("ActivityObjectId%20IN%20(11,%2012)")))
+                .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+
+        assertThat(service.getResourceAssignmentsForProject("P")).isEqualTo(List.of());
+        server.verify();
+    }
+
+    @Test
+    void streamedActivitiesAreNotCached() {
+        cacheManager.getCache("projectActivities").put("P", ActivityTable.builder().add(activity("11", 8.0)).build());
+        server.expect(once(), requestTo(containsString("/activity?")))
+                .andExpect(requestTo(containsString("ProjectObjectId%20IN%20(Q,%20R)")))
+                .andRespond(withSuccess("[{\"ObjectId\": \"21\", \"ProjectObjectId\": \"Q\"},"
+                        + " {\"ObjectId\": \"31\", \"ProjectObjectId\": \"R\"}]", MediaType.APPLICATION_JSON));
+        server.expect(once(), requestTo(containsString("/activity?")))
+                .andExpect(queryParam("Offset", "2"))
+                .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+
+        List<String> objectIds = new ArrayList<>();
+        long count = service.streamActivitiesForProjects(List.of("P", "Q", "R"),
+                streamed -> objectIds.add(streamed.getObjectId()));
+
+        assertThat(count).isEqualTo(3);
+        assertThat(objectIds).containsExactly("11", "21", "31");
+        assertThat(service.getCachedActivities("Q")).isNull();
+        assertThat(service.getCachedActivities("P")).hasSize(1);
+        server.verify();
+    }
+}
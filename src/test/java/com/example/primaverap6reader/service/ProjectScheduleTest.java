@@ -0,0 +1,152 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.Activity;
+import com.example.primaverap6reader.model.Relationship;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProjectScheduleTest {
+
+    private static final String[] TYPES = {"Finish to Start", "Start to Start", "Finish to Finish", "Start to Finish"};
+
+    @Test
+    void propagateMatchesRecomputeOnRandomNetworks() {
+        for (long seed = 1; seed <= 200; seed++) {
+            Random random = new Random(seed);
+            int n = 2 + random.nextInt(60);
+            List<Activity> activities = randomActivities(random, n);
+            List<Relationship> relationships = randomRelationships(random, n, 0.15);
+            ProjectSchedule schedule = ProjectSchedule.build(activities, relationships);
+            ScheduleNetwork network = schedule.network();
+
+            for (int round = 0; round < 20; round++) {
+                int changes = 1 + random.nextInt(4);
+                for (int c = 0; c < changes; c++) {
+                    if (relationships.isEmpty() || random.nextBoolean()) {
+                        schedule.changeDuration(random.nextInt(n), randomDuration(random));
+                    } else {
+                        Relationship relationship = relationships.get(random.nextInt(relationships.size()));
+                        int link = network.linkIndex(network.indexOf(relationship.getPredecessorActivityObjectId()),
+                                network.indexOf(relationship.getSuccessorActivityObjectId()));
+                        schedule.changeLink(link, TYPES[random.nextInt(TYPES.length)], randomLag(random));
+                    }
+                }
+                schedule.propagate();
+                assertThat(schedule.matches(schedule.recompute(), 1e-6))
+                        .as("seed %d, round %d", seed, round)
+                        .isTrue();
+            }
+        }
+    }
+
+    @Test
+    void linkTypesShiftSuccessorDates() {
+        List<Activity> activities = List.of(activity("1", 10.0), activity("2", 4.0));
+        double[][] expected = {
+                // Type, successor early start with a lag of 2 hours
+                {0, 12}, {1, 2}, {2, 8}, {3, -2}
+        };
+        for (double[] row : expected) {
+            Relationship relationship = relationship("1", "2", TYPES[(int) row[0]], 2.0);
+            ProjectSchedule schedule = ProjectSchedule.build(activities, List.of(relationship));
+            int successor = schedule.network().indexOf("2");
+            assertThat(schedule.earlyStart(successor)).as(TYPES[(int) row[0]]).isEqualTo(Math.max(0, row[1]));
+        }
+    }
+
+    @Test
+    void criticalChainHasNoFloat() {
+        List<Activity> activities = List.of(activity("1", 5.0), activity("2", 3.0), activity("3", 1.0));
+        List<Relationship> relationships = List.of(
+                relationship("1", "2", "Finish to Start", 0.0),
+                relationship("1", "3", "Finish to Start", 0.0));
+        ProjectSchedule schedule = ProjectSchedule.build(activities, relationships);
+        ScheduleNetwork network = schedule.network();
+
+        assertThat(schedule.getProjectFinish()).isEqualTo(8.0);
+        assertThat(schedule.isCritical(network.indexOf("1"))).isTrue();
+        assertThat(schedule.isCritical(network.indexOf("2"))).isTrue();
+        assertThat(schedule.totalFloat(network.indexOf("3"))).isEqualTo(2.0);
+    }
+
+    @Test
+    void cyclesAreRejected() {
+        List<Activity> activities = List.of(activity("1", 1.0), activity("2", 1.0));
+        List<Relationship> relationships = List.of(
+                relationship("1", "2", "Finish to Start", 0.0),
+                relationship("2", "1", "Finish to Start", 0.0));
+
+        assertThatThrownBy(() -> ProjectSchedule.build(activities, relationships))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void duplicateObjectIdsAreRejected() {
+        List<Activity> activities = List.of(activity("1", 1.0), activity("2", 1.0), activity("1", 2.0));
+
+        assertThatThrownBy(() -> ProjectSchedule.build(activities, List.of()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("[1]");
+    }
+
+    static List<Activity> randomActivities(Random random, int n) {
+        List<Activity> activities = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            activities.add(activity(String.valueOf(i), randomDuration(random)));
+        }
+        // Input order must not matter to the network
+        Collections.shuffle(activities, random);
+        return activities;
+    }
+
+    /**
+     * Links only from lower to higher ObjectIds, so the network has no cycle
+     */
+    static List<Relationship> randomRelationships(Random random, int n, double density) {
+        List<Relationship> relationships = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (random.nextDouble() < density) {
+                    relationships.add(relationship(String.valueOf(i), String.valueOf(j),
+                            TYPES[random.nextInt(TYPES.length)], randomLag(random)));
+                }
+            }
+        }
+        return relationships;
+    }
+
+    static Activity activity(String objectId, Double hours) {
+        Activity activity = new Activity();
+        activity.setObjectId(objectId);
+        activity.setId("A" + objectId);
+        activity.setName("Activity " + objectId);
+        activity.setPlannedDuration(hours);
+        return activity;
+    }
+
+    static Relationship relationship(String predecessor, String successor, String type, Double lag) {
+        Relationship relationship = new Relationship();
+        relationship.setObjectId(predecessor + ">" + successor);
+        relationship.setPredecessorActivityObjectId(predecessor);
+        relationship.setSuccessorActivityObjectId(successor);
+        relationship.setType(type);
+        relationship.setLag(lag);
+        return relationship;
+    }
+
+    private static double randomDuration(Random random) {
+        // Some milestones, otherwise whole hours up to two weeks
+        return random.nextInt(5) == 0 ? 0 : 1 + random.nextInt(80);
+    }
+
+    private static double randomLag(Random random) {
+        return random.nextInt(3) == 0 ? 0 : random.nextInt(33) - 8;
+    }
+}
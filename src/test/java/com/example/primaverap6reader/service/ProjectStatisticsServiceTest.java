@@ -0,0 +1,56 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.Activity;
+import com.example.primaverap6reader.model.Project;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProjectStatisticsServiceTest {
+
+    private final PrimaveraRestService primaveraService = mock(PrimaveraRestService.class);
+    private final ProjectStatisticsService statisticsService = new ProjectStatisticsService(primaveraService);
+
+    @Test
+    void typeCountsFoldCachedTablesAndStreamTheRest() {
+        when(primaveraService.getAllProjects()).thenReturn(List.of(project("P"), project("Q")));
+        when(primaveraService.getCachedActivities("P")).thenReturn(ActivityTable.builder()
+                .add(activity("1", "Task Dependent")).add(activity("2", "Milestone")).add(activity("3", null))
+                .build());
+        doAnswer(invocation -> {
+            Consumer<Activity> consumer = invocation.getArgument(1);
+            consumer.accept(activity("4", "Task Dependent"));
+            consumer.accept(activity("5", null));
+            return 2L;
+        }).when(primaveraService).streamActivitiesForProjects(eq(List.of("Q")), any());
+
+        Map<String, Integer> counts = statisticsService.getActivityCountByType();
+
+        assertThat(counts).isEqualTo(Map.of("Task Dependent", 2, "Milestone", 1, "Unknown", 2));
+        verify(primaveraService, never()).getActivitiesForProjects(anyCollection());
+    }
+
+    private static Project project(String objectId) {
+        Project project = new Project();
+        project.setObjectId(objectId);
+        return project;
+    }
+
+    private static Activity activity(String objectId, String type) {
+        Activity activity = ProjectScheduleTest.activity(objectId, 8.0);
+        activity.setType(type);
+        return activity;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.Activity;
+import com.example.primaverap6reader.model.Relationship;
+import com.example.primaverap6reader.model.ResourceAssignment;
+import com.example.primaverap6reader.model.SamplingMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Compares the Monte Carlo sampling modes on a synthetic schedule: the percentile error reached
+ * per CPU-second. Not a test; run its main method from the test classpath, e.g.
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.primaverap6reader.service.SamplingBenchmark -Dexec.args="2000 16 200000"
+ * </pre>
+ * The optional arguments are the number of activities, the replicates per point and the iterations
+ * of the reference run.
+ */
+public class SamplingBenchmark {
+
+    private static final int CONFIDENCE = 80;
+    private static final int[] ITERATION_COUNTS = {500, 1000, 2000, 4000, 8000, 16000};
+
+    private final MonteCarloEngine monteCarloEngine;
+    private final int activityCount;
+    private final int replicates;
+    private final int referenceIterations;
+
+    SamplingBenchmark(MonteCarloEngine monteCarloEngine, int activityCount, int replicates, int referenceIterations) {
+        this.monteCarloEngine = monteCarloEngine;
+        this.activityCount = activityCount;
+        this.replicates = replicates;
+        this.referenceIterations = referenceIterations;
+    }
+
+    public static void main(String[] args) {
+        MonteCarloEngine engine = new MonteCarloEngine(0);
+        try {
+            new SamplingBenchmark(engine,
+                    args.length > 0 ? Integer.parseInt(args[0]) : 2000,
+                    args.length > 1 ? Integer.parseInt(args[1]) : 16,
+                    args.length > 2 ? Integer.parseInt(args[2]) : 200000).run();
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    void run() {
+        SimulationModel model = buildSyntheticModel();
+
+        System.out.printf("Sampling benchmark: %d activities, P%d, %d replicates per point, single-threaded%n",
+                model.size(), CONFIDENCE, replicates);
+
+        SimulationOutcome reference = monteCarloEngine.run(model, referenceIterations, 0, 0, true);
+        double referenceHours = (reference.completionPercentile(CONFIDENCE) - model.startMillis()) / 3_600_000.0;
+        double referenceCost = reference.costPercentile(CONFIDENCE);
+        System.out.printf("Reference (%d iterations): P%d duration %.1f h, P%d cost %.0f%n", referenceIterations,
+                CONFIDENCE, referenceHours, CONFIDENCE, referenceCost);
+
+        System.out.printf("%-16s %8s %14s %14s %12s %16s%n",
+                "mode", "iters", "rmse hours", "rmse cost", "cpu s/run", "efficiency");
+
+        for (SamplingMode mode : SamplingMode.values()) {
+            for (int iterations : ITERATION_COUNTS) {
+                double hoursSquaredError = 0;
+                double costSquaredError = 0;
+                long nanos = 0;
+
+                for (int r = 0; r < replicates; r++) {
+                    long start = System.nanoTime();
+                    SimulationOutcome outcome = monteCarloEngine.run(model, iterations, 1000L + r, 1, true, mode, null);
+                    nanos += System.nanoTime() - start;
+
+                    double hours = (outcome.completionPercentile(CONFIDENCE) - model.startMillis()) / 3_600_000.0;
+                    hoursSquaredError += (hours - referenceHours) * (hours - referenceHours);
+                    costSquaredError += (outcome.costPercentile(CONFIDENCE) - referenceCost)
+                            * (outcome.costPercentile(CONFIDENCE) - referenceCost);
+                }
+
+                double rmseHours = Math.sqrt(hoursSquaredError / replicates);
+                double rmseCost = Math.sqrt(costSquaredError / replicates);
+                double cpuSeconds = nanos / 1e9 / replicates;
+                // Classic Monte Carlo efficiency: inverse of (relative mean squared error x cost)
+                double relativeMse = (rmseCost / referenceCost) * (rmseCost / referenceCost);
+                double efficiency = 1 / (relativeMse * cpuSeconds);
+
+                System.out.printf("%-16s %8d %14.2f %14.1f %12.4f %16.3e%n",
+                        mode, iterations, rmseHours, rmseCost, cpuSeconds, efficiency);
+            }
+        }
+    }
+
+    /**
+     * Random schedule with planned durations between one day and ten weeks, uneven costs, and
+     * one or two finish-to-start predecessors per activity among the twenty activities before it
+     */
+    private SimulationModel buildSyntheticModel() {
+        SplittableRandom random = new SplittableRandom(42);
+        List<Activity> activities = new ArrayList<>(activityCount);
+        List<ResourceAssignment> assignments = new ArrayList<>(activityCount);
+        List<Relationship> relationships = new ArrayList<>(activityCount * 2);
+
+        for (int i = 0; i < activityCount; i++) {
+            Activity activity = new Activity();
+            activity.setObjectId(String.valueOf(i));
+            activity.setPlannedDuration(8.0 * (1 + random.nextInt(50)));
+            activities.add(activity);
+
+            ResourceAssignment assignment = new ResourceAssignment();
+            assignment.setActivityObjectId(activity.getObjectId());
+            assignment.setPlannedCost(Math.exp(6 + 3 * random.nextDouble()));
+            assignments.add(assignment);
+
+            for (int k = 0, links = i == 0 ? 0 : 1 + random.nextInt(2); k < links; k++) {
+                Relationship relationship = new Relationship();
+                relationship.setPredecessorActivityObjectId(String.valueOf(Math.max(0, i - 1 - random.nextInt(20))));
+                relationship.setSuccessorActivityObjectId(activity.getObjectId());
+                relationships.add(relationship);
+            }
+        }
+
+        return SimulationModel.build(0L, activities, assignments, relationships);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.Activity;
+import com.example.primaverap6reader.model.Relationship;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.example.primaverap6reader.service.ProjectScheduleTest.activity;
+import static com.example.primaverap6reader.service.ProjectScheduleTest.randomActivities;
+import static com.example.primaverap6reader.service.ProjectScheduleTest.randomRelationships;
+import static com.example.primaverap6reader.service.ProjectScheduleTest.relationship;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class SchedulePathsTest {
+
+    @Test
+    void dragMatchesRecomputingWithoutEachDuration() {
+        for (long seed = 1; seed <= 100; seed++) {
+            Random random = new Random(seed);
+            int n = 2 + random.nextInt(60);
+            ProjectSchedule schedule = ProjectSchedule.build(randomActivities(random, n),
+                    randomRelationships(random, n, 0.1));
+            ScheduleNetwork network = schedule.network();
+            double[] duration = durations(schedule);
+
+            double[] drag = SchedulePaths.drag(schedule);
+            for (int v = 0; v < n; v++) {
+                double keep = duration[v];
+                duration[v] = 0;
+                double finish = network.forwardPass(duration, new double[n]);
+                duration[v] = keep;
+                assertThat(drag[v]).as("seed %d, node %d", seed, v)
+                        .isCloseTo(schedule.getProjectFinish() - finish, within(1e-6));
+            }
+        }
+    }
+
+    @Test
+    void longestPathsMatchAllPathsEnumerated() {
+        for (long seed = 1; seed <= 100; seed++) {
+            Random random = new Random(seed);
+            int n = 2 + random.nextInt(25);
+            ProjectSchedule schedule = ProjectSchedule.build(randomActivities(random, n),
+                    randomRelationships(random, n, 0.15));
+            double[] duration = durations(schedule);
+
+            List<Double> all = new ArrayList<>();
+            for (int v = 0; v < n; v++) {
+                enumerate(schedule, v, duration[v], duration, all);
+            }
+            all.sort(Collections.reverseOrder());
+
+            List<SchedulePaths.Path> paths = SchedulePaths.longestPaths(schedule, 10, 1e9);
+            assertThat(paths).hasSize(Math.min(10, all.size()));
+            assertThat(paths.get(0).length()).isCloseTo(schedule.getProjectFinish(), within(1e-6));
+            for (int i = 0; i < paths.size(); i++) {
+                assertThat(paths.get(i).length()).as("seed %d, path %d", seed, i).isCloseTo(all.get(i), within(1e-6));
+            }
+        }
+    }
+
+    @Test
+    void floatThresholdLimitsPaths() {
+        List<Activity> activities = List.of(activity("1", 5.0), activity("2", 3.0), activity("3", 1.0));
+        List<Relationship> relationships = List.of(
+                relationship("1", "2", "Finish to Start", 0.0),
+                relationship("1", "3", "Finish to Start", 0.0));
+        ProjectSchedule schedule = ProjectSchedule.build(activities, relationships);
+
+        List<SchedulePaths.Path> critical = SchedulePaths.longestPaths(schedule, 10, 0);
+        assertThat(critical).hasSize(1);
+        assertThat(critical.get(0).nodes()).containsExactly(
+                schedule.network().indexOf("1"), schedule.network().indexOf("2"));
+        assertThat(SchedulePaths.longestPaths(schedule, 10, 2)).extracting(SchedulePaths.Path::length)
+                .containsExactly(8.0, 6.0);
+    }
+
+    private static double[] durations(ProjectSchedule schedule) {
+        double[] duration = new double[schedule.size()];
+        for (int v = 0; v < duration.length; v++) {
+            duration[v] = schedule.duration(v);
+        }
+        return duration;
+    }
+
+    /**
+     * Lengths of every path starting at a node, ending anywhere at or after it
+     */
+    private static void enumerate(ProjectSchedule schedule, int v, double finish, double[] duration, List<Double> out) {
+        out.add(finish);
+        ScheduleNetwork network = schedule.network();
+        for (int j = network.successorStart(v); j < network.successorEnd(v); j++) {
+            int w = network.successor(j);
+            double start = finish + network.linkOffset(network.linkIndex(v, w), w, duration);
+            enumerate(schedule, w, start + duration[w], duration, out);
+        }
+    }
+}
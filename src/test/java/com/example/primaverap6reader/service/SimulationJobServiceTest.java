@@ -0,0 +1,93 @@
+package com.example.primaverap6reader.service;
+
+import com.example.primaverap6reader.model.SimulationJobState;
+import com.example.primaverap6reader.model.SimulationJobStatus;
+import com.example.primaverap6reader.model.SimulationOptions;
+import com.example.primaverap6reader.model.SimulationResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SimulationJobServiceTest {
+
+    private final MonteCarloSimulationService simulationService = mock(MonteCarloSimulationService.class);
+    private final SimulationJobService jobService = new SimulationJobService(
+            simulationService, mock(PrimaveraRestService.class), 1, 4, 30, 1000, 60);
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        jobService.shutdown();
+    }
+
+    @Test
+    void runningJobStaysRunningUntilItStops() throws InterruptedException {
+        // The run checks for cancellation only once it is released, as the engine does between chunks
+        when(simulationService.performScheduleRiskAnalysis(eq("P"), any(), any())).thenAnswer(invocation -> {
+            SimulationMonitor monitor = invocation.getArgument(2);
+            started.countDown();
+            release.await();
+            if (monitor.isCancelled()) {
+                throw new CancellationException("Simulation cancelled");
+            }
+            return new SimulationResult();
+        });
+        SimulationJobStatus job = jobService.submit("P", options());
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(jobService.cancel(job.getJobId()).getState()).isEqualTo(SimulationJobState.RUNNING);
+
+        release.countDown();
+        waitUntil(() -> jobService.getStatus(job.getJobId()).getState().isFinished());
+        assertThat(jobService.getStatus(job.getJobId()).getState()).isEqualTo(SimulationJobState.CANCELLED);
+    }
+
+    @Test
+    void queuedJobIsCancelledAtOnceAndNeverRuns() throws InterruptedException {
+        when(simulationService.performScheduleRiskAnalysis(eq("P"), any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return new SimulationResult();
+        });
+        SimulationJobStatus running = jobService.submit("P", options());
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        SimulationJobStatus queued = jobService.submit("Q", options());
+
+        assertThat(jobService.cancel(queued.getJobId()).getState()).isEqualTo(SimulationJobState.CANCELLED);
+
+        release.countDown();
+        waitUntil(() -> jobService.getStatus(running.getJobId()).getState().isFinished());
+        assertThat(jobService.getStatus(running.getJobId()).getState()).isEqualTo(SimulationJobState.COMPLETED);
+        assertThat(jobService.getStatus(queued.getJobId()).getState()).isEqualTo(SimulationJobState.CANCELLED);
+        verify(simulationService, never()).performScheduleRiskAnalysis(eq("Q"), any(), any());
+    }
+
+    private static SimulationOptions options() {
+        SimulationOptions options = new SimulationOptions();
+        options.setIterations(100);
+        return options;
+    }
+
+    private static void waitUntil(Supplier<Boolean> condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.get()) {
+            assertThat(System.nanoTime()).as("waited 5 s for the job").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}